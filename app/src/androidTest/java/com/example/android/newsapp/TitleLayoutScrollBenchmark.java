@@ -0,0 +1,114 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static android.support.test.espresso.Espresso.onView;
+import static android.support.test.espresso.action.ViewActions.swipeDown;
+import static android.support.test.espresso.action.ViewActions.swipeUp;
+import static android.support.test.espresso.matcher.ViewMatchers.withId;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scrolls the list of news with and without the title layouts prepared in the background,
+ * and logs the frame times of both runs. Run it on a device with:
+ * ./gradlew connectedAndroidTest
+ * and read the results with: adb logcat -s TitleLayoutScrollBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class TitleLayoutScrollBenchmark {
+
+    private static final String LOG_TAG = TitleLayoutScrollBenchmark.class.getSimpleName();
+
+    // Number of news in the list, and of swipes down then up the list in each run
+    private static final int NEWS_COUNT = 300;
+    private static final int SWIPES = 15;
+
+    @Rule
+    public ActivityTestRule<EducationNewsActivity> activityRule =
+            new ActivityTestRule<>(EducationNewsActivity.class);
+
+    @Test
+    public void scrollFrameTimes() throws Throwable {
+        Context context = InstrumentationRegistry.getTargetContext();
+        TitleLayoutCache titleLayouts = TitleLayoutCache.getInstance(context);
+
+        // Before: every title is laid out on the main thread when its row is bound
+        titleLayouts.setPrecomputeEnabled(false);
+        long framesBefore = scroll("main thread");
+
+        // After: the titles of the next rows are laid out in the background
+        titleLayouts.setPrecomputeEnabled(true);
+        long framesAfter = scroll("precomputed");
+
+        assertTrue(framesBefore > 0 && framesAfter > 0);
+    }
+
+    /**
+     * Fill the list with the same long titles, scroll it down and up, and log the frame times.
+     * Returns the number of frames recorded.
+     */
+    private long scroll(String label) throws Throwable {
+        showNews(syntheticNews());
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        NewsMetrics.reset();
+
+        for (int i = 0; i < SWIPES; i++) {
+            onView(withId(R.id.list_view)).perform(swipeUp());
+        }
+        for (int i = 0; i < SWIPES; i++) {
+            onView(withId(R.id.list_view)).perform(swipeDown());
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        NewsMetrics.Histogram frames = NewsMetrics.FRAME;
+        NewsMetrics.Histogram layouts = NewsMetrics.TITLE_LAYOUT_MAIN;
+        Log.i(LOG_TAG, label + ": " + frames.getCount() + " frames"
+                + ", p50 " + frames.getPercentile(50) + " us"
+                + ", p90 " + frames.getPercentile(90) + " us"
+                + ", p99 " + frames.getPercentile(99) + " us"
+                + ", titles laid out on the main thread " + layouts.getCount()
+                + ", p90 " + layouts.getPercentile(90) + " us");
+        return frames.getCount();
+    }
+
+    /**
+     * Replace the news of the adapter on the main thread.
+     */
+    private void showNews(final List<EducationNews> news) throws Throwable {
+        activityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                RecyclerView listView = (RecyclerView) activityRule.getActivity().findViewById(R.id.list_view);
+                ((EducationNewsAdapter) listView.getAdapter()).setNews(news);
+                listView.scrollToPosition(0);
+            }
+        });
+    }
+
+    /**
+     * Returns news with titles of a few lines, with new URLs every time so nothing is cached.
+     */
+    private static List<EducationNews> syntheticNews() {
+        long now = System.currentTimeMillis();
+        List<EducationNews> news = new ArrayList<>(NEWS_COUNT);
+        for (int i = 0; i < NEWS_COUNT; i++) {
+            String title = "Universities warn that funding cuts for teacher training will leave schools "
+                    + "short of qualified staff in science and languages for years, number " + i;
+            news.add(new EducationNews(title, "Education", now - i * 60000L,
+                    "https://www.theguardian.com/education/benchmark/" + now + "/" + i));
+        }
+        return news;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Client side quota of the API key, which is shared by all the installs of the app.
+ * <p>
+ * Every request takes a token from a bucket refilled at a steady rate, so the requests never go
+ * over the per-second limit of the API. The requests of the day are counted against the daily
+ * limit, corrected with the remaining quota the server sends in its headers. The least urgent
+ * requests stop first when the daily quota runs low, so what is left goes to the news the user
+ * is looking at, and while requests of a higher priority are waiting the others wait behind them.
+ * The counters are saved to a file on a background thread, so they survive a restart of the
+ * process without any request waiting for the disk. This can be called from any thread.
+ */
+public class ApiQuotaManager {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = ApiQuotaManager.class.getSimpleName();
+
+    // Limits of the developer tier of The Guardian API
+    static final int REQUESTS_PER_SECOND = 12;
+    static final int REQUESTS_PER_DAY = 5000;
+
+    // Share of the daily quota kept for the more urgent requests: the prefetch of the next pages
+    // stops under the first one, and the background sync under the second one
+    private static final double PREFETCH_RESERVE = 0.05;
+    private static final double SYNC_RESERVE = 0.2;
+
+    // Under this share of the daily quota, the queries should be merged to send fewer requests
+    private static final double CONSERVE_THRESHOLD = 0.3;
+
+    // Pause after a "429 Too Many Requests" without Retry-After
+    private static final long DEFAULT_PAUSE_MILLIS = 1000;
+
+    // Requests do not wait for a longer pause asked by the server, they fail right away instead
+    private static final long MAX_PAUSE_WAIT_MILLIS = 5000;
+
+    // A waiting request checks this often whether it was cancelled
+    private static final long MAX_WAIT_MILLIS = 100;
+
+    // Number of milliseconds in a day
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000;
+
+    // Name of the file with the counters, and the keys of the counters
+    private static final String FILE_NAME = "api_quota";
+    private static final String KEY_DAY = "day";
+    private static final String KEY_USED_TODAY = "usedToday";
+    private static final String KEY_PAUSED_UNTIL = "pausedUntil";
+
+    // The single quota of the application
+    private static ApiQuotaManager instance;
+
+    // File where the counters are saved, and its writer
+    private final File file;
+    private final PropertiesWriter writer;
+
+    // Daily limit of the API key
+    private final int requestsPerDay;
+
+    // The bucket of tokens: its capacity, its refill rate per millisecond and its content.
+    // A full bucket and a second of refill together never go over the per-second limit.
+    private final double bucketCapacity;
+    private final double tokensPerMilli;
+    private double tokens;
+    private long lastRefillTime;
+
+    // Day of the counters, in days since the epoch in UTC, and the requests sent that day
+    private long day;
+    private int usedToday;
+
+    // Time until which no request is sent, because the server asked to wait, in epoch milliseconds
+    private long pausedUntil;
+
+    // Number of requests waiting for a token, for every priority
+    private final int[] waitingRequests = new int[PrioritizedExecutor.Priority.values().length];
+
+    /**
+     * Returns the quota of the application.
+     */
+    public static synchronized ApiQuotaManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new ApiQuotaManager(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                    REQUESTS_PER_SECOND, REQUESTS_PER_DAY);
+        }
+        return instance;
+    }
+
+    /**
+     * Constructs a new ApiQuotaManager, with the counters saved in the given file, if any.
+     *
+     * @param file              is the file where the counters are saved
+     * @param requestsPerSecond is the per-second limit of the API key
+     * @param requestsPerDay    is the daily limit of the API key
+     */
+    public ApiQuotaManager(File file, int requestsPerSecond, int requestsPerDay) {
+        this(file, requestsPerSecond, requestsPerDay, new PropertiesWriter(file));
+    }
+
+    /**
+     * Constructs a new ApiQuotaManager writing the counters on the given executor.
+     */
+    ApiQuotaManager(File file, int requestsPerSecond, int requestsPerDay, Executor writeExecutor) {
+        this(file, requestsPerSecond, requestsPerDay, new PropertiesWriter(file, writeExecutor));
+    }
+
+    private ApiQuotaManager(File file, int requestsPerSecond, int requestsPerDay, PropertiesWriter writer) {
+        this.file = file;
+        this.writer = writer;
+        this.requestsPerDay = requestsPerDay;
+        bucketCapacity = Math.max(1, requestsPerSecond / 2);
+        tokensPerMilli = Math.max(requestsPerSecond - bucketCapacity, requestsPerSecond / 2.0) / 1000.0;
+        tokens = bucketCapacity;
+        lastRefillTime = System.currentTimeMillis();
+        load();
+    }
+
+    /**
+     * Wait for a token to send a request of the given priority.
+     * <p>
+     * Returns false, without waiting, if the daily quota left is kept for more urgent requests
+     * or if the server asked to wait for a long time. Returns false as well if the request is
+     * cancelled or the thread interrupted while waiting.
+     */
+    public synchronized boolean acquire(PrioritizedExecutor.Priority priority, CancellationToken cancellation) {
+        waitingRequests[priority.ordinal()]++;
+        try {
+            while (true) {
+                if (cancellation != null && cancellation.isCancelled()) {
+                    return false;
+                }
+                long now = System.currentTimeMillis();
+                rollOverDay(now);
+                if (getRemainingToday() <= reserveFor(priority)) {
+                    Log.d(LOG_TAG, "Daily quota too low for a " + priority + " request.");
+                    return false;
+                }
+
+                long waitMillis;
+                if (now < pausedUntil) {
+                    // The server asked to wait
+                    waitMillis = pausedUntil - now;
+                    if (waitMillis > MAX_PAUSE_WAIT_MILLIS) {
+                        return false;
+                    }
+                } else if (isMoreUrgentRequestWaiting(priority)) {
+                    // Let the more urgent requests take the next tokens
+                    waitMillis = MAX_WAIT_MILLIS;
+                } else {
+                    refill(now);
+                    if (tokens >= 1) {
+                        tokens--;
+                        usedToday++;
+                        save();
+                        return true;
+                    }
+                    waitMillis = (long) Math.ceil((1 - tokens) / tokensPerMilli);
+                }
+                wait(Math.max(1, Math.min(waitMillis, MAX_WAIT_MILLIS)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waitingRequests[priority.ordinal()]--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Update the counters with a response of the server: its remaining daily quota, if it sent one,
+     * and the pause it asked for if it answered "429 Too Many Requests".
+     */
+    public synchronized void onResponse(EducationNewsResponse response) {
+        rollOverDay(System.currentTimeMillis());
+        int previousUsedToday = usedToday;
+        long previousPausedUntil = pausedUntil;
+        int remaining = response.getRemainingDailyQuota();
+        if (remaining != EducationNewsResponse.UNKNOWN) {
+            // The server knows about the requests of the previous processes and of the other devices
+            usedToday = Math.max(usedToday, requestsPerDay - remaining);
+        }
+        if (response.getStatusCode() == 429) {
+            long retryAfter = response.getRetryAfterMillis();
+            pausedUntil = Math.max(pausedUntil, System.currentTimeMillis()
+                    + (retryAfter >= 0 ? retryAfter : DEFAULT_PAUSE_MILLIS));
+        }
+        // Most responses agree with the counters, and acquire() saved them already
+        if (usedToday != previousUsedToday || pausedUntil != previousPausedUntil) {
+            save();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of requests that can still be sent today.
+     */
+    public synchronized int getRemainingToday() {
+        rollOverDay(System.currentTimeMillis());
+        return Math.max(0, requestsPerDay - usedToday);
+    }
+
+    /**
+     * Returns true if the daily quota runs low, so several queries should be merged into one request.
+     */
+    public synchronized boolean isConserving() {
+        return getRemainingToday() < requestsPerDay * CONSERVE_THRESHOLD;
+    }
+
+    /**
+     * Returns the number of requests of the daily quota kept for requests more urgent than the given one.
+     */
+    private double reserveFor(PrioritizedExecutor.Priority priority) {
+        switch (priority) {
+            case SYNC:
+                return requestsPerDay * SYNC_RESERVE;
+            case PREFETCH:
+                return requestsPerDay * PREFETCH_RESERVE;
+            default:
+                return 0;
+        }
+    }
+
+    private boolean isMoreUrgentRequestWaiting(PrioritizedExecutor.Priority priority) {
+        for (int i = 0; i < priority.ordinal(); i++) {
+            if (waitingRequests[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add the tokens earned since the last refill, up to the capacity of the bucket.
+     */
+    private void refill(long now) {
+        long elapsed = Math.max(0, now - lastRefillTime);
+        tokens = Math.min(bucketCapacity, tokens + elapsed * tokensPerMilli);
+        lastRefillTime = now;
+    }
+
+    /**
+     * Start counting again when a new day starts.
+     */
+    private void rollOverDay(long now) {
+        long today = now / DAY_MILLIS;
+        if (today != day) {
+            day = today;
+            usedToday = 0;
+        }
+    }
+
+    /**
+     * Read the counters saved by a previous process, if any.
+     */
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        Properties counters = new Properties();
+        InputStream input = null;
+        try {
+            input = new FileInputStream(file);
+            counters.load(input);
+            day = Long.parseLong(counters.getProperty(KEY_DAY, "0"));
+            usedToday = Integer.parseInt(counters.getProperty(KEY_USED_TODAY, "0"));
+            pausedUntil = Long.parseLong(counters.getProperty(KEY_PAUSED_UNTIL, "0"));
+        } catch (IOException | NumberFormatException e) {
+            Log.w(LOG_TAG, "Problem reading the API quota counters.", e);
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Save the counters, so the next process starts from them. Only a copy of them is made here,
+     * the file is written on a background thread, outside of the lock the requests wait on.
+     */
+    private void save() {
+        Properties counters = new Properties();
+        counters.setProperty(KEY_DAY, String.valueOf(day));
+        counters.setProperty(KEY_USED_TODAY, String.valueOf(usedToday));
+        counters.setProperty(KEY_PAUSED_UNTIL, String.valueOf(pausedUntil));
+
+        writer.save(counters);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing else to do, the counters were read
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+/**
+ * Reader displaying the text of a news inside the application, instead of opening it in a
+ * web browser. The text was usually prefetched by the ArticlePrefetcher while the news was
+ * on the screen, so it is displayed without waiting for the network.
+ * The web page of the news can still be opened in a browser from the menu.
+ */
+public class ArticleActivity extends AppCompatActivity {
+
+    // Constant value for the log messages
+    private static final String LOG_TAG = ArticleActivity.class.getSimpleName();
+
+    // Keys of the extras of the intent starting the reader
+    private static final String EXTRA_TITLE = "title";
+    private static final String EXTRA_SECTION = "section";
+    private static final String EXTRA_DATE = "date";
+    private static final String EXTRA_URL = "url";
+    private static final String EXTRA_CLICK_TIME = "click_time";
+
+    // Web URL of the news
+    private String url;
+    // System.nanoTime() when the news was clicked, or 0 once the text is displayed
+    private long clickTime;
+    // Views displaying the text of the news, the progress while it loads, or the error
+    private TextView bodyTextView;
+    private ProgressBar progressBar;
+    private TextView emptyStateTextView;
+
+    /**
+     * Returns the intent opening the given news in the reader.
+     */
+    public static Intent newIntent(Context context, EducationNews educationNews) {
+        Intent intent = new Intent(context, ArticleActivity.class);
+        intent.putExtra(EXTRA_TITLE, educationNews.getTitle());
+        intent.putExtra(EXTRA_SECTION, educationNews.getNewsSection());
+        intent.putExtra(EXTRA_DATE, educationNews.getNewsDate());
+        intent.putExtra(EXTRA_URL, educationNews.getUrl());
+        intent.putExtra(EXTRA_CLICK_TIME, System.nanoTime());
+        return intent;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.article_activity);
+
+        Intent intent = getIntent();
+        url = intent.getStringExtra(EXTRA_URL);
+        // Only the first opening is measured, not a rotation
+        clickTime = savedInstanceState == null ? intent.getLongExtra(EXTRA_CLICK_TIME, 0) : 0;
+
+        TextView titleTextView = (TextView) findViewById(R.id.article_title);
+        titleTextView.setText(intent.getStringExtra(EXTRA_TITLE));
+        TextView sectionTextView = (TextView) findViewById(R.id.article_section);
+        sectionTextView.setText(intent.getStringExtra(EXTRA_SECTION));
+        TextView dateTextView = (TextView) findViewById(R.id.article_date);
+        dateTextView.setText(new NewsDateFormatter().format(
+                intent.getLongExtra(EXTRA_DATE, NewsDateFormatter.UNKNOWN_DATE)));
+
+        bodyTextView = (TextView) findViewById(R.id.article_body);
+        progressBar = (ProgressBar) findViewById(R.id.article_progress_bar);
+        emptyStateTextView = (TextView) findViewById(R.id.article_empty_text_view);
+
+        // When the text is not available, the web page can be opened by tapping the message
+        emptyStateTextView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                openInBrowser();
+            }
+        });
+
+        // Load the text from the cache, or from the network if it was not prefetched
+        ArticlePrefetcher.getInstance(this).load(url, new ArticlePrefetcher.OnArticleLoadedListener() {
+            @Override
+            public void onArticleLoaded(String bodyText) {
+                showArticle(bodyText);
+            }
+        });
+    }
+
+    /**
+     * Display the text of the news, or the error message if it could not be loaded.
+     */
+    private void showArticle(String bodyText) {
+        if (isFinishing()) {
+            return;
+        }
+        progressBar.setVisibility(View.GONE);
+        if (bodyText == null) {
+            emptyStateTextView.setVisibility(View.VISIBLE);
+            return;
+        }
+        bodyTextView.setText(bodyText);
+        bodyTextView.setVisibility(View.VISIBLE);
+
+        // Record the time from the click on the news to its text being displayed
+        if (clickTime != 0) {
+            NewsMetrics.READER_OPEN.recordSince(clickTime);
+            Log.d(LOG_TAG, "Article displayed after " + (System.nanoTime() - clickTime) / 1000000 + " ms.");
+            clickTime = 0;
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.article, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_open_in_browser) {
+            openInBrowser();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * Open the web page of the news in a web browser.
+     */
+    private void openInBrowser() {
+        // Convert the String URL into a URI object (to pass into the Intent constructor)
+        Uri educationNewsUri = Uri.parse(url);
+
+        // Create a new intent to view the Education News URI and send it to launch a new activity
+        startActivity(new Intent(Intent.ACTION_VIEW, educationNewsUri));
+    }
+}
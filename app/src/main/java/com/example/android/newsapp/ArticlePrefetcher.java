@@ -0,0 +1,226 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fetches the texts of the articles for the reader, and keeps them in the EducationNewsCache.
+ * <p>
+ * The articles of the first news on the screen are prefetched in the background, so opening
+ * one of them in the reader does not wait for the network. How many are prefetched depends on
+ * the connection and the battery: more on Wi-Fi, a few on a metered network, and none while
+ * roaming, with Data Saver or battery saver on, or when the battery is low. The prefetches of
+ * the news the user scrolled away from are cancelled.
+ * <p>
+ * The methods are called on the main thread, and the listeners are called on the main thread.
+ */
+public class ArticlePrefetcher {
+
+    // Constant value for the log messages
+    private static final String LOG_TAG = ArticlePrefetcher.class.getSimpleName();
+
+    // Number of articles prefetched on an unmetered network and on a metered one
+    static final int UNMETERED_BUDGET = 10;
+    static final int METERED_BUDGET = 3;
+
+    // Under this battery level, in percent, nothing is prefetched unless the device is charging,
+    // and under the second one the budget is halved
+    private static final int CRITICAL_BATTERY_LEVEL = 15;
+    private static final int LOW_BATTERY_LEVEL = 30;
+
+    // Maximum number of articles fetched at the same time
+    private static final int MAX_PARALLEL_REQUESTS = 2;
+
+    /**
+     * Receives the text of an article.
+     */
+    public interface OnArticleLoadedListener {
+
+        /**
+         * Called on the main thread with the text of the article, or null if it could not be loaded.
+         */
+        void onArticleLoaded(String bodyText);
+    }
+
+    // The single prefetcher shared by the whole application
+    private static ArticlePrefetcher sInstance;
+
+    // Threads fetching the articles, the ones opened in the reader first
+    private final PrioritizedExecutor executor = new PrioritizedExecutor("ArticlePrefetcher", MAX_PARALLEL_REQUESTS);
+
+    // Handler used to call the listeners on the main thread
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Context context;
+    private final EducationNewsCache cache;
+    private final ApiQuotaManager quota;
+
+    // Web URLs of the articles being prefetched, and the tokens cancelling them,
+    // only used on the main thread
+    private final Map<String, CancellationToken> pendingPrefetches = new HashMap<>();
+
+    private ArticlePrefetcher(Context context) {
+        this.context = context;
+        this.cache = EducationNewsCache.getInstance(context);
+        this.quota = ApiQuotaManager.getInstance(context);
+    }
+
+    /**
+     * Returns the prefetcher of the application, creating it the first time it is needed.
+     */
+    public static synchronized ArticlePrefetcher getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticlePrefetcher(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Prefetch the articles of the first news of the given list, as many as the budget allows,
+     * and cancel the prefetches of the other news.
+     *
+     * @param news are the news on the screen, in the order they are displayed
+     */
+    public void prefetch(List<EducationNews> news) {
+        int budget = getBudget(context);
+        Set<String> urls = new HashSet<>();
+        for (int i = 0; i < news.size() && i < budget; i++) {
+            urls.add(news.get(i).getUrl());
+        }
+
+        // Cancel the prefetches of the news that are not on the screen anymore
+        Iterator<Map.Entry<String, CancellationToken>> iterator = pendingPrefetches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CancellationToken> pendingPrefetch = iterator.next();
+            if (!urls.contains(pendingPrefetch.getKey())) {
+                pendingPrefetch.getValue().cancel();
+                iterator.remove();
+            }
+        }
+
+        for (final String url : urls) {
+            if (pendingPrefetches.containsKey(url)) {
+                continue;
+            }
+            final CancellationToken cancellation = new CancellationToken();
+            pendingPrefetches.put(url, cancellation);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancellation.isCancelled() && !cache.hasArticle(url)) {
+                        fetch(url, PrioritizedExecutor.Priority.PREFETCH, cancellation);
+                    }
+                    onPrefetched(url, cancellation);
+                }
+            }, PrioritizedExecutor.Priority.PREFETCH);
+        }
+    }
+
+    /**
+     * Load the article of the news with the given web URL, from the cache if it was prefetched,
+     * or else from the network ahead of the prefetched ones.
+     */
+    public void load(final String url, final OnArticleLoadedListener listener) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String bodyText = cache.getArticle(url);
+                if (bodyText == null) {
+                    bodyText = fetch(url, PrioritizedExecutor.Priority.VISIBLE, null);
+                }
+                final String loadedBodyText = bodyText;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onArticleLoaded(loadedBodyText);
+                    }
+                });
+            }
+        }, PrioritizedExecutor.Priority.VISIBLE);
+    }
+
+    /**
+     * Fetch the article and store it in the cache. Returns its text, or null if it could not
+     * be fetched. This is on a background thread.
+     */
+    private String fetch(String url, PrioritizedExecutor.Priority priority, CancellationToken cancellation) {
+        String articleUrl = EducationNewsQuery.buildArticleUrl(url);
+        if (articleUrl == null || !quota.acquire(priority, cancellation)) {
+            return null;
+        }
+        String bodyText = Utils.fetchArticleBodyText(articleUrl, cancellation);
+        if (bodyText != null && !bodyText.isEmpty()) {
+            cache.putArticle(url, bodyText);
+            return bodyText;
+        }
+        return null;
+    }
+
+    private void onPrefetched(final String url, final CancellationToken cancellation) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (pendingPrefetches.get(url) == cancellation) {
+                    pendingPrefetches.remove(url);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the number of articles to prefetch, given the connection and the battery.
+     */
+    static int getBudget(Context context) {
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null || !networkInfo.isConnected() || networkInfo.isRoaming()) {
+            return 0;
+        }
+        // Data Saver asks the apps not to use the metered network in the background
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && connectivityManager.isActiveNetworkMetered()
+                && connectivityManager.getRestrictBackgroundStatus()
+                == ConnectivityManager.RESTRICT_BACKGROUND_STATUS_ENABLED) {
+            return 0;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                && ((PowerManager) context.getSystemService(Context.POWER_SERVICE)).isPowerSaveMode()) {
+            return 0;
+        }
+        int budget = connectivityManager.isActiveNetworkMetered() ? METERED_BUDGET : UNMETERED_BUDGET;
+
+        // The battery status is a sticky broadcast, registering without a receiver only reads it
+        Intent batteryStatus = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (batteryStatus != null && batteryStatus.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) == 0) {
+            int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level >= 0 && scale > 0) {
+                int percent = level * 100 / scale;
+                if (percent < CRITICAL_BATTERY_LEVEL) {
+                    return 0;
+                }
+                if (percent < LOW_BATTERY_LEVEL) {
+                    budget /= 2;
+                }
+            }
+        }
+        Log.d(LOG_TAG, "Prefetching up to " + budget + " articles.");
+        return budget;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.android.newsapp;
+
+/**
+ * Stops sending requests to an endpoint that keeps failing, so a struggling or rate limiting
+ * server is not hammered, and the news are served from the cache right away instead.
+ * <p>
+ * The circuit opens after a number of consecutive failures, and requests are refused while it
+ * is open. Once the cool down is over, a single trial request is let through (half open): the
+ * circuit closes if it succeeds and opens again, for twice as long, if it fails.
+ * This can be called from any thread.
+ */
+public class CircuitBreaker {
+
+    // Number of consecutive failures that open the circuit
+    private final int failureThreshold;
+
+    // Time the circuit stays open the first time, and at most, in milliseconds
+    private final long initialOpenMillis;
+    private final long maxOpenMillis;
+
+    // Consecutive failures since the last success
+    private int consecutiveFailures;
+
+    // Time until which the requests are refused, in epoch milliseconds, 0 when closed
+    private long openUntil;
+
+    // Time the circuit stays open the next time it opens
+    private long nextOpenMillis;
+
+    // True while the trial request of the half open circuit is running
+    private boolean trialRunning;
+
+    /**
+     * Constructs a new, closed, CircuitBreaker.
+     *
+     * @param failureThreshold  is the number of consecutive failures that open the circuit
+     * @param initialOpenMillis is the time the circuit stays open the first time
+     * @param maxOpenMillis     is the longest time the circuit stays open
+     */
+    public CircuitBreaker(int failureThreshold, long initialOpenMillis, long maxOpenMillis) {
+        this.failureThreshold = failureThreshold;
+        this.initialOpenMillis = initialOpenMillis;
+        this.maxOpenMillis = maxOpenMillis;
+        this.nextOpenMillis = initialOpenMillis;
+    }
+
+    /**
+     * Returns true if a request can be sent now. When the circuit is half open, only the first
+     * caller gets true, and it must report the outcome of its request.
+     */
+    public synchronized boolean allowRequest() {
+        if (openUntil == 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() < openUntil || trialRunning) {
+            return false;
+        }
+        trialRunning = true;
+        return true;
+    }
+
+    /**
+     * Returns true if the requests are refused at the moment.
+     */
+    public synchronized boolean isOpen() {
+        return openUntil != 0 && (System.currentTimeMillis() < openUntil || trialRunning);
+    }
+
+    /**
+     * Report that a request succeeded, which closes the circuit.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        openUntil = 0;
+        trialRunning = false;
+        nextOpenMillis = initialOpenMillis;
+    }
+
+    /**
+     * Report that a request failed.
+     *
+     * @param retryAfterMillis is the delay the server asked to wait, or a negative value
+     */
+    public synchronized void onFailure(long retryAfterMillis) {
+        consecutiveFailures++;
+        if (!trialRunning && consecutiveFailures < failureThreshold) {
+            return;
+        }
+        // Open the circuit, at least as long as the server asked
+        long openMillis = Math.max(nextOpenMillis, retryAfterMillis);
+        openUntil = System.currentTimeMillis() + openMillis;
+        nextOpenMillis = Math.min(nextOpenMillis * 2, maxOpenMillis);
+        trialRunning = false;
+    }
+
+    /**
+     * Report that a request allowed by allowRequest() was not sent after all, for example
+     * because it was cancelled, so another trial request can be sent.
+     */
+    public synchronized void onSkipped() {
+        trialRunning = false;
+    }
+}
@@ -4,140 +4,228 @@ import android.app.LoaderManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.Loader;
-import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.net.Uri;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
+import android.support.v4.view.MenuItemCompat;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
+import android.view.ViewTreeObserver;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EducationNewsActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<EducationNews>> {
 
     // Constant value for the log messages
     private static final String LOG_TAG = EducationNewsActivity.class.getName();
 
-    // The Guardian Base URL
-    private static final String GUARDIAN_REQUEST_URL = "http://content.guardianapis.com/search?&=";
-
     // Constant value for the news loader ID. We can choose any integer.
     private static final int NEWS_LOADER_ID = 1;
 
-    // Constant for the API search Key
-    private static final String API_KEY = "api-key";
+    // The next page is loaded when the user scrolls this close to the end of the list
+    private static final int PREFETCH_DISTANCE = 5;
+
+    // Key of the loader argument with the text of a search sent to The Guardian API
+    private static final String ARG_SEARCH_QUERY = "search_query";
+
+    // Keys of the saved instance state with the texts of the local and remote searches
+    private static final String STATE_LOCAL_SEARCH_QUERY = "local_search_query";
+    private static final String STATE_REMOTE_SEARCH_QUERY = "remote_search_query";
+
+    // Maximum number of news displayed for a search in the local index
+    private static final int MAX_SEARCH_RESULTS = 100;
+
+    // Single background thread searching the local index, so typing never waits for a search
+    private static final Executor SEARCH_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // Name of the file with the rows displayed by the previous session, in the cache directory
+    private static final String SNAPSHOT_FILE_NAME = "news_snapshot";
 
-    // Constant value for the API Key
-    private static final String KEY = "59d0bf63-14c5-4f77-b80d-cbd12411469f";
     // ProgressBar that is displayed when the application is searching for news
     public ProgressBar progressBar;
     // Adapter for the Education News
     private EducationNewsAdapter newsAdapter;
+    // Layout manager of the RecyclerView, telling which news are on the screen
+    private LinearLayoutManager layoutManager;
+    // Records the frame times while the list scrolls
+    private final FrameTimeMonitor frameTimeMonitor = new FrameTimeMonitor();
     // TextView that is displayed for the empty state view
     private TextView emptyStateTextView;
+    // TextView that is displayed when the news could not be refreshed and saved ones are shown
+    private TextView staleTextView;
+    // Last list of news delivered by the loader
+    private List<EducationNews> loadedNews;
+    // Text of the search in the local index, or null when the loaded news are displayed
+    private String localSearchQuery;
+    // Text of the search sent to The Guardian API, or null when the loader loads the sections
+    private String remoteSearchQuery;
+    // Incremented for every search in the local index, so the results of the outdated ones,
+    // and of the queries typed in the meantime, are dropped
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    // Last list of news of the selected sections delivered by the loader, and the last one saved
+    // as a snapshot for the next cold start
+    private List<EducationNews> sectionNews;
+    private List<EducationNews> savedSectionNews;
+    // System.nanoTime() when the activity was created
+    private long createTime;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        createTime = System.nanoTime();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_education_news);
 
-        // Find a reference to the ListView in the layout
-        ListView newsListView = (ListView) findViewById(R.id.list_view);
+        // After a rotation, the search the user was doing goes on
+        if (savedInstanceState != null) {
+            localSearchQuery = savedInstanceState.getString(STATE_LOCAL_SEARCH_QUERY);
+            remoteSearchQuery = savedInstanceState.getString(STATE_REMOTE_SEARCH_QUERY);
+        }
+
+        // Find a reference to the RecyclerView in the layout
+        RecyclerView newsListView = (RecyclerView) findViewById(R.id.list_view);
+        layoutManager = new LinearLayoutManager(this);
+        newsListView.setLayoutManager(layoutManager);
 
-        // Set empty state TextView on the ListView with news when no data can be found
+        // Find a reference to the empty state TextView, shown when no data can be found
         emptyStateTextView = (TextView) findViewById(R.id.empty_text_view);
-        newsListView.setEmptyView(emptyStateTextView);
 
-        // Create a new adapter that takes an empty list of news as input
-        newsAdapter = new EducationNewsAdapter(this, new ArrayList<EducationNews>());
+        // Find a reference to the banner shown when the news could not be refreshed
+        staleTextView = (TextView) findViewById(R.id.stale_text_view);
 
-        // Set the adapter on the ListView
+        // Create a new adapter that starts with an empty list of news. When a news is clicked,
+        // it is opened in the reader, which displays its text without leaving the application.
+        newsAdapter = new EducationNewsAdapter(this, new EducationNewsAdapter.OnNewsClickListener() {
+            @Override
+            public void onNewsClick(EducationNews currentEducationNews) {
+                startActivity(ArticleActivity.newIntent(EducationNewsActivity.this, currentEducationNews));
+            }
+        });
+
+        // Show the empty state TextView only when the adapter has no news
+        newsAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                updateEmptyState();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                updateEmptyState();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                updateEmptyState();
+            }
+        });
+
+        // Set the adapter on the RecyclerView
         // so the list can be populated in the user interface
         newsListView.setAdapter(newsAdapter);
 
         // Find a reference to the progress bar
         progressBar = (ProgressBar) findViewById(R.id.progress_bar);
 
-        // Set an item click listener on the ListView, which sends an intent to a web browser
-        // to open a website with more information about the selected news.
-        newsListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-
-                // Find the current Education News that was clicked on
-                EducationNews currentEducationNews = newsAdapter.getItem(position);
+        // On a cold start, draw the rows displayed by the previous session right away, before
+        // the loader even starts. After a rotation the loader still has its news instead.
+        if (getLoaderManager().getLoader(NEWS_LOADER_ID) == null) {
+            showSnapshot();
+        }
+        measureFirstFrame(newsListView);
 
-                // Convert the String URL into a URI object (to pass into the Intent constructor)
-                Uri educationNewsUri = Uri.parse(currentEducationNews.getUrl());
+        // If there is a network connection, the loader fetches the data.
+        // Otherwise it can still show the news saved in the offline cache.
+        if (isNetworkConnected()) {
+            Log.d(LOG_TAG, "There is an internet connection.");
+        } else {
+            Log.i(LOG_TAG, "There is no internet connection.");
+        }
 
-                // Create a new intent to view the Education News URI
-                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, educationNewsUri);
-                websiteIntent.setData(educationNewsUri);
+        // Load the next page in the background when the user scrolls near the end of the list,
+        // and the page the loader dropped before its window when the user scrolls back near the top
+        newsListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int totalItemCount = newsAdapter.getItemCount();
+                Loader<List<EducationNews>> loader = getLoaderManager().getLoader(NEWS_LOADER_ID);
+                if (totalItemCount == 0 || loader == null) {
+                    return;
+                }
+                if (dy >= 0
+                        && layoutManager.findLastVisibleItemPosition() >= totalItemCount - 1 - PREFETCH_DISTANCE) {
+                    ((EducationNewsLoader) loader).loadNextPage();
+                } else if (dy < 0 && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+                    ((EducationNewsLoader) loader).loadPreviousPage();
+                }
+            }
 
-                // Send the intent to launch a new activity
-                startActivity(websiteIntent);
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                // Prefetch the articles of the news the user stopped on
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    frameTimeMonitor.stop();
+                    prefetchArticles();
+                } else {
+                    frameTimeMonitor.start();
+                }
             }
         });
 
-        // Get a reference to the ConnectivityManager to check state of network connectivity
-        ConnectivityManager connectivityManager = (ConnectivityManager)
-                getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        // Get details on the currently active default data network
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        // Keep the selected sections synced in the background, so the next launch can show
+        // them from the local cache without waiting for the network
+        EducationNewsSyncService.schedule(this);
 
-        // If there is a network connection, fetch data
-        if (networkInfo != null && networkInfo.isConnected()) {
-            Log.e(LOG_TAG, "There is an internet connection.");
-            // Get a reference to the LoaderManager, in order to interact with loaders.
-            LoaderManager loaderManager = getLoaderManager();
+        // Get a reference to the LoaderManager, in order to interact with loaders.
+        LoaderManager loaderManager = getLoaderManager();
 
-            // Initialize the loader. Pass in the int ID constant defined above and pass in null for
-            // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
-            // because this activity implements the LoaderCallbacks interface).
-            loaderManager.initLoader(NEWS_LOADER_ID, null, this);
-        } else {
-            Log.e(LOG_TAG, "There is no internet connection.");
-            // Otherwise, display error
-            // First, hide loading indicator so error message will be visible
-            View progressBar = findViewById(R.id.progress_bar);
-            progressBar.setVisibility(View.GONE);
+        // Initialize the loader. Pass in the int ID constant defined above and the remote search,
+        // if any, for the bundle. Pass in this activity for the LoaderCallbacks parameter (which
+        // is valid because this activity implements the LoaderCallbacks interface).
+        loaderManager.initLoader(NEWS_LOADER_ID, buildLoaderArgs(), this);
+    }
 
-            // Update empty state with no connection error message
-            emptyStateTextView.setText(R.string.no_internet_connection);
-            // Show the empty state with no connection error message
-            emptyStateTextView.setVisibility(View.VISIBLE);
-        }
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_LOCAL_SEARCH_QUERY, localSearchQuery);
+        outState.putString(STATE_REMOTE_SEARCH_QUERY, remoteSearchQuery);
     }
 
     @Override
     public Loader<List<EducationNews>> onCreateLoader(int i, Bundle bundle) {
 
-        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
-        String searchSection = sharedPreferences.getString(
-                getString(R.string.settings_search_by_news_key),
-                getString(R.string.settings_news_label));
-
-        // Create an URI and an URI Builder
-        Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        // Append the search parameters to the request URL
-        uriBuilder.appendQueryParameter("q", searchSection);
-        uriBuilder.appendQueryParameter(API_KEY, KEY);
+        // Create a NewsLoader with one request URL for every selected section, or for the
+        // search sent to The Guardian API. The loader adds the page number itself.
+        String searchQuery = bundle != null ? bundle.getString(ARG_SEARCH_QUERY) : null;
+        return new EducationNewsLoader(this, buildQueryUrls(searchQuery), EducationNewsQuery.PAGE_SIZE);
+    }
 
-        // Create a NewsLoader with the request URL
-        return new EducationNewsLoader(this, uriBuilder.toString());
+    /**
+     * Returns the request URLs of the search sent to The Guardian API if there is one,
+     * or else of the selected sections.
+     */
+    private List<String> buildQueryUrls(String searchQuery) {
+        if (searchQuery != null) {
+            // Search with The Guardian API if the local index had nothing for the query
+            return Collections.singletonList(EducationNewsQuery.buildSearchUrl(searchQuery));
+        }
+        return EducationNewsQuery.buildSectionUrls(this);
     }
 
     @Override
@@ -146,34 +234,294 @@ public class EducationNewsActivity extends AppCompatActivity implements LoaderMa
         View progressBar = findViewById(R.id.progress_bar);
         progressBar.setVisibility(View.GONE);
 
-        // Clear the adapter of previous news data
-        newsAdapter.clear();
+        // Tell the user when the news are the saved ones, because they could not be refreshed
+        updateStaleIndicator(((EducationNewsLoader) loader).getStaleSince());
+
+        // While the user searches the local index, the search results stay displayed.
+        // The index already contains the news that were just loaded.
+        // The snapshot shows the top of the sections, never a window scrolled past the first page.
+        loadedNews = educationNews;
+        if (remoteSearchQuery != null) {
+            sectionNews = null;
+        } else if (((EducationNewsLoader) loader).getFirstPage() == 1) {
+            sectionNews = educationNews;
+        }
+        if (localSearchQuery != null) {
+            searchLocalIndex(localSearchQuery, false);
+            return;
+        }
 
-        // If there is a valid list of news about Education, then add them to the adapter's data set.
-        // This will trigger the ListView to update.
-        if (educationNews != null && !educationNews.isEmpty()) {
-            newsAdapter.addAll(educationNews);
+        // Give the new list of news to the adapter. Only the rows that changed are updated,
+        // so appending a page or refreshing the same news keeps the scroll position.
+        // The articles are prefetched once the adapter holds the new news, after the differences.
+        newsAdapter.setNews(educationNews, new Runnable() {
+            @Override
+            public void run() {
+                prefetchArticles();
+            }
+        });
 
-            // If no news can be found
-            if (educationNews.isEmpty()) {
-                // Set empty state text view to display "No news found."
+        if (educationNews == null || educationNews.isEmpty()) {
+            if (isNetworkConnected()) {
+                // If no news can be found, set empty state text view to display "No news found."
                 emptyStateTextView.setText(R.string.no_news);
+            } else {
+                // If there are no cached news and no connection, display the no connection error message
+                emptyStateTextView.setText(R.string.no_internet_connection);
             }
         }
     }
 
+    /**
+     * Prefetch the articles of the news on the screen, from the first visible one, so they
+     * open in the reader without waiting for the network.
+     */
+    private void prefetchArticles() {
+        // Before the first layout, the news at the top of the list are the ones about to be visible
+        int first = Math.max(layoutManager.findFirstVisibleItemPosition(), 0);
+        int end = Math.min(newsAdapter.getItemCount(), first + ArticlePrefetcher.UNMETERED_BUDGET);
+        List<EducationNews> visibleNews = new ArrayList<>(end - first);
+        for (int position = first; position < end; position++) {
+            visibleNews.add(newsAdapter.getItem(position));
+        }
+        ArticlePrefetcher.getInstance(this).prefetch(visibleNews);
+    }
+
+    /**
+     * Display the rows saved by the previous session for the selected sections, if any.
+     * The loader replaces them with the live news, only updating the rows that changed.
+     */
+    private void showSnapshot() {
+        // The snapshot is only a screen of rows, small enough to be read on the main thread
+        NewsSnapshot snapshot = NewsSnapshot.read(getSnapshotFile(), buildSnapshotKey());
+        if (snapshot == null || snapshot.getNews().isEmpty()) {
+            return;
+        }
+        newsAdapter.setSnapshot(snapshot);
+        progressBar.setVisibility(View.GONE);
+    }
+
+    /**
+     * Save the first rows of the news of the selected sections, so the next cold start can
+     * display them right away. The results of a search are not saved.
+     */
+    private void saveSnapshot() {
+        if (sectionNews == null || sectionNews.isEmpty() || sectionNews == savedSectionNews) {
+            return;
+        }
+        NewsSnapshot.save(getSnapshotFile(), buildSnapshotKey(), sectionNews);
+        savedSectionNews = sectionNews;
+    }
+
+    /**
+     * Returns the file of the snapshot of the rows.
+     */
+    private File getSnapshotFile() {
+        return new File(getCacheDir(), SNAPSHOT_FILE_NAME);
+    }
+
+    /**
+     * Returns the key of the snapshot, so a snapshot of other sections is never displayed.
+     */
+    private String buildSnapshotKey() {
+        return TextUtils.join("\n", buildQueryUrls(null));
+    }
+
+    /**
+     * Record the time from the creation of the activity to the first frame drawn with news,
+     * whether they come from the snapshot, the cache or the network.
+     */
+    private void measureFirstFrame(final RecyclerView newsListView) {
+        newsListView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if (newsListView.getChildCount() > 0) {
+                    newsListView.getViewTreeObserver().removeOnPreDrawListener(this);
+                    NewsMetrics.FIRST_FRAME.recordSince(createTime);
+                    Log.d(LOG_TAG, "First frame with news drawn after "
+                            + (System.nanoTime() - createTime) / 1000000 + " ms.");
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Show the banner with the age of the saved news when they could not be refreshed,
+     * or hide it if the news are up to date.
+     *
+     * @param staleSince is the time when the saved news were fetched, or 0 if they are up to date
+     */
+    private void updateStaleIndicator(long staleSince) {
+        if (staleSince == 0) {
+            staleTextView.setVisibility(View.GONE);
+            return;
+        }
+        CharSequence age = DateUtils.getRelativeTimeSpanString(staleSince,
+                System.currentTimeMillis(), DateUtils.MINUTE_IN_MILLIS);
+        staleTextView.setText(getString(R.string.stale_news, age));
+        staleTextView.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Show the empty state TextView only when there are no news to display.
+     */
+    private void updateEmptyState() {
+        emptyStateTextView.setVisibility(newsAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Returns true if there is a network connection that can be used to fetch the news.
+     */
+    private boolean isNetworkConnected() {
+        // Get a reference to the ConnectivityManager to check state of network connectivity
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        // Get details on the currently active default data network
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
     @Override
     public void onLoaderReset(Loader<List<EducationNews>> loader) {
         // Loader reset, so we can clear out our existing data from the adapter.
-        newsAdapter.clear();
+        newsAdapter.setNews(null);
+        updateStaleIndicator(0);
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+
+        // The metrics screen is only meant for debugging
+        menu.findItem(R.id.action_metrics).setVisible(BuildConfig.DEBUG);
+
+        // Search the news already fetched while the user types, without any request
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) MenuItemCompat.getActionView(searchItem);
+        searchView.setQueryHint(getString(R.string.search_hint));
+
+        // Show the search restored after a rotation. This is done before the listeners are set,
+        // so the search is not run again and a remote search is not replaced by a local one.
+        String restoredQuery = localSearchQuery != null ? localSearchQuery : remoteSearchQuery;
+        if (restoredQuery != null) {
+            MenuItemCompat.expandActionView(searchItem);
+            searchView.setQuery(restoredQuery, false);
+            searchView.clearFocus();
+        }
+
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextChange(String query) {
+                searchLocalIndex(query, false);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                // Fall back to The Guardian API only when the local index has nothing
+                searchLocalIndex(query, true);
+                return true;
+            }
+        });
+
+        // When the search is closed, display the news of the selected sections again
+        MenuItemCompat.setOnActionExpandListener(searchItem, new MenuItemCompat.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                searchGeneration.incrementAndGet();
+                localSearchQuery = null;
+                if (remoteSearchQuery != null) {
+                    remoteSearchQuery = null;
+                    getLoaderManager().restartLoader(NEWS_LOADER_ID, null, EducationNewsActivity.this);
+                } else {
+                    newsAdapter.setNews(loadedNews);
+                }
+                return true;
+            }
+        });
         return true;
     }
 
+    /**
+     * Display the news of the local index matching the query, or the loaded news if the
+     * query is empty. The index is searched on a background thread and the results are displayed
+     * unless another search started in the meantime.
+     *
+     * @param fallBackToRemote is true to search with The Guardian API if nothing is found
+     */
+    private void searchLocalIndex(final String query, final boolean fallBackToRemote) {
+        final int generation = searchGeneration.incrementAndGet();
+        if (query == null || query.trim().isEmpty()) {
+            localSearchQuery = null;
+            newsAdapter.setNews(loadedNews);
+            return;
+        }
+        localSearchQuery = query;
+        SEARCH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // The user typed more since this search was asked for
+                if (generation != searchGeneration.get()) {
+                    return;
+                }
+                final List<EducationNews> results =
+                        NewsSearchIndex.getInstance().search(query, MAX_SEARCH_RESULTS);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLocalSearchResults(generation, query, results, fallBackToRemote);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Display the results of a search in the local index, on the main thread.
+     */
+    private void onLocalSearchResults(int generation, String query, List<EducationNews> results,
+                                      boolean fallBackToRemote) {
+        if (generation != searchGeneration.get() || isFinishing()) {
+            return;
+        }
+        if (results.isEmpty()) {
+            emptyStateTextView.setText(R.string.no_news);
+        }
+        newsAdapter.setNews(results);
+        if (results.isEmpty() && fallBackToRemote) {
+            searchRemotely(query.trim());
+        }
+    }
+
+    /**
+     * Search the query with The Guardian API, because the local index has nothing for it.
+     */
+    private void searchRemotely(String query) {
+        localSearchQuery = null;
+        remoteSearchQuery = query;
+        progressBar.setVisibility(View.VISIBLE);
+        getLoaderManager().restartLoader(NEWS_LOADER_ID, buildLoaderArgs(), this);
+    }
+
+    /**
+     * Returns the arguments of the loader: the remote search, if any, or null to load the sections.
+     */
+    private Bundle buildLoaderArgs() {
+        if (remoteSearchQuery == null) {
+            return null;
+        }
+        Bundle args = new Bundle();
+        args.putString(ARG_SEARCH_QUERY, remoteSearchQuery);
+        return args;
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
@@ -186,6 +534,12 @@ public class EducationNewsActivity extends AppCompatActivity implements LoaderMa
 
 
         }
+
+        // Open the Metrics page with the latency histograms
+        if (id == R.id.action_metrics) {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
@@ -196,9 +550,25 @@ public class EducationNewsActivity extends AppCompatActivity implements LoaderMa
         // Get a reference to the LoaderManager, in order to interact with loaders.
         LoaderManager loaderManager = getLoaderManager();
 
-        // Restart the loader. Pass in the int ID constant defined above and pass in null for
-        // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
-        // because this activity implements the LoaderCallbacks interface).//
-        loaderManager.restartLoader(NEWS_LOADER_ID, null, this);
+        // Keep the current loader if it is still loading or has fresh news for the same query,
+        // for example right after onCreate or a rotation. It is only restarted when the
+        // selected sections changed or its news became stale.
+        Loader<List<EducationNews>> loader = loaderManager.getLoader(NEWS_LOADER_ID);
+        if (loader instanceof EducationNewsLoader
+                && ((EducationNewsLoader) loader).isUpToDate(buildQueryUrls(remoteSearchQuery))) {
+            return;
+        }
+
+        // Restart the loader. Pass in the int ID constant defined above and the remote search,
+        // if any, for the bundle. Pass in this activity for the LoaderCallbacks parameter (which
+        // is valid because this activity implements the LoaderCallbacks interface).
+        loaderManager.restartLoader(NEWS_LOADER_ID, buildLoaderArgs(), this);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        frameTimeMonitor.stop();
+        saveSnapshot();
     }
 }
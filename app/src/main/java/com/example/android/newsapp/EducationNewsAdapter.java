@@ -1,71 +1,306 @@
 package com.example.android.newsapp;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
-public class EducationNewsAdapter extends ArrayAdapter<EducationNews> {
+public class EducationNewsAdapter extends RecyclerView.Adapter<EducationNewsAdapter.NewsViewHolder> {
+
+    /**
+     * Interface used to notify the activity when a news is clicked.
+     */
+    public interface OnNewsClickListener {
+        void onNewsClick(EducationNews educationNews);
+    }
+
+    // Single background thread that computes the differences between the old and the new lists,
+    // so the results are dispatched in the same order as the lists were set
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // Handler used to dispatch the computed differences on the main thread
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Inflater of the list item layouts
+    private final LayoutInflater inflater;
+
+    // Listener notified when a news is clicked
+    private final OnNewsClickListener clickListener;
+
+    // Formatter of the publication dates, only used on the main thread
+    private final NewsDateFormatter dateFormatter = new NewsDateFormatter();
+
+    // Number of rows below the bound one whose titles are laid out in the background
+    private static final int PREFETCH_ROWS = 8;
+
+    // Layouts of the titles, prepared in the background
+    private final TitleLayoutCache titleLayouts;
+
+    // Rows whose titles were asked for in the current list, they are asked for again
+    // when the bound row gets this close to the end of them
+    private int prefetchedUntil;
+
+    // Loader of the thumbnails, and size they are decoded to
+    private final ThumbnailLoader thumbnailLoader;
+    private final int thumbnailWidth;
+    private final int thumbnailHeight;
+
+    // News currently displayed. The list is never modified, a new one is set instead
+    private List<EducationNews> educationNews = Collections.emptyList();
+
+    // Snapshot of the rows displayed while the news are loaded, or null once they are replaced
+    private NewsSnapshot snapshot;
+
+    // Incremented every time a new list is set, so outdated differences are dropped
+    private int generation;
 
     /**
      * An EducationNewsAdapter knows how to create a list item layout for each news
      * in the data source (a list of educationNews objects).
      * <p>
-     * These list item layouts will be provided to an adapter view like ListView
-     * to be displayed to the user.
+     * These list item layouts will be provided to a RecyclerView to be displayed to the user.
      */
-    public EducationNewsAdapter(Context context, List<EducationNews> educationNews) {
-        super(context, 0, educationNews);
+    public EducationNewsAdapter(Context context, OnNewsClickListener clickListener) {
+        this.inflater = LayoutInflater.from(context);
+        this.clickListener = clickListener;
+        this.titleLayouts = TitleLayoutCache.getInstance(context);
+        this.thumbnailLoader = ThumbnailLoader.getInstance(context);
+        this.thumbnailWidth = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_width);
+        this.thumbnailHeight = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_height);
     }
 
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        // Check if there is an existing list item view (called convertView) that we can reuse,
-        // otherwise, if convertView is null, then inflate a new list item layout.
-        View listItemView = convertView;
-        if (listItemView == null) {
-            listItemView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.list_item, parent, false);
+    /**
+     * Display the rows saved by the previous session while the news are loaded.
+     * Their dates are already formatted. This is on the main thread.
+     */
+    public void setSnapshot(NewsSnapshot newSnapshot) {
+        ++generation;
+        snapshot = newSnapshot;
+        educationNews = newSnapshot.getNews();
+        prefetchedUntil = 0;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Replace the displayed news with the given list.
+     * <p>
+     * The differences with the current list are computed on a background thread, keyed by the
+     * URL of the news, and only the rows that were inserted, moved, changed or removed are
+     * updated. This is on the main thread.
+     */
+    public void setNews(List<EducationNews> newNews) {
+        setNews(newNews, null);
+    }
+
+    /**
+     * Replace the displayed news with the given list, like setNews(List), and run the given
+     * callback on the main thread once the adapter holds the new list. The callback is not run
+     * if another list is set before.
+     */
+    public void setNews(List<EducationNews> newNews, final Runnable onApplied) {
+        final List<EducationNews> oldList = educationNews;
+        final List<EducationNews> newList = newNews == null
+                ? Collections.<EducationNews>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(newNews));
+        final int diffGeneration = ++generation;
+
+        // Nothing to compare with, so there is no need to go to the background thread
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            snapshot = null;
+            educationNews = newList;
+            prefetchedUntil = 0;
+            notifyDataSetChanged();
+            if (onApplied != null) {
+                onApplied.run();
+            }
+            return;
         }
 
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(
+                        new NewsDiffCallback(oldList, newList));
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // A newer list was set in the meantime, its own differences will be dispatched
+                        if (diffGeneration != generation) {
+                            return;
+                        }
+                        snapshot = null;
+                        educationNews = newList;
+                        prefetchedUntil = 0;
+                        diffResult.dispatchUpdatesTo(EducationNewsAdapter.this);
+                        if (onApplied != null) {
+                            onApplied.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns the news at the given position.
+     */
+    public EducationNews getItem(int position) {
+        return educationNews.get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return educationNews.size();
+    }
+
+    @Override
+    public NewsViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        // Inflate a new list item layout, the RecyclerView reuses it for the next rows
+        View listItemView = inflater.inflate(R.layout.list_item, parent, false);
+        return new NewsViewHolder(listItemView);
+    }
+
+    @Override
+    public void onBindViewHolder(NewsViewHolder holder, int position) {
+        long startTime = System.nanoTime();
+
         // Find the news at the given position in the list of news
-        EducationNews currentNews = getItem(position);
+        EducationNews currentNews = educationNews.get(position);
+        holder.educationNews = currentNews;
+
+        // Display the title of the current news, with the layout prepared in the background
+        holder.titleView.setTitle(currentNews.getUrl(), currentNews.getTitle());
+        prefetchTitleLayouts(position);
+
+        // Display the news_section of the current news
+        holder.newsSectionView.setText(currentNews.getNewsSection());
+
+        // Display the date when the current news was published.
+        // The date was already parsed by the loader and the formatted days are cached.
+        // The rows of a snapshot have their dates formatted already.
+        if (snapshot != null) {
+            holder.dateView.setText(snapshot.getFormattedDate(position));
+        } else {
+            holder.dateView.setText(dateFormatter.format(currentNews.getNewsDate()));
+        }
+
+        // Display the thumbnail of the current news, loaded in the background.
+        // The thumbnail previously requested for this row, if any, is cancelled.
+        String thumbnailUrl = currentNews.getThumbnailUrl();
+        if (thumbnailUrl != null) {
+            holder.thumbnailView.setVisibility(View.VISIBLE);
+            thumbnailLoader.display(thumbnailUrl, holder.thumbnailView, thumbnailWidth, thumbnailHeight);
+        } else {
+            thumbnailLoader.clear(holder.thumbnailView);
+            holder.thumbnailView.setVisibility(View.GONE);
+        }
+        NewsMetrics.BIND.recordSince(startTime);
+    }
+
+    /**
+     * Lay out the titles of the rows below the given one in the background, before they are bound.
+     * The next rows are only asked for when the bound row gets close to the ones already asked for.
+     */
+    private void prefetchTitleLayouts(int position) {
+        if (position + PREFETCH_ROWS / 2 < prefetchedUntil) {
+            return;
+        }
+        titleLayouts.prefetch(educationNews, position + 1, PREFETCH_ROWS);
+        prefetchedUntil = position + 1 + PREFETCH_ROWS;
+    }
+
+    @Override
+    public void onViewRecycled(NewsViewHolder holder) {
+        // The row is not visible anymore, stop loading its thumbnail and let its bitmap be reused
+        thumbnailLoader.clear(holder.thumbnailView);
+    }
 
-        // Find the TextView with view ID title of the news
-        TextView titleView = (TextView) listItemView.findViewById(R.id.title);
+    /**
+     * Holds the views of a list item, so they are found only once when the layout is inflated.
+     */
+    class NewsViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
 
-        // Display the title of the current news in that TextView
-        titleView.setText(currentNews.getTitle());
+        // TitleLayoutView with view ID title of the news
+        final TitleLayoutView titleView;
 
-        // Find the TextView with view ID news_section of the news
-        TextView newsSectionView = (TextView) listItemView.findViewById(R.id.news_section);
+        // TextView with view ID news_section of the news
+        final TextView newsSectionView;
 
-        // Display the news_section of the current news in that TextView
-        newsSectionView.setText(currentNews.getNewsSection());
+        // TextView with view ID date of the news
+        final TextView dateView;
 
-        // Find the TextView with view ID date
-        TextView dateView = (TextView) listItemView.findViewById(R.id.date);
+        // ImageView with view ID thumbnail of the news
+        final ImageView thumbnailView;
 
-        // Display the date when the current news was published in that TextView
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
-        SimpleDateFormat dateFormat2 = new SimpleDateFormat("EEEE dd MMMM yyyy", Locale.US);
-        try {
-            Date date = dateFormat.parse(currentNews.getNewsDate());
+        // News currently bound to this row
+        EducationNews educationNews;
+
+        NewsViewHolder(View itemView) {
+            super(itemView);
+            titleView = (TitleLayoutView) itemView.findViewById(R.id.title);
+            newsSectionView = (TextView) itemView.findViewById(R.id.news_section);
+            dateView = (TextView) itemView.findViewById(R.id.date);
+            thumbnailView = (ImageView) itemView.findViewById(R.id.thumbnail);
+            itemView.setOnClickListener(this);
+        }
 
-            String parsedaDate = dateFormat2.format(date);
-            dateView.setText(parsedaDate);
-        } catch (ParseException e) {
+        @Override
+        public void onClick(View view) {
+            if (educationNews != null) {
+                clickListener.onNewsClick(educationNews);
+            }
         }
+    }
+
+    /**
+     * Compares two lists of news, keyed by the URL of the news.
+     */
+    private static class NewsDiffCallback extends DiffUtil.Callback {
+
+        private final List<EducationNews> oldList;
+        private final List<EducationNews> newList;
 
-        // Return the list item view
-        return listItemView;
+        NewsDiffCallback(List<EducationNews> oldList, List<EducationNews> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldList.get(oldItemPosition).hasSameUrl(newList.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            EducationNews oldNews = oldList.get(oldItemPosition);
+            EducationNews newNews = newList.get(newItemPosition);
+            return oldNews.getNewsDate() == newNews.getNewsDate()
+                    && oldNews.getTitle().equals(newNews.getTitle())
+                    && oldNews.getNewsSection().equals(newNews.getNewsSection())
+                    && TextUtils.equals(oldNews.getThumbnailUrl(), newNews.getThumbnailUrl());
+        }
     }
 }
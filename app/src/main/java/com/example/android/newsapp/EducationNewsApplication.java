@@ -0,0 +1,26 @@
+package com.example.android.newsapp;
+
+import android.app.Application;
+import android.util.Log;
+
+/**
+ * The application, which sets up the core classes shared with the JVM before any component starts.
+ */
+public class EducationNewsApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // The core classes do not know about Android, send their log messages to logcat
+        NewsLog.setLogger(new NewsLog.Logger() {
+            @Override
+            public void log(int priority, String tag, String message, Throwable throwable) {
+                if (throwable != null) {
+                    message = message + '\n' + Log.getStackTraceString(throwable);
+                }
+                Log.println(priority, tag, message);
+            }
+        });
+    }
+}
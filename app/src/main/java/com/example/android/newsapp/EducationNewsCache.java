@@ -0,0 +1,430 @@
+package com.example.android.newsapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of the lists of EducationNews, keyed by the query URL they were loaded from.
+ * <p>
+ * The cache is stored in a SQLite database, so it survives process death and can be read
+ * on a cold start before there is any network connection. The number of cached news is
+ * capped and the least recently used queries are evicted first.
+ * <p>
+ * The texts of the articles prefetched for the reader are kept in a table of their own,
+ * compressed with gzip, and capped the same way.
+ */
+public class EducationNewsCache extends SQLiteOpenHelper {
+
+    // Constant value for the log messages
+    private static final String LOG_TAG = EducationNewsCache.class.getSimpleName();
+
+    // Time after which a cached list of news has to be refreshed from the network, until the
+    // RefreshScheduler learned how often its section publishes
+    static final long TIME_TO_LIVE_MILLIS = 5 * 60 * 1000;
+
+    // Maximum number of news kept in the cache, for all the queries together
+    static final int MAX_CACHED_NEWS = 1000;
+
+    // Maximum number of article texts kept in the cache
+    static final int MAX_CACHED_ARTICLES = 200;
+
+    // Name and version of the database file
+    private static final String DATABASE_NAME = "education_news_cache.db";
+    private static final int DATABASE_VERSION = 5;
+
+    // Table with one row for every cached query
+    private static final String TABLE_QUERIES = "queries";
+    private static final String COLUMN_QUERY_URL = "query_url";
+    private static final String COLUMN_FETCHED_AT = "fetched_at";
+    private static final String COLUMN_ACCESSED_AT = "accessed_at";
+    private static final String COLUMN_ETAG = "etag";
+    private static final String COLUMN_LAST_MODIFIED = "last_modified";
+
+    // Table with one row for every cached news
+    private static final String TABLE_NEWS = "news";
+    private static final String COLUMN_POSITION = "position";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_SECTION = "section";
+    private static final String COLUMN_DATE = "date";
+    private static final String COLUMN_URL = "url";
+    private static final String COLUMN_THUMBNAIL_URL = "thumbnail_url";
+
+    // Table with one row for every cached article text, keyed by the web URL of the news
+    private static final String TABLE_ARTICLES = "articles";
+    private static final String COLUMN_BODY = "body";
+
+    // The single instance shared by all the loaders of the application
+    private static EducationNewsCache sInstance;
+
+    private EducationNewsCache(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Returns the cache of the application, creating it the first time it is needed.
+     */
+    public static synchronized EducationNewsCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new EducationNewsCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_QUERIES + " ("
+                + COLUMN_QUERY_URL + " TEXT PRIMARY KEY, "
+                + COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+                + COLUMN_ACCESSED_AT + " INTEGER NOT NULL, "
+                + COLUMN_ETAG + " TEXT, "
+                + COLUMN_LAST_MODIFIED + " TEXT)");
+        db.execSQL("CREATE TABLE " + TABLE_NEWS + " ("
+                + COLUMN_QUERY_URL + " TEXT NOT NULL, "
+                + COLUMN_POSITION + " INTEGER NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_SECTION + " TEXT, "
+                + COLUMN_DATE + " INTEGER NOT NULL, "
+                + COLUMN_URL + " TEXT, "
+                + COLUMN_THUMBNAIL_URL + " TEXT, "
+                + "PRIMARY KEY (" + COLUMN_QUERY_URL + ", " + COLUMN_POSITION + "))");
+        db.execSQL("CREATE TABLE " + TABLE_ARTICLES + " ("
+                + COLUMN_URL + " TEXT PRIMARY KEY, "
+                + COLUMN_BODY + " BLOB NOT NULL, "
+                + COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+                + COLUMN_ACCESSED_AT + " INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The cache can always be loaded again from the network, so simply start over
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_QUERIES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NEWS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ARTICLES);
+        onCreate(db);
+    }
+
+    /**
+     * Returns the cached news for the given query URL, or null if the query is not cached.
+     * Reading an entry marks it as the most recently used one.
+     */
+    public synchronized Entry get(String queryUrl) {
+        SQLiteDatabase db = getWritableDatabase();
+
+        long fetchedAt;
+        String eTag;
+        String lastModified;
+        Cursor cursor = db.query(TABLE_QUERIES,
+                new String[]{COLUMN_FETCHED_AT, COLUMN_ETAG, COLUMN_LAST_MODIFIED},
+                COLUMN_QUERY_URL + " = ?", new String[]{queryUrl}, null, null, null);
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            fetchedAt = cursor.getLong(0);
+            eTag = cursor.getString(1);
+            lastModified = cursor.getString(2);
+        } finally {
+            cursor.close();
+        }
+
+        List<EducationNews> educationNews = new ArrayList<>();
+        cursor = db.query(TABLE_NEWS,
+                new String[]{COLUMN_TITLE, COLUMN_SECTION, COLUMN_DATE, COLUMN_URL, COLUMN_THUMBNAIL_URL},
+                COLUMN_QUERY_URL + " = ?", new String[]{queryUrl}, null, null, COLUMN_POSITION);
+        try {
+            while (cursor.moveToNext()) {
+                educationNews.add(new EducationNews(cursor.getString(0), cursor.getString(1),
+                        cursor.getLong(2), cursor.getString(3), cursor.getString(4)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        // Remember when the entry was used, for the least recently used eviction
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ACCESSED_AT, System.currentTimeMillis());
+        db.update(TABLE_QUERIES, values, COLUMN_QUERY_URL + " = ?", new String[]{queryUrl});
+
+        return new Entry(educationNews, fetchedAt, eTag, lastModified);
+    }
+
+    /**
+     * Stores the news of the given response for the query URL, replacing any previous entry,
+     * and evicts the least recently used queries if the cache grew too big.
+     */
+    public synchronized void put(String queryUrl, EducationNewsResponse response) {
+        long now = System.currentTimeMillis();
+        put(queryUrl, response.getNews(), now, response.getETag(), response.getLastModified());
+    }
+
+    /**
+     * Stores other news for the query URL, keeping the time the cached entry was fetched
+     * and its validators.
+     */
+    public synchronized void replaceNews(String queryUrl, Entry cachedNews, List<EducationNews> educationNews) {
+        put(queryUrl, educationNews, cachedNews.getFetchedAt(), cachedNews.getETag(),
+                cachedNews.getLastModified());
+    }
+
+    /**
+     * Stores the news for the query URL, replacing any previous entry, and evicts the least
+     * recently used queries if the cache grew too big.
+     */
+    private void put(String queryUrl, List<EducationNews> educationNews, long fetchedAt,
+                     String eTag, String lastModified) {
+        SQLiteDatabase db = getWritableDatabase();
+        long now = System.currentTimeMillis();
+
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_NEWS, COLUMN_QUERY_URL + " = ?", new String[]{queryUrl});
+
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_QUERY_URL, queryUrl);
+            values.put(COLUMN_FETCHED_AT, fetchedAt);
+            values.put(COLUMN_ACCESSED_AT, now);
+            values.put(COLUMN_ETAG, eTag);
+            values.put(COLUMN_LAST_MODIFIED, lastModified);
+            db.insertWithOnConflict(TABLE_QUERIES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+            for (int i = 0; i < educationNews.size(); i++) {
+                EducationNews news = educationNews.get(i);
+                values.clear();
+                values.put(COLUMN_QUERY_URL, queryUrl);
+                values.put(COLUMN_POSITION, i);
+                values.put(COLUMN_TITLE, news.getTitle());
+                values.put(COLUMN_SECTION, news.getNewsSection());
+                values.put(COLUMN_DATE, news.getNewsDate());
+                values.put(COLUMN_URL, news.getUrl());
+                values.put(COLUMN_THUMBNAIL_URL, news.getThumbnailUrl());
+                db.insert(TABLE_NEWS, null, values);
+            }
+
+            evictLeastRecentlyUsed(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Marks the cached news of the query URL as fresh again, after the server answered
+     * that they did not change, and stores the validators of that answer.
+     * Returns the cached entry as it is now stored.
+     */
+    public synchronized Entry markRevalidated(String queryUrl, Entry cachedNews, EducationNewsResponse response) {
+        Entry revalidated = cachedNews.revalidated(response, System.currentTimeMillis());
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_FETCHED_AT, revalidated.getFetchedAt());
+        values.put(COLUMN_ACCESSED_AT, revalidated.getFetchedAt());
+        values.put(COLUMN_ETAG, revalidated.getETag());
+        values.put(COLUMN_LAST_MODIFIED, revalidated.getLastModified());
+        getWritableDatabase().update(TABLE_QUERIES, values,
+                COLUMN_QUERY_URL + " = ?", new String[]{queryUrl});
+        return revalidated;
+    }
+
+    /**
+     * Returns the cached text of the article of the news with the given web URL, or null if it
+     * is not cached. Reading a text marks it as the most recently used one.
+     */
+    public synchronized String getArticle(String url) {
+        SQLiteDatabase db = getWritableDatabase();
+        byte[] body;
+        Cursor cursor = db.query(TABLE_ARTICLES, new String[]{COLUMN_BODY},
+                COLUMN_URL + " = ?", new String[]{url}, null, null, null);
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            body = cursor.getBlob(0);
+        } finally {
+            cursor.close();
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ACCESSED_AT, System.currentTimeMillis());
+        db.update(TABLE_ARTICLES, values, COLUMN_URL + " = ?", new String[]{url});
+
+        try {
+            return decompress(body);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem reading the cached article.", e);
+            db.delete(TABLE_ARTICLES, COLUMN_URL + " = ?", new String[]{url});
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if the text of the article of the news with the given web URL is cached,
+     * without reading it.
+     */
+    public synchronized boolean hasArticle(String url) {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_ARTICLES,
+                COLUMN_URL + " = ?", new String[]{url}) > 0;
+    }
+
+    /**
+     * Stores the text of the article of the news with the given web URL, compressed, and evicts
+     * the least recently used texts if there are too many of them.
+     */
+    public synchronized void putArticle(String url, String bodyText) {
+        byte[] body;
+        try {
+            body = compress(bodyText);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem compressing the article.", e);
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        long now = System.currentTimeMillis();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_URL, url);
+            values.put(COLUMN_BODY, body);
+            values.put(COLUMN_FETCHED_AT, now);
+            values.put(COLUMN_ACCESSED_AT, now);
+            db.insertWithOnConflict(TABLE_ARTICLES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+            // Keep the most recently used texts only
+            db.execSQL("DELETE FROM " + TABLE_ARTICLES + " WHERE " + COLUMN_URL + " NOT IN (SELECT "
+                    + COLUMN_URL + " FROM " + TABLE_ARTICLES + " ORDER BY " + COLUMN_ACCESSED_AT
+                    + " DESC LIMIT " + MAX_CACHED_ARTICLES + ")");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Returns the text compressed with gzip. Articles are mostly plain prose, which shrinks
+     * to about a third of its size.
+     */
+    static byte[] compress(String text) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutput = new GZIPOutputStream(output);
+        gzipOutput.write(text.getBytes(ResponseBodyReader.UTF_8));
+        gzipOutput.close();
+        return output.toByteArray();
+    }
+
+    /**
+     * Returns the text compressed by compress().
+     */
+    static String decompress(byte[] body) throws IOException {
+        ResponseBodyReader.Body text = ResponseBodyReader.read(new ByteArrayInputStream(body), body.length, true);
+        try {
+            return text.toString();
+        } finally {
+            text.release();
+        }
+    }
+
+    /**
+     * Deletes the least recently used queries until the cache holds at most MAX_CACHED_NEWS news.
+     */
+    private void evictLeastRecentlyUsed(SQLiteDatabase db) {
+        int cachedNews = countNews(db);
+        while (cachedNews > MAX_CACHED_NEWS) {
+            String oldestQueryUrl;
+            Cursor cursor = db.query(TABLE_QUERIES, new String[]{COLUMN_QUERY_URL},
+                    null, null, null, null, COLUMN_ACCESSED_AT + " ASC", "1");
+            try {
+                if (!cursor.moveToFirst()) {
+                    return;
+                }
+                oldestQueryUrl = cursor.getString(0);
+            } finally {
+                cursor.close();
+            }
+
+            db.delete(TABLE_NEWS, COLUMN_QUERY_URL + " = ?", new String[]{oldestQueryUrl});
+            db.delete(TABLE_QUERIES, COLUMN_QUERY_URL + " = ?", new String[]{oldestQueryUrl});
+            cachedNews = countNews(db);
+        }
+    }
+
+    private static int countNews(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_NEWS, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * A list of news read from the cache, together with the time it was fetched from the network.
+     */
+    public static class Entry {
+
+        // Cached list of news
+        private final List<EducationNews> educationNews;
+
+        // Time when the list was fetched from the network, in milliseconds
+        private final long fetchedAt;
+
+        // Validators of the response the list was parsed from, used for conditional requests
+        private final String eTag;
+        private final String lastModified;
+
+        Entry(List<EducationNews> educationNews, long fetchedAt, String eTag, String lastModified) {
+            this.educationNews = educationNews;
+            this.fetchedAt = fetchedAt;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Returns the cached list of news.
+         */
+        public List<EducationNews> getNews() {
+            return educationNews;
+        }
+
+        /**
+         * Returns the time when the list was fetched from the network, in milliseconds.
+         */
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        /**
+         * Returns the ETag of the response the list was parsed from, or null.
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Returns the Last-Modified date of the response the list was parsed from, or null.
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Returns the same list, fetched at the given time, with the validators of the
+         * "304 Not Modified" response of the server. A validator the server did not send
+         * again is kept.
+         */
+        Entry revalidated(EducationNewsResponse response, long now) {
+            return new Entry(educationNews, now,
+                    response.getETag() != null ? response.getETag() : eTag,
+                    response.getLastModified() != null ? response.getLastModified() : lastModified);
+        }
+    }
+}
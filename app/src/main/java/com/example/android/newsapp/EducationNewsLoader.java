@@ -1,44 +1,647 @@
 package com.example.android.newsapp;
 
-import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.content.Loader;
+import android.os.Handler;
+import android.os.Looper;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class EducationNewsLoader extends AsyncTaskLoader<List<EducationNews>> {
+/**
+ * Loads the pages of news of the selected sections.
+ * <p>
+ * Unlike an AsyncTaskLoader, a new load does not wait for the cancelled one to finish: the
+ * cancelled load aborts its connections right away and its result is dropped, so a request
+ * for the previous query never delays the new one. The sections are requested on the shared
+ * prioritized pool of MultiSectionFetcher, the first page before the prefetch of the next ones.
+ * <p>
+ * Every load writes the pages of its sections to the NewsStore in a single batch. The loader
+ * observes the store, so when another writer, like the background sync, changes one of the
+ * pages it displays, the news are merged again from the store snapshot without any request.
+ * <p>
+ * The loader keeps a window of at most MAX_PAGES pages. Loading a next page past the window
+ * drops its first page, and loading the page before the window again, from the cache or the
+ * network, drops its last one, so the user can scroll as far as the sections go with a bounded
+ * list in memory. All the methods are called on the main thread.
+ */
+public class EducationNewsLoader extends Loader<List<EducationNews>> {
 
     /**
-     * Query URL
+     * Maximum number of pages kept in the window of the loader, so the list in memory stays bounded
      */
-    private String mUrl;
+    static final int MAX_PAGES = 10;
+
+    /**
+     * Time to wait before loading a page around the window again after it could not be loaded,
+     * doubled after every failure in a row up to the maximum, in milliseconds
+     */
+    private static final long NEXT_PAGE_RETRY_MILLIS = 5 * 1000;
+    private static final long MAX_NEXT_PAGE_RETRY_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * Threads waiting for the sections of the loads. A load only waits here while its requests
+     * run on the pool of MultiSectionFetcher, and stops as soon as it is cancelled.
+     */
+    private static final Executor LOAD_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "EducationNewsLoader #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Query URL of every selected section, without the page parameter
+     */
+    private final List<String> mUrls;
+
+    /**
+     * Number of news requested for every page
+     */
+    private final int mPageSize;
+
+    /**
+     * Handler used to deliver the results of the loads on the main thread
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * News of the pages of the window, as last delivered to the activity
+     */
+    private List<EducationNews> mNews;
+
+    /**
+     * Page requested by the next load, and whether it is the page before the window
+     */
+    private int mPageToLoad = 1;
+    private boolean mLoadPreviousPage;
+
+    /**
+     * First and last pages of the window, or 0 for the last page when no page is loaded
+     */
+    private int mFirstPage = 1;
+    private int mLastPage;
+
+    /**
+     * Number of news every page of the window added to mNews, from the first page to the last one
+     */
+    private final Deque<Integer> mPageNewsCounts = new ArrayDeque<>();
+
+    /**
+     * False once a page with less than mPageSize news, or without any news, has been loaded
+     */
+    private boolean mHasMorePages = true;
+
+    /**
+     * Number of times in a row the page after or before the window could not be loaded, and the
+     * time before which no such page is loaded again, in epoch milliseconds
+     */
+    private int mPageFailures;
+    private long mPageRetryAt;
+
+    /**
+     * Time when the oldest news delivered that could not be refreshed were fetched,
+     * in epoch milliseconds, or 0 if all the news are up to date
+     */
+    private long mStaleSince;
+
+    /**
+     * Load that is running, or null. The results of any other load are dropped.
+     */
+    private Load mCurrentLoad;
+
+    /**
+     * Source of the pages of news, reading the local store before the network
+     */
+    private final EducationNewsRepository mRepository;
+
+    /**
+     * System.nanoTime() when the current load was started, or 0 when no load is running
+     */
+    private long mLoadStartTime;
+
+    /**
+     * Store shared with the other writers of news, and the version of its snapshot the news
+     * delivered were merged from
+     */
+    private final NewsStore mStore = NewsStore.getInstance();
+    private long mStoreVersion;
+
+    /**
+     * True when the store changed the pages of the loader while a load was running
+     */
+    private boolean mStoreChangedDuringLoad;
+
+    /**
+     * Observer of the store, registered while the loader is not reset
+     */
+    private NewsStore.Observer mStoreObserver;
 
     /**
      * Constructs a new EducationNewsLoader.
      *
-     * @param context of the activity
-     * @param url     to load data from
+     * @param context  of the activity
+     * @param urls     to load data from, one for every selected section
+     * @param pageSize is the number of news requested for every page
      */
-    public EducationNewsLoader(Context context, String url) {
+    public EducationNewsLoader(Context context, List<String> urls, int pageSize) {
         super(context);
-        mUrl = url;
+        mUrls = urls;
+        mPageSize = pageSize;
+        mRepository = new EducationNewsRepository(context);
     }
 
     @Override
     protected void onStartLoading() {
+        // Follow the changes made to the store by the other writers, on the main thread
+        if (mStoreObserver == null) {
+            mStoreObserver = new NewsStore.Observer() {
+                @Override
+                public void onStoreChanged(NewsStore.Snapshot snapshot, NewsStore.ChangeSet changes) {
+                    onStoreChangedByWriter(snapshot, changes);
+                }
+            };
+            mStore.addObserver(mStoreObserver, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    mMainHandler.post(command);
+                }
+            });
+        }
+
+        // Deliver the pages already loaded, if any, instead of loading them again
+        if (mNews != null) {
+            deliverResult(mNews);
+        }
+        if (mNews == null || takeContentChanged()) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onForceLoad() {
+        // A new load supersedes the running one
+        cancelCurrentLoad();
+
+        // The pages around the window are prefetched, the user is not waiting for them yet
+        int page = mPageToLoad;
+        boolean previousPage = mLoadPreviousPage;
+        mPageToLoad = 1;
+        mLoadPreviousPage = false;
+        PrioritizedExecutor.Priority priority = page > 1
+                ? PrioritizedExecutor.Priority.PREFETCH : PrioritizedExecutor.Priority.VISIBLE;
+
+        mCurrentLoad = new Load(page, previousPage, page > 1 || previousPage ? mNews : null, priority);
+        mLoadStartTime = System.nanoTime();
+        LOAD_EXECUTOR.execute(mCurrentLoad);
+    }
+
+    @Override
+    protected boolean onCancelLoad() {
+        if (mCurrentLoad == null) {
+            return false;
+        }
+        cancelCurrentLoad();
+
+        // The load is aborted right away, so report the cancellation without waiting for its thread.
+        // It is posted because the LoaderManager only expects it after cancelLoad() returned.
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                deliverCancellation();
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public void deliverResult(List<EducationNews> educationNews) {
+        if (isReset()) {
+            return;
+        }
+        mNews = educationNews;
+        if (mLoadStartTime != 0) {
+            // Time from the queueing of the load to the delivery of its result
+            NewsMetrics.LOADER_DELIVERY.recordSince(mLoadStartTime);
+            mLoadStartTime = 0;
+        }
+        if (isStarted()) {
+            super.deliverResult(educationNews);
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        cancelCurrentLoad();
+        if (mStoreObserver != null) {
+            mStore.removeObserver(mStoreObserver);
+            mStoreObserver = null;
+        }
+        mStoreVersion = 0;
+        mStoreChangedDuringLoad = false;
+        mNews = null;
+        mStaleSince = 0;
+        mPageToLoad = 1;
+        mLoadPreviousPage = false;
+        mFirstPage = 1;
+        mLastPage = 0;
+        mPageNewsCounts.clear();
+        mHasMorePages = true;
+        mPageFailures = 0;
+        mPageRetryAt = 0;
+    }
+
+    /**
+     * Returns true if this loader loads the given URLs and its news are either being loaded
+     * or still fresh, so there is no need to restart it. The news stay fresh for as long as the
+     * RefreshScheduler expects no new news in the sections of the pages loaded, counted from the
+     * time the oldest of them was fetched. News served from the cache because they could not be
+     * refreshed are never up to date, so they are refreshed as soon as the network is back.
+     */
+    public boolean isUpToDate(List<String> urls) {
+        if (mUrls == null || !mUrls.equals(urls)) {
+            return false;
+        }
+        if (mCurrentLoad != null) {
+            return true;
+        }
+        if (mNews == null || mLastPage == 0 || mStaleSince != 0) {
+            return false;
+        }
+        List<String> pageUrls = getLoadedPageUrls();
+        long fetchedAt = EducationNewsRepository.getFetchedAt(pageUrls);
+        return fetchedAt != 0 && RefreshScheduler.getInstance(getContext()).isFresh(pageUrls, fetchedAt);
+    }
+
+    /**
+     * Returns the time when the oldest news delivered were fetched, in epoch milliseconds, if they
+     * are served from the cache because they could not be refreshed, or 0 if they are up to date.
+     */
+    public long getStaleSince() {
+        return mStaleSince;
+    }
+
+    /**
+     * Returns the first page of the window, 1 until the user scrolled past MAX_PAGES pages.
+     */
+    public int getFirstPage() {
+        return mFirstPage;
+    }
+
+    /**
+     * Start loading the page after the window in the background, if there is one and no page is
+     * being loaded. The next result delivered contains the news of the window followed by the new
+     * ones, without the first page when the window already has MAX_PAGES pages.
+     * After a page could not be loaded, no page is loaded again before a delay.
+     */
+    public void loadNextPage() {
+        if (mCurrentLoad != null || !mHasMorePages || mLastPage == 0
+                || System.currentTimeMillis() < mPageRetryAt) {
+            return;
+        }
+        mPageToLoad = mLastPage + 1;
         forceLoad();
     }
 
     /**
-     * This is on a background thread.
+     * Start loading the page before the window in the background, if the window dropped it and
+     * no page is being loaded. The page is read again from the cache, or requested again once it
+     * expired. The next result delivered contains the new news followed by the ones of the window,
+     * without the last page when the window already has MAX_PAGES pages.
      */
-    @Override
-    public List<EducationNews> loadInBackground() {
-        if (mUrl == null) {
-            return null;
+    public void loadPreviousPage() {
+        if (mCurrentLoad != null || mFirstPage <= 1 || mLastPage == 0
+                || System.currentTimeMillis() < mPageRetryAt) {
+            return;
+        }
+        mPageToLoad = mFirstPage - 1;
+        mLoadPreviousPage = true;
+        forceLoad();
+    }
+
+    /**
+     * Abort the running load, if any, and drop its result.
+     */
+    private void cancelCurrentLoad() {
+        if (mCurrentLoad != null) {
+            mCurrentLoad.cancellation.cancel();
+            mCurrentLoad = null;
+            mLoadStartTime = 0;
+        }
+    }
+
+    /**
+     * Called on the main thread when a load completed. The result is dropped if the load
+     * was superseded or cancelled in the meantime.
+     */
+    private void onLoadCompleted(Load load, List<EducationNews> pageNews, boolean hasMorePages,
+                                 boolean failed, long staleSince, long storeVersion) {
+        if (load != mCurrentLoad) {
+            return;
+        }
+        mCurrentLoad = null;
+        mStoreVersion = storeVersion;
+
+        // The first page replaces all the news, the other pages add their own stale news, if any
+        if (load.windowNews == null || mStaleSince == 0) {
+            mStaleSince = staleSince;
+        } else if (staleSince != 0) {
+            mStaleSince = Math.min(mStaleSince, staleSince);
+        }
+
+        if (pageNews.isEmpty() && load.windowNews == null) {
+            // The first page has no news
+            deliverResult(load.windowNews);
+        } else if (pageNews.isEmpty() && failed) {
+            // Offline or failing: wait before asking for the same page again
+            long retryDelay = Math.min(MAX_NEXT_PAGE_RETRY_MILLIS,
+                    NEXT_PAGE_RETRY_MILLIS << Math.min(mPageFailures, 10));
+            mPageFailures++;
+            mPageRetryAt = System.currentTimeMillis() + retryDelay;
+            deliverResult(load.windowNews);
+        } else if (load.previousPage) {
+            // The page before the window is back, even if its news all moved to the next pages
+            mPageFailures = 0;
+            mPageRetryAt = 0;
+            List<EducationNews> educationNews = prependPage(pageNews, load.windowNews);
+            mFirstPage = load.page;
+            mPageNewsCounts.addFirst(educationNews.size() - load.windowNews.size());
+            if (mLastPage - mFirstPage + 1 > MAX_PAGES) {
+                // Drop the last page, it is loaded again when the user scrolls back down
+                int lastPageCount = mPageNewsCounts.removeLast();
+                educationNews = new ArrayList<>(educationNews.subList(0, educationNews.size() - lastPageCount));
+                mLastPage--;
+                mHasMorePages = true;
+            }
+            deliverResult(educationNews);
+        } else if (pageNews.isEmpty()) {
+            // The sections have no news after the ones loaded
+            mHasMorePages = false;
+            deliverResult(load.windowNews);
+        } else {
+            mHasMorePages = hasMorePages;
+            mPageFailures = 0;
+            mPageRetryAt = 0;
+            List<EducationNews> educationNews = appendPage(load.windowNews, pageNews);
+            if (load.windowNews == null) {
+                // The first page replaces the window
+                mFirstPage = 1;
+                mPageNewsCounts.clear();
+            }
+            mLastPage = load.page;
+            mPageNewsCounts.addLast(educationNews.size()
+                    - (load.windowNews != null ? load.windowNews.size() : 0));
+            if (mLastPage - mFirstPage + 1 > MAX_PAGES) {
+                // Drop the first page, it is loaded again when the user scrolls back up
+                int firstPageCount = mPageNewsCounts.removeFirst();
+                educationNews = new ArrayList<>(educationNews.subList(firstPageCount, educationNews.size()));
+                mFirstPage++;
+            }
+            deliverResult(educationNews);
         }
 
-        // Perform the network request, parse the response, and extract a list of news.
-        List<EducationNews> educationNews = Utils.fetchEducationNewsData(mUrl);
+        // Catch up with the changes the other writers made to the store during the load
+        if (mStoreChangedDuringLoad) {
+            mStoreChangedDuringLoad = false;
+            mergeFromStore(mStore.getSnapshot());
+        }
+    }
+
+    /**
+     * Called on the main thread when a batch changed the store. The news are merged again only
+     * if the batch changed one of the pages delivered, and no load is running.
+     */
+    private void onStoreChangedByWriter(NewsStore.Snapshot snapshot, NewsStore.ChangeSet changes) {
+        if (mNews == null || mLastPage == 0 || !changes.affectsAnyFeed(getLoadedPageUrls())) {
+            return;
+        }
+        if (mCurrentLoad != null) {
+            // The running load delivers first, and the store is merged again once it completed
+            mStoreChangedDuringLoad = true;
+            return;
+        }
+        mergeFromStore(snapshot);
+    }
+
+    /**
+     * Merge the news of the pages of the window from the given snapshot of the store and deliver
+     * them, unless the news delivered already come from this snapshot or a newer one.
+     */
+    private void mergeFromStore(NewsStore.Snapshot snapshot) {
+        if (mLastPage == 0 || snapshot.getVersion() <= mStoreVersion) {
+            return;
+        }
+        List<EducationNews> educationNews = new ArrayList<>();
+        mPageNewsCounts.clear();
+        for (int page = mFirstPage; page <= mLastPage; page++) {
+            List<List<EducationNews>> sectionNews = new ArrayList<>(mUrls.size());
+            for (String url : mUrls) {
+                // A section that could not be loaded is not in the store, like it was not in the load
+                sectionNews.add(snapshot.getFeed(EducationNewsQuery.buildPageUrl(url, page)));
+            }
+            int previousCount = educationNews.size();
+            educationNews = appendPage(educationNews, MultiSectionFetcher.merge(sectionNews));
+            mPageNewsCounts.addLast(educationNews.size() - previousCount);
+        }
+        mStoreVersion = snapshot.getVersion();
+        mStaleSince = EducationNewsRepository.getStaleSince(getLoadedPageUrls());
+        deliverResult(educationNews);
+    }
+
+    /**
+     * Returns the URLs of the pages of every section in the window.
+     */
+    private List<String> getLoadedPageUrls() {
+        List<String> pageUrls = new ArrayList<>(mUrls.size() * (mLastPage - mFirstPage + 1));
+        for (int page = mFirstPage; page <= mLastPage; page++) {
+            for (String url : mUrls) {
+                pageUrls.add(EducationNewsQuery.buildPageUrl(url, page));
+            }
+        }
+        return pageUrls;
+    }
+
+    /**
+     * Returns a new list with the news of the previous pages followed by the news of the new page,
+     * leaving out the news of the new page that were already in the previous ones.
+     */
+    private static List<EducationNews> appendPage(List<EducationNews> previousPages,
+                                                  List<EducationNews> pageNews) {
+        if (previousPages == null) {
+            return pageNews;
+        }
+        Set<String> previousUrls = new HashSet<>();
+        for (EducationNews news : previousPages) {
+            previousUrls.add(news.getUrl());
+        }
+        List<EducationNews> educationNews = new ArrayList<>(previousPages.size() + pageNews.size());
+        educationNews.addAll(previousPages);
+        for (EducationNews news : pageNews) {
+            if (!previousUrls.contains(news.getUrl())) {
+                educationNews.add(news);
+            }
+        }
         return educationNews;
     }
+
+    /**
+     * Returns a new list with the news of the new page followed by the news of the next pages,
+     * leaving out the news of the new page that are already in the next ones.
+     */
+    private static List<EducationNews> prependPage(List<EducationNews> pageNews,
+                                                   List<EducationNews> nextPages) {
+        Set<String> nextUrls = new HashSet<>();
+        for (EducationNews news : nextPages) {
+            nextUrls.add(news.getUrl());
+        }
+        List<EducationNews> educationNews = new ArrayList<>(pageNews.size() + nextPages.size());
+        for (EducationNews news : pageNews) {
+            if (!nextUrls.contains(news.getUrl())) {
+                educationNews.add(news);
+            }
+        }
+        educationNews.addAll(nextPages);
+        return educationNews;
+    }
+
+    /**
+     * The load of a single page of every selected section.
+     */
+    private class Load implements Runnable {
+
+        // Cancelled when the load is superseded, aborts its requests
+        final CancellationToken cancellation = new CancellationToken();
+
+        // Page to load, true if it is the page before the window, and the news of the window,
+        // or null for the first page
+        final int page;
+        final boolean previousPage;
+        final List<EducationNews> windowNews;
+
+        // Priority of the requests of the load
+        final PrioritizedExecutor.Priority priority;
+
+        Load(int page, boolean previousPage, List<EducationNews> windowNews,
+             PrioritizedExecutor.Priority priority) {
+            this.page = page;
+            this.previousPage = previousPage;
+            this.windowNews = windowNews;
+            this.priority = priority;
+        }
+
+        /**
+         * This is on a background thread.
+         * <p>
+         * The page of every selected section is requested in parallel and the results are merged
+         * into a single timeline, delivered every time a section completes. Cached news are returned
+         * right away when they are still fresh. Stale cached news are delivered first and then
+         * refreshed from the network (stale-while-revalidate). Without a network connection, or if
+         * the request fails, the cached news are used for offline reading.
+         */
+        @Override
+        public void run() {
+            if (mUrls == null || mUrls.isEmpty() || cancellation.isCancelled()) {
+                postResult(new ArrayList<EducationNews>(), false, false, 0, mStore.getSnapshot().getVersion());
+                return;
+            }
+
+            List<String> pageUrls = new ArrayList<>(mUrls.size());
+            for (String url : mUrls) {
+                pageUrls.add(EducationNewsQuery.buildPageUrl(url, page));
+            }
+
+            // Abort the requests of the sections as soon as the load is cancelled
+            final MultiSectionFetcher fetcher = new MultiSectionFetcher(priority);
+            cancellation.addOnCancelListener(new Runnable() {
+                @Override
+                public void run() {
+                    fetcher.cancel();
+                }
+            });
+
+            // Remember if any section has more pages after this one, and if any could not be loaded
+            final AtomicBoolean hasMorePages = new AtomicBoolean();
+            final AtomicBoolean failed = new AtomicBoolean();
+
+            // The sections loaded are written to the store together, once the load completed
+            final NewsStore.Batch batch = new NewsStore.Batch();
+            List<EducationNews> pageNews = fetcher.fetch(pageUrls,
+                    new MultiSectionFetcher.SectionLoader() {
+                        @Override
+                        public List<EducationNews> loadSection(String url, CancellationToken sectionCancellation,
+                                MultiSectionFetcher.OnSectionLoadedListener provisionalListener) {
+                            List<EducationNews> sectionNews =
+                                    mRepository.loadPage(url, priority, sectionCancellation, provisionalListener);
+                            if (sectionNews != null) {
+                                batch.putFeed(url, sectionNews);
+                                if (sectionNews.size() >= mPageSize) {
+                                    hasMorePages.set(true);
+                                }
+                            } else {
+                                failed.set(true);
+                            }
+                            return sectionNews;
+                        }
+                    },
+                    new MultiSectionFetcher.OnMergedListener() {
+                        @Override
+                        public void onMerged(List<EducationNews> educationNews) {
+                            // Show the sections already loaded while waiting for the other ones
+                            postPartialResult(previousPage ? prependPage(educationNews, windowNews)
+                                    : appendPage(windowNews, educationNews));
+                        }
+                    });
+            // A cancelled or superseded load does not write its sections, they may belong to a
+            // previous query and would notify the observers of the store for nothing.
+            // Its result is dropped anyway.
+            if (cancellation.isCancelled()) {
+                return;
+            }
+            long storeVersion = mStore.apply(batch).getVersion();
+            postResult(pageNews, hasMorePages.get(), failed.get(),
+                    EducationNewsRepository.getStaleSince(pageUrls), storeVersion);
+        }
+
+        /**
+         * Deliver the result of the load on the main thread.
+         */
+        private void postResult(final List<EducationNews> pageNews, final boolean hasMorePages,
+                                final boolean failed, final long staleSince, final long storeVersion) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onLoadCompleted(Load.this, pageNews, hasMorePages, failed, staleSince, storeVersion);
+                }
+            });
+        }
+
+        /**
+         * Deliver news on the main thread, before the final result of the load.
+         */
+        private void postPartialResult(final List<EducationNews> educationNews) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (Load.this == mCurrentLoad && isStarted()) {
+                        // Bypass deliverResult(), the load is still running
+                        EducationNewsLoader.super.deliverResult(educationNews);
+                    }
+                }
+            });
+        }
+    }
 }
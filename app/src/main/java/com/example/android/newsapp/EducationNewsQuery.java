@@ -0,0 +1,245 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+/**
+ * Helper methods that build the request URLs of The Guardian API for the selected sections.
+ * They are shared by the activity and by the background sync, so both use the same URLs
+ * and therefore the same cache entries.
+ */
+public final class EducationNewsQuery {
+
+    // Number of news requested for every page
+    static final int PAGE_SIZE = 20;
+
+    // Largest number of news requested for a page of merged sections
+    static final int MAX_MERGED_PAGE_SIZE = 50;
+
+    // The Guardian Base URL
+    private static final String GUARDIAN_REQUEST_URL = "http://content.guardianapis.com/search?&=";
+
+    // Base URL of the single items of the content API, and host of the website of their web URL
+    private static final String GUARDIAN_CONTENT_URL = "http://content.guardianapis.com";
+    private static final String GUARDIAN_WEBSITE_HOST = "www.theguardian.com";
+
+    // Constant for the API search Key
+    private static final String API_KEY = "api-key";
+
+    // Constant value for the API Key
+    private static final String KEY = "59d0bf63-14c5-4f77-b80d-cbd12411469f";
+
+    // Query parameters of the pages and of the delta sync
+    private static final String PAGE = "page";
+    private static final String PAGE_SIZE_PARAMETER = "page-size";
+    private static final String ORDER_BY = "order-by";
+    private static final String ORDER_BY_NEWEST = "newest";
+    private static final String FROM_DATE = "from-date";
+
+    // The delta sync asks for the news published since a little before the newest one already
+    // loaded, so news whose publication date was moved back slightly are not missed
+    static final long DELTA_SYNC_OVERLAP_MILLIS = 60 * 60 * 1000;
+
+    // Number of news asked for by the delta sync. It is smaller than a page, so the news of the
+    // newest day, sent again by every delta sync of a busy section, do not make it a full page.
+    static final int DELTA_PAGE_SIZE = 10;
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static variables and methods.
+     */
+    private EducationNewsQuery() {
+    }
+
+    /**
+     * Returns the sections selected in the settings, sorted so the same selection
+     * always gives the same URLs and hits the same cache entries.
+     */
+    public static Set<String> getSelectedSections(Context context) {
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+        Set<String> defaultSections = Collections.singleton(context.getString(R.string.settings_news_label));
+        Set<String> searchSections = new TreeSet<>(sharedPreferences.getStringSet(
+                context.getString(R.string.settings_search_by_news_key), defaultSections));
+        if (searchSections.isEmpty()) {
+            searchSections.addAll(defaultSections);
+        }
+        return searchSections;
+    }
+
+    /**
+     * Returns one request URL, without the page number, for every selected section.
+     * <p>
+     * When the daily quota of the API key runs low, all the sections are merged into a single
+     * query instead, so refreshing them costs a single request.
+     */
+    public static List<String> buildSectionUrls(Context context) {
+        Set<String> searchSections = getSelectedSections(context);
+        if (searchSections.size() > 1 && ApiQuotaManager.getInstance(context).isConserving()) {
+            return Collections.singletonList(buildMergedSectionsUrl(searchSections));
+        }
+        List<String> urls = new ArrayList<>(searchSections.size());
+        for (String searchSection : searchSections) {
+            // The sections are ordered by publication date, so they can be refreshed with a delta sync
+            urls.add(buildQueryUrl(searchSection, ORDER_BY_NEWEST, PAGE_SIZE));
+        }
+        return urls;
+    }
+
+    /**
+     * Returns the request URL, without the page number, of the news of any of the given sections,
+     * newest first. A page has as many news as the pages of the sections together, up to a limit.
+     */
+    static String buildMergedSectionsUrl(Set<String> searchSections) {
+        StringBuilder query = new StringBuilder();
+        for (String searchSection : searchSections) {
+            if (query.length() > 0) {
+                query.append(" OR ");
+            }
+            // Sections of several words are searched as phrases
+            if (searchSection.indexOf(' ') >= 0) {
+                query.append('"').append(searchSection).append('"');
+            } else {
+                query.append(searchSection);
+            }
+        }
+        int pageSize = Math.min(PAGE_SIZE * searchSections.size(), MAX_MERGED_PAGE_SIZE);
+        return buildQueryUrl(query.toString(), ORDER_BY_NEWEST, pageSize);
+    }
+
+    /**
+     * Returns the request URL, without the page number, of a free text search.
+     * The results are ordered by relevance.
+     */
+    public static String buildSearchUrl(String query) {
+        return buildQueryUrl(query, null, PAGE_SIZE);
+    }
+
+    /**
+     * Returns the request URL, without the page number, searching for the given text.
+     *
+     * @param orderBy  is the order of the results, or null for the default order of the API
+     * @param pageSize is the number of news of every page
+     */
+    private static String buildQueryUrl(String query, String orderBy, int pageSize) {
+        // Create an URI and an URI Builder
+        Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
+        Uri.Builder uriBuilder = baseUri.buildUpon();
+
+        // Append the search parameters to the request URL
+        uriBuilder.appendQueryParameter("q", query);
+        uriBuilder.appendQueryParameter(PAGE_SIZE_PARAMETER, String.valueOf(pageSize));
+        uriBuilder.appendQueryParameter("show-fields", "thumbnail");
+        if (orderBy != null) {
+            uriBuilder.appendQueryParameter(ORDER_BY, orderBy);
+        }
+        uriBuilder.appendQueryParameter(API_KEY, KEY);
+        return uriBuilder.toString();
+    }
+
+    /**
+     * Returns the request URL of the text of the article of the given news, or null if the news
+     * is not on The Guardian website.
+     * <p>
+     * The id of an item of the content API is the path of its URL on the website.
+     */
+    public static String buildArticleUrl(String webUrl) {
+        Uri webUri = Uri.parse(webUrl);
+        String path = webUri.getEncodedPath();
+        if (!GUARDIAN_WEBSITE_HOST.equals(webUri.getHost()) || path == null || path.length() <= 1) {
+            return null;
+        }
+        return Uri.parse(GUARDIAN_CONTENT_URL).buildUpon()
+                .appendEncodedPath(path.substring(1))
+                .appendQueryParameter("show-fields", "bodyText")
+                .appendQueryParameter(API_KEY, KEY)
+                .toString();
+    }
+
+    /**
+     * Returns the URL of the given page of the query.
+     */
+    public static String buildPageUrl(String url, int page) {
+        return Uri.parse(url).buildUpon()
+                .appendQueryParameter(PAGE, String.valueOf(page))
+                .toString();
+    }
+
+    /**
+     * Returns the URL of the page after the given page of the same query.
+     */
+    public static String buildNextPageUrl(String pageUrl) {
+        // The page is the last parameter, as buildPageUrl appends it
+        Uri pageUri = Uri.parse(pageUrl);
+        Uri.Builder uriBuilder = pageUri.buildUpon().clearQuery();
+        for (String name : pageUri.getQueryParameterNames()) {
+            if (!PAGE.equals(name)) {
+                uriBuilder.appendQueryParameter(name, pageUri.getQueryParameter(name));
+            }
+        }
+        int page = Integer.parseInt(pageUri.getQueryParameter(PAGE));
+        return uriBuilder.appendQueryParameter(PAGE, String.valueOf(page + 1)).toString();
+    }
+
+    /**
+     * Returns the number of news of every page of the query.
+     */
+    public static int getPageSize(String url) {
+        try {
+            return Integer.parseInt(Uri.parse(url).getQueryParameter(PAGE_SIZE_PARAMETER));
+        } catch (NumberFormatException e) {
+            return PAGE_SIZE;
+        }
+    }
+
+    /**
+     * Returns true if the page can be refreshed with a delta sync: it is the first page
+     * of a query ordered by publication date, so the news published since the last fetch
+     * all belong at its top.
+     */
+    public static boolean supportsDeltaSync(String pageUrl) {
+        Uri uri = Uri.parse(pageUrl);
+        return "1".equals(uri.getQueryParameter(PAGE))
+                && ORDER_BY_NEWEST.equals(uri.getQueryParameter(ORDER_BY));
+    }
+
+    /**
+     * Returns the URL of the delta sync of the page: the DELTA_PAGE_SIZE newest news published
+     * since the given time, minus an overlap.
+     * <p>
+     * The date is sent as a day in UTC, the granularity of the from-date parameter, so the news
+     * of that day already loaded are sent again and must be de-duplicated by the caller. The
+     * time comes from the publication dates of the server, so the device clock does not matter.
+     *
+     * @param pageUrl    is the URL of the first page of a query ordered by publication date
+     * @param newestDate is the publication time of the newest news loaded, in epoch milliseconds
+     */
+    public static String buildDeltaUrl(String pageUrl, long newestDate) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String fromDate = dateFormat.format(new Date(newestDate - DELTA_SYNC_OVERLAP_MILLIS));
+
+        // Copy the parameters of the page, with the smaller page size of the delta sync
+        Uri pageUri = Uri.parse(pageUrl);
+        Uri.Builder uriBuilder = pageUri.buildUpon().clearQuery();
+        for (String name : pageUri.getQueryParameterNames()) {
+            if (!PAGE_SIZE_PARAMETER.equals(name)) {
+                uriBuilder.appendQueryParameter(name, pageUri.getQueryParameter(name));
+            }
+        }
+        return uriBuilder.appendQueryParameter(PAGE_SIZE_PARAMETER, String.valueOf(DELTA_PAGE_SIZE))
+                .appendQueryParameter(FROM_DATE, fromDate)
+                .toString();
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the pages of news from the local store first and from the network when needed.
+ * <p>
+ * It is used both by the loader of the activity and by the background sync, so the news
+ * synced in the background are the ones the activity reads on launch.
+ */
+public class EducationNewsRepository {
+
+    // Network requests currently running, shared by all the repositories so that the loader and
+    // the background sync never send the same request twice at the same time
+    private static final InFlightRequests<List<EducationNews>> NETWORK_REQUESTS =
+            new InFlightRequests<>();
+
+    // Pages served from the cache because they could not be refreshed, and the time their news
+    // were fetched, shared by all the repositories
+    private static final ConcurrentHashMap<String, Long> STALE_PAGES = new ConcurrentHashMap<>();
+
+    // Time the news last returned for every page were fetched from the network, in epoch
+    // milliseconds, shared by all the repositories
+    private static final ConcurrentHashMap<String, Long> FETCHED_PAGES = new ConcurrentHashMap<>();
+
+    // Application context, used for the cache and the connectivity checks
+    private final Context context;
+
+    // Policy sending the requests: quota of the API key, retries and circuit breaker
+    private final FetchPolicy fetchPolicy;
+
+    // Schedule telling how long the news of every page stay fresh
+    private final RefreshScheduler refreshScheduler;
+
+    /**
+     * Constructs a new EducationNewsRepository.
+     */
+    public EducationNewsRepository(Context context) {
+        this.context = context.getApplicationContext();
+        this.fetchPolicy = FetchPolicy.getInstance(context);
+        this.refreshScheduler = RefreshScheduler.getInstance(context);
+    }
+
+    /**
+     * Load the news of a single page, from the cache or from the network.
+     * <p>
+     * Cached news are returned right away when they are still fresh, for as long as the
+     * RefreshScheduler expects no new news in their section. Stale cached news are
+     * reported to the provisional listener, if any, and then revalidated with a conditional
+     * request. Without a network connection, or if the request fails, the cached news are
+     * returned for offline reading and the page is reported by getStaleSince(). Every page
+     * loaded is added to the local search index. This is on a background thread.
+     *
+     * @param pageUrl             is the URL of the page
+     * @param priority            is the priority of the network request against the quota of the API key
+     * @param cancellation        aborts the network request when the page is not needed anymore
+     * @param provisionalListener receives the stale cached news while they are revalidated, or null
+     */
+    public List<EducationNews> loadPage(String pageUrl, PrioritizedExecutor.Priority priority,
+                                        CancellationToken cancellation,
+                                        MultiSectionFetcher.OnSectionLoadedListener provisionalListener) {
+        List<EducationNews> educationNews =
+                loadPageFromCacheOrNetwork(pageUrl, priority, cancellation, provisionalListener);
+        NewsSearchIndex.getInstance().addAll(educationNews);
+        return educationNews;
+    }
+
+    /**
+     * Returns the time when the oldest news of the given pages served from the cache, because they
+     * could not be refreshed, were fetched, in epoch milliseconds, or 0 if none of them is stale.
+     */
+    public static long getStaleSince(Collection<String> pageUrls) {
+        long staleSince = 0;
+        for (String pageUrl : pageUrls) {
+            Long fetchedAt = STALE_PAGES.get(pageUrl);
+            if (fetchedAt != null && (staleSince == 0 || fetchedAt < staleSince)) {
+                staleSince = fetchedAt;
+            }
+        }
+        return staleSince;
+    }
+
+    /**
+     * Returns the time when the oldest news of the given pages were fetched from the network,
+     * in epoch milliseconds, or 0 if one of the pages was not loaded by any repository.
+     */
+    public static long getFetchedAt(Collection<String> pageUrls) {
+        long oldestFetchedAt = Long.MAX_VALUE;
+        for (String pageUrl : pageUrls) {
+            Long fetchedAt = FETCHED_PAGES.get(pageUrl);
+            if (fetchedAt == null) {
+                return 0;
+            }
+            oldestFetchedAt = Math.min(oldestFetchedAt, fetchedAt);
+        }
+        return oldestFetchedAt == Long.MAX_VALUE ? 0 : oldestFetchedAt;
+    }
+
+    private List<EducationNews> loadPageFromCacheOrNetwork(
+            final String pageUrl, final PrioritizedExecutor.Priority priority, CancellationToken cancellation,
+            MultiSectionFetcher.OnSectionLoadedListener provisionalListener) {
+        // Look for the news of this page in the on-disk cache
+        EducationNewsCache cache = EducationNewsCache.getInstance(context);
+        final EducationNewsCache.Entry cachedNews = cache.get(pageUrl);
+        if (cachedNews != null) {
+            if (refreshScheduler.isFresh(pageUrl, cachedNews.getFetchedAt())) {
+                // Without a network, the fixed time to live would not have sent a request either
+                if (isNetworkAvailable()) {
+                    refreshScheduler.onServedFromCache(pageUrl, cachedNews.getFetchedAt());
+                }
+                STALE_PAGES.remove(pageUrl);
+                FETCHED_PAGES.put(pageUrl, cachedNews.getFetchedAt());
+                return cachedNews.getNews();
+            }
+            if (!isNetworkAvailable()) {
+                STALE_PAGES.put(pageUrl, cachedNews.getFetchedAt());
+                FETCHED_PAGES.put(pageUrl, cachedNews.getFetchedAt());
+                return cachedNews.getNews();
+            }
+            // Show the stale news while they are being revalidated
+            if (provisionalListener != null) {
+                provisionalListener.onSectionLoaded(cachedNews.getNews());
+            }
+        } else if (!isNetworkAvailable()) {
+            return null;
+        }
+
+        // If the same page is already being fetched, wait for that request instead of sending another one
+        List<EducationNews> educationNews = NETWORK_REQUESTS.run(pageUrl, cancellation,
+                new InFlightRequests.Request<List<EducationNews>>() {
+                    @Override
+                    public List<EducationNews> run(CancellationToken requestCancellation) {
+                        List<EducationNews> fetchedNews = fetchPage(pageUrl, cachedNews, priority, requestCancellation);
+                        if (fetchedNews != null) {
+                            // Learn how often the section publishes from the news just fetched
+                            refreshScheduler.onFetched(pageUrl, fetchedNews);
+                        }
+                        return fetchedNews;
+                    }
+                });
+        if (educationNews == null) {
+            // The request failed, so keep showing the cached news if there are any
+            if (cachedNews == null) {
+                return null;
+            }
+            STALE_PAGES.put(pageUrl, cachedNews.getFetchedAt());
+            FETCHED_PAGES.put(pageUrl, cachedNews.getFetchedAt());
+            return cachedNews.getNews();
+        }
+        STALE_PAGES.remove(pageUrl);
+        FETCHED_PAGES.put(pageUrl, System.currentTimeMillis());
+        return educationNews;
+    }
+
+    /**
+     * Fetch a page from the network, store it in the cache and return its news,
+     * or null if the request failed.
+     */
+    private List<EducationNews> fetchPage(String pageUrl, EducationNewsCache.Entry cachedNews,
+                                          PrioritizedExecutor.Priority priority,
+                                          CancellationToken cancellation) {
+        // Only ask for the news published since the newest cached one, if possible
+        if (cachedNews != null && EducationNewsQuery.supportsDeltaSync(pageUrl)) {
+            long newestDate = newestDateOf(cachedNews.getNews());
+            if (newestDate != NewsDateFormatter.UNKNOWN_DATE) {
+                return fetchDelta(pageUrl, cachedNews, newestDate, priority, cancellation);
+            }
+        }
+        return fetchFullPage(pageUrl, cachedNews, priority, cancellation);
+    }
+
+    /**
+     * Fetch the whole page, store it in the cache and return its news, or null if the request failed.
+     */
+    private List<EducationNews> fetchFullPage(String pageUrl, EducationNewsCache.Entry cachedNews,
+                                              PrioritizedExecutor.Priority priority,
+                                              CancellationToken cancellation) {
+        // Perform the network request, parse the response, and extract a list of news.
+        // If there are cached news, the request is conditional and the server can answer
+        // that they did not change without sending them again.
+        EducationNewsResponse response = cachedNews != null
+                ? fetchPolicy.fetch(pageUrl, cachedNews.getETag(), cachedNews.getLastModified(),
+                        priority, cancellation)
+                : fetchPolicy.fetch(pageUrl, null, null, priority, cancellation);
+        if (response == null) {
+            return null;
+        }
+
+        EducationNewsCache cache = EducationNewsCache.getInstance(context);
+        if (response.isNotModified()) {
+            // Nothing changed since the last request, reuse the cached list
+            if (cachedNews == null) {
+                return null;
+            }
+            return cache.markRevalidated(pageUrl, cachedNews, response).getNews();
+        }
+
+        cache.put(pageUrl, response);
+        return response.getNews();
+    }
+
+    /**
+     * Fetch the newest news published since the newest cached one and merge them at the top of
+     * the cached page, store the merged page in the cache and return it, or null if the request
+     * failed. If all the news of the delta are new, there may be more of them than it asked for,
+     * and the whole page is fetched instead.
+     * <p>
+     * The page keeps the validators of the last delta response, and the next delta sends them,
+     * so a section without new news answers "304 Not Modified" without a body.
+     */
+    private List<EducationNews> fetchDelta(String pageUrl, EducationNewsCache.Entry cachedNews,
+                                           long newestDate, PrioritizedExecutor.Priority priority,
+                                           CancellationToken cancellation) {
+        EducationNewsResponse response = fetchPolicy.fetch(EducationNewsQuery.buildDeltaUrl(pageUrl, newestDate),
+                cachedNews.getETag(), cachedNews.getLastModified(), priority, cancellation);
+        if (response == null) {
+            return null;
+        }
+
+        EducationNewsCache cache = EducationNewsCache.getInstance(context);
+        if (response.isNotModified()) {
+            return cache.markRevalidated(pageUrl, cachedNews, response).getNews();
+        }
+
+        List<EducationNews> mergedNews = mergeDelta(cachedNews.getNews(), response.getNews(),
+                EducationNewsQuery.DELTA_PAGE_SIZE);
+        if (mergedNews == null) {
+            return fetchFullPage(pageUrl, null, priority, cancellation);
+        }
+        List<EducationNews> pageNews = mergedNews;
+        int pageSize = EducationNewsQuery.getPageSize(pageUrl);
+        if (mergedNews.size() > pageSize) {
+            // The oldest news move on to the next page, like they did on the server
+            pageNews = new ArrayList<>(mergedNews.subList(0, pageSize));
+            moveToNextPage(cache, pageUrl, mergedNews.subList(pageSize, mergedNews.size()));
+        }
+        cache.put(pageUrl, new EducationNewsResponse(pageNews, response.getETag(), response.getLastModified()));
+        return pageNews;
+    }
+
+    /**
+     * Put the news pushed out of a page by a delta sync at the top of the cached next page, if
+     * it is cached, so they are still found there until it is fetched again. The next page keeps
+     * the time it was fetched and its validators, and is longer than a page until then. A next
+     * page that is not cached is fetched from the network, where the news moved as well.
+     * <p>
+     * The next page is updated in the NewsStore too, if a loader displays it, before the caller
+     * writes the page itself: the moved news are in both pages for a moment, never in neither.
+     */
+    private static void moveToNextPage(EducationNewsCache cache, String pageUrl,
+                                       List<EducationNews> displacedNews) {
+        String nextPageUrl = EducationNewsQuery.buildNextPageUrl(pageUrl);
+        EducationNewsCache.Entry nextPage = cache.get(nextPageUrl);
+        if (nextPage == null) {
+            return;
+        }
+        List<EducationNews> nextPageNews = prependToPage(displacedNews, nextPage.getNews());
+        cache.replaceNews(nextPageUrl, nextPage, nextPageNews);
+
+        NewsStore store = NewsStore.getInstance();
+        if (store.getSnapshot().getFeed(nextPageUrl) != null) {
+            store.apply(new NewsStore.Batch().putFeed(nextPageUrl, nextPageNews));
+        }
+    }
+
+    /**
+     * Returns the cached page with the news of a delta sync merged at its top, newest first, or
+     * null if the whole page should be fetched again. The merged list is longer than the page
+     * when the delta brought new news: the news after the page size belong to the next page.
+     * <p>
+     * The from-date of the delta has the granularity of a day, so the newest news of the cached
+     * page are usually sent again. They are recognized by their URL and only kept once, with the
+     * content of the delta. Only when none of the news of a full delta was cached, the news
+     * between the delta and the cached page are unknown and null is returned.
+     *
+     * @param cachedPage    is the cached page, newest first
+     * @param deltaNews     is the news of the delta, newest first
+     * @param deltaPageSize is the number of news the delta asked for
+     */
+    static List<EducationNews> mergeDelta(List<EducationNews> cachedPage, List<EducationNews> deltaNews,
+                                          int deltaPageSize) {
+        Set<String> cachedUrls = new HashSet<>();
+        for (EducationNews news : cachedPage) {
+            cachedUrls.add(news.getUrl());
+        }
+        boolean overlapsCachedPage = false;
+        for (EducationNews news : deltaNews) {
+            if (cachedUrls.contains(news.getUrl())) {
+                overlapsCachedPage = true;
+                break;
+            }
+        }
+        if (!overlapsCachedPage && deltaNews.size() >= deltaPageSize) {
+            return null;
+        }
+
+        // The news of the delta win over the cached copies
+        List<List<EducationNews>> pages = new ArrayList<>();
+        pages.add(deltaNews);
+        pages.add(cachedPage);
+        return MultiSectionFetcher.merge(pages);
+    }
+
+    /**
+     * Returns the news pushed out of the previous page followed by the news of the page,
+     * newest first, with the news found in both only once.
+     */
+    static List<EducationNews> prependToPage(List<EducationNews> displacedNews, List<EducationNews> pageNews) {
+        List<List<EducationNews>> pages = new ArrayList<>();
+        pages.add(displacedNews);
+        pages.add(pageNews);
+        return MultiSectionFetcher.merge(pages);
+    }
+
+    /**
+     * Returns the publication time of the newest news of the list,
+     * or NewsDateFormatter.UNKNOWN_DATE if there is none.
+     */
+    private static long newestDateOf(List<EducationNews> educationNews) {
+        long newestDate = NewsDateFormatter.UNKNOWN_DATE;
+        for (EducationNews news : educationNews) {
+            newestDate = Math.max(newestDate, news.getNewsDate());
+        }
+        return newestDate;
+    }
+
+    /**
+     * Returns true if there is a network connection that can be used to refresh the news.
+     */
+    private boolean isNetworkAvailable() {
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Periodic background sync of the first page of every selected section.
+ * <p>
+ * The job only runs on an unmetered network while the device is charging, and all the
+ * section requests are sent together in a single wake-up. The results are written to the
+ * local cache, so the loader can paint them on launch without waiting for the network, and to
+ * the NewsStore in a single batch, so a loader displaying them is updated right away.
+ * JobScheduler is only available from API 21, older devices keep loading in the foreground.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class EducationNewsSyncService extends JobService {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = EducationNewsSyncService.class.getSimpleName();
+
+    // Constant value for the sync job ID. We can choose any integer.
+    private static final int SYNC_JOB_ID = 1;
+
+    // Time between two syncs
+    private static final long SYNC_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+    // Cancels the sync that is running, if the job is stopped
+    private volatile CancellationToken syncCancellation;
+
+    /**
+     * Schedule the periodic sync, unless it is already scheduled.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+
+        // Scheduling the job again would restart its period, so keep the pending one
+        for (JobInfo pendingJob : jobScheduler.getAllPendingJobs()) {
+            if (pendingJob.getId() == SYNC_JOB_ID) {
+                return;
+            }
+        }
+
+        JobInfo syncJob = new JobInfo.Builder(SYNC_JOB_ID,
+                new ComponentName(context, EducationNewsSyncService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setPeriodic(SYNC_INTERVAL_MILLIS)
+                .setPersisted(true)
+                .build();
+        if (jobScheduler.schedule(syncJob) != JobScheduler.RESULT_SUCCESS) {
+            Log.e(LOG_TAG, "Problem scheduling the background sync.");
+        }
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        // JobService callbacks run on the main thread, so sync on a background thread
+        final List<String> pageUrls = new ArrayList<>();
+        for (String url : EducationNewsQuery.buildSectionUrls(this)) {
+            pageUrls.add(EducationNewsQuery.buildPageUrl(url, 1));
+        }
+        final EducationNewsRepository repository = new EducationNewsRepository(this);
+        // Nobody is waiting for the sync, so its requests run after the ones of the activity
+        final MultiSectionFetcher syncFetcher = new MultiSectionFetcher(PrioritizedExecutor.Priority.SYNC);
+        final CancellationToken cancellation = new CancellationToken();
+        cancellation.addOnCancelListener(new Runnable() {
+            @Override
+            public void run() {
+                syncFetcher.cancel();
+            }
+        });
+        syncCancellation = cancellation;
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // All the sections are requested in parallel during this single wake-up,
+                // the repository stores every page in the cache
+                final NewsStore.Batch batch = new NewsStore.Batch();
+                syncFetcher.fetch(pageUrls, new MultiSectionFetcher.SectionLoader() {
+                    @Override
+                    public List<EducationNews> loadSection(String url, CancellationToken cancellation,
+                            MultiSectionFetcher.OnSectionLoadedListener provisionalListener) {
+                        List<EducationNews> sectionNews =
+                                repository.loadPage(url, PrioritizedExecutor.Priority.SYNC, cancellation, null);
+                        if (sectionNews != null) {
+                            batch.putFeed(url, sectionNews);
+                        }
+                        return sectionNews;
+                    }
+                }, null);
+                // A stopped job does not publish the sections it loaded so far, and the scheduler
+                // does not expect it to report that it finished
+                if (cancellation.isCancelled()) {
+                    return;
+                }
+                NewsStore.getInstance().apply(batch);
+                syncCancellation = null;
+                jobFinished(params, false);
+            }
+        }, "EducationNewsSync").start();
+
+        // The job keeps running on the background thread
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The constraints are not met anymore, abort the requests now and retry later
+        CancellationToken cancellation = syncCancellation;
+        if (cancellation != null) {
+            cancellation.cancel();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the requests to The Guardian API the way a shared and rate limited API key needs.
+ * <p>
+ * Every request first takes a token of the ApiQuotaManager. A request failing because of the
+ * network, a server error or the rate limiting is retried with a jittered exponential backoff,
+ * or after the delay the server asked for with Retry-After. A circuit breaker per endpoint stops
+ * sending requests for a while after repeated failures. When a request can not be sent, or
+ * fails anyway, the caller serves the last good news from its cache.
+ * This can be called from any thread.
+ */
+public class FetchPolicy {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = FetchPolicy.class.getSimpleName();
+
+    // Number of attempts of a request, the first one included
+    static final int MAX_ATTEMPTS = 3;
+
+    // Backoff before the first retry, doubled for every retry, and at most
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 8000;
+
+    // A retry is not worth waiting longer, the cached news are served instead
+    private static final long MAX_RETRY_DELAY_MILLIS = 10000;
+
+    // Consecutive failures that open the circuit of an endpoint, and how long it stays open
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 3;
+    private static final long CIRCUIT_INITIAL_OPEN_MILLIS = 30 * 1000;
+    private static final long CIRCUIT_MAX_OPEN_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Sends a single request. Returns the response, whatever its status code,
+     * or null if there was no response at all.
+     */
+    interface Transport {
+        EducationNewsResponse fetch(String url, String eTag, String lastModified,
+                                    CancellationToken cancellation);
+    }
+
+    // The single policy of the application
+    private static FetchPolicy instance;
+
+    // Quota of the API key
+    private final ApiQuotaManager quota;
+
+    // Sender of the requests
+    private final Transport transport;
+
+    // Circuit breaker of every endpoint, guarded by the map itself
+    private final Map<String, CircuitBreaker> circuitBreakers = new HashMap<>();
+
+    // Source of the jitter of the backoff
+    private final Random random = new Random();
+
+    /**
+     * Returns the policy of the application, sending the requests with Utils.
+     */
+    public static synchronized FetchPolicy getInstance(Context context) {
+        if (instance == null) {
+            instance = new FetchPolicy(ApiQuotaManager.getInstance(context), new Transport() {
+                @Override
+                public EducationNewsResponse fetch(String url, String eTag, String lastModified,
+                                                   CancellationToken cancellation) {
+                    return Utils.fetchEducationNewsResponse(url, eTag, lastModified, cancellation);
+                }
+            });
+        }
+        return instance;
+    }
+
+    /**
+     * Constructs a new FetchPolicy.
+     */
+    FetchPolicy(ApiQuotaManager quota, Transport transport) {
+        this.quota = quota;
+        this.transport = transport;
+    }
+
+    /**
+     * Send a conditional request, retrying it if it fails and it is worth it.
+     * Returns the successful response, or null if the request could not be sent or failed.
+     *
+     * @param url          is the URL of the query
+     * @param eTag         is the ETag of the cached response, or null
+     * @param lastModified is the Last-Modified date of the cached response, or null
+     * @param priority     is the priority of the request against the quota of the API key
+     * @param cancellation aborts the request and its retries, or null
+     */
+    public EducationNewsResponse fetch(String url, String eTag, String lastModified,
+                                       PrioritizedExecutor.Priority priority, CancellationToken cancellation) {
+        CircuitBreaker circuitBreaker = getCircuitBreaker(url);
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.allowRequest()) {
+                Log.d(LOG_TAG, "Too many failures, not sending the request for now.");
+                return null;
+            }
+            if (!quota.acquire(priority, cancellation)) {
+                circuitBreaker.onSkipped();
+                return null;
+            }
+
+            EducationNewsResponse response = transport.fetch(url, eTag, lastModified, cancellation);
+            if (response != null) {
+                quota.onResponse(response);
+                if (response.isSuccessful()) {
+                    circuitBreaker.onSuccess();
+                    return response;
+                }
+            }
+            if (isCancelled(cancellation)) {
+                circuitBreaker.onSkipped();
+                return null;
+            }
+            if (response != null && !isRetryable(response.getStatusCode())) {
+                // The request itself is wrong, the endpoint works and a retry would fail the same way
+                circuitBreaker.onSuccess();
+                return null;
+            }
+
+            long retryAfter = response != null
+                    ? response.getRetryAfterMillis() : EducationNewsResponse.UNKNOWN;
+            circuitBreaker.onFailure(retryAfter);
+            if (attempt >= MAX_ATTEMPTS) {
+                return null;
+            }
+            long delay = retryAfter >= 0 ? retryAfter : getBackoffDelay(attempt);
+            if (delay > MAX_RETRY_DELAY_MILLIS) {
+                return null;
+            }
+            Log.d(LOG_TAG, "Retrying the request in " + delay + " ms, attempt " + (attempt + 1) + ".");
+            if (!sleep(delay, cancellation)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns true if a request failing with the given status code can succeed later:
+     * rate limiting, timeouts and server errors.
+     */
+    static boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode == 408 || statusCode >= 500;
+    }
+
+    /**
+     * Returns the delay before the given retry: an exponential backoff, of which a random half
+     * is left out, so the clients that failed together do not all retry together.
+     */
+    long getBackoffDelay(int attempt) {
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+        long half = backoff / 2;
+        return half + (long) (random.nextDouble() * half);
+    }
+
+    /**
+     * Returns the circuit breaker of the endpoint of the URL, its host and path.
+     */
+    private CircuitBreaker getCircuitBreaker(String url) {
+        String endpoint;
+        try {
+            URL parsedUrl = new URL(url);
+            endpoint = parsedUrl.getHost() + parsedUrl.getPath();
+        } catch (MalformedURLException e) {
+            endpoint = url;
+        }
+        synchronized (circuitBreakers) {
+            CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+            if (circuitBreaker == null) {
+                circuitBreaker = new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD,
+                        CIRCUIT_INITIAL_OPEN_MILLIS, CIRCUIT_MAX_OPEN_MILLIS);
+                circuitBreakers.put(endpoint, circuitBreaker);
+            }
+            return circuitBreaker;
+        }
+    }
+
+    /**
+     * Wait for the given delay. Returns false if the request was cancelled or the thread
+     * interrupted in the meantime.
+     */
+    private static boolean sleep(long delayMillis, CancellationToken cancellation) {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        Runnable wakeUp = new Runnable() {
+            @Override
+            public void run() {
+                cancelled.countDown();
+            }
+        };
+        if (cancellation != null) {
+            cancellation.addOnCancelListener(wakeUp);
+        }
+        try {
+            return !cancelled.await(delayMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (cancellation != null) {
+                cancellation.removeOnCancelListener(wakeUp);
+            }
+        }
+    }
+
+    private static boolean isCancelled(CancellationToken cancellation) {
+        return cancellation != null && cancellation.isCancelled();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.android.newsapp;
+
+import android.view.Choreographer;
+
+/**
+ * Records the time between two frames in NewsMetrics.FRAME while it is started, usually while
+ * the list scrolls. At 60 frames per second a frame takes 16.7 ms, a longer time is a dropped
+ * frame. This is on the main thread.
+ */
+public class FrameTimeMonitor implements Choreographer.FrameCallback {
+
+    // Time of the previous frame, in System.nanoTime(), or 0 before the first frame
+    private long previousFrameTime;
+
+    // True between start() and stop()
+    private boolean started;
+
+    /**
+     * Start recording the frame times, from the next frame on.
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        previousFrameTime = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stop recording the frame times.
+     */
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!started) {
+            return;
+        }
+        if (previousFrameTime != 0) {
+            NewsMetrics.FRAME.record((frameTimeNanos - previousFrameTime) / 1000);
+        }
+        previousFrameTime = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
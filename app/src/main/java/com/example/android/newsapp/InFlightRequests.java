@@ -0,0 +1,163 @@
+package com.example.android.newsapp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Registry of the requests currently running, keyed by their URL.
+ * <p>
+ * When a request is started while an identical one is still running, for example because the
+ * activity was rotated or the background sync runs at the same time as the loader, the second
+ * caller does not send it again: it waits for the running request and gets the same result.
+ * A request is removed from the registry as soon as it completes, so results are never cached
+ * here, only shared between callers that overlap. A shared request is aborted only once all
+ * the callers waiting for it have been cancelled.
+ *
+ * @param <V> is the type of the result of the requests
+ */
+public class InFlightRequests<V> {
+
+    /**
+     * Performs a request, which must be aborted when the given token is cancelled.
+     */
+    public interface Request<V> {
+        V run(CancellationToken cancellation) throws Exception;
+    }
+
+    // The requests currently running, keyed by their URL, guarded by itself
+    private final Map<String, Call<V>> calls = new HashMap<>();
+
+    /**
+     * Run the request with the given URL on the calling thread, or wait for the identical request
+     * already running on another thread, and return its result. This blocks the calling thread.
+     *
+     * @param url          identifies the request
+     * @param cancellation is cancelled when this caller does not need the result anymore, or null
+     * @param request      performs the request, it is only called if no identical request is running
+     * @return the result of the request, or null if it failed or was cancelled
+     */
+    public V run(String url, CancellationToken cancellation, final Request<V> request) {
+        final Call<V> call;
+        boolean isOwner = false;
+        synchronized (calls) {
+            Call<V> runningCall = calls.get(url);
+            if (runningCall == null || runningCall.cancellation.isCancelled()) {
+                // No identical request is running, this caller runs it for everyone
+                runningCall = new Call<>(request);
+                calls.put(url, runningCall);
+                isOwner = true;
+            }
+            call = runningCall;
+            call.activeCallers++;
+        }
+
+        // Abort the shared request when the last caller waiting for it is cancelled
+        Runnable detachListener = new Runnable() {
+            @Override
+            public void run() {
+                boolean isLastCaller;
+                synchronized (calls) {
+                    isLastCaller = --call.activeCallers == 0;
+                }
+                if (isLastCaller) {
+                    call.cancellation.cancel();
+                }
+                // Wake up this caller if it is waiting for the request of another one
+                synchronized (call) {
+                    call.notifyAll();
+                }
+            }
+        };
+        if (cancellation != null) {
+            cancellation.addOnCancelListener(detachListener);
+        }
+
+        try {
+            if (isOwner) {
+                try {
+                    call.task.run();
+                } finally {
+                    synchronized (calls) {
+                        if (calls.get(url) == call) {
+                            calls.remove(url);
+                        }
+                    }
+                }
+            } else if (!awaitCompletion(call, cancellation)) {
+                // This caller was cancelled, the request goes on for the other ones
+                return null;
+            }
+            return call.task.get();
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (cancellation != null) {
+                cancellation.removeOnCancelListener(detachListener);
+            }
+        }
+    }
+
+    /**
+     * Wait until the request run by another caller completes. Returns false if this caller was
+     * cancelled first.
+     */
+    private static boolean awaitCompletion(Call<?> call, CancellationToken cancellation)
+            throws InterruptedException {
+        synchronized (call) {
+            while (!call.task.isDone()) {
+                if (cancellation != null && cancellation.isCancelled()) {
+                    return false;
+                }
+                call.wait();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of requests currently running.
+     */
+    public int size() {
+        synchronized (calls) {
+            return calls.size();
+        }
+    }
+
+    /**
+     * A running request and the callers waiting for it.
+     */
+    private static class Call<V> {
+
+        // Cancelled when no caller needs the result anymore
+        final CancellationToken cancellation = new CancellationToken();
+
+        // Performs the request, run by the first caller
+        final FutureTask<V> task;
+
+        // Number of callers waiting for the result that were not cancelled, guarded by the registry
+        int activeCallers;
+
+        Call(final Request<V> request) {
+            task = new FutureTask<V>(new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                    return request.run(cancellation);
+                }
+            }) {
+                @Override
+                protected void done() {
+                    // Wake up the callers waiting for the result
+                    synchronized (Call.this) {
+                        Call.this.notifyAll();
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.android.newsapp;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+
+/**
+ * Debug screen displaying the latency histograms recorded by NewsMetrics, and the requests
+ * sent and avoided by the RefreshScheduler.
+ * The histograms are also written to the log, so they can be exported with adb logcat.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    // Constant value for the log messages
+    private static final String LOG_TAG = MetricsActivity.class.getSimpleName();
+
+    // TextView displaying the histograms
+    private TextView metricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.metrics_activity);
+        metricsTextView = (TextView) findViewById(R.id.metrics_text_view);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.metrics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        // Clear the histograms, to measure only what happens from now on
+        if (item.getItemId() == R.id.action_reset_metrics) {
+            NewsMetrics.reset();
+            RefreshScheduler.getInstance(this).resetStats();
+            showMetrics();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showMetrics() {
+        String metrics = NewsMetrics.dump() + '\n' + RefreshScheduler.getInstance(this).getStats();
+        metricsTextView.setText(metrics);
+        Log.i(LOG_TAG, metrics);
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches the news of several sections in parallel and merges them into a single timeline.
+ * <p>
+ * One request is sent for every section on a bounded pool of threads, so the total latency is
+ * close to the one of the slowest request instead of the sum of all of them. The merged list is
+ * reported every time a section completes, sorted by publication date with the duplicates
+ * removed by URL. The requests of all the fetchers share the pool by priority, so the sections
+ * the user is waiting for are requested before the prefetch and the background sync.
+ * A fetcher is used for a single load and can be cancelled from another thread, which aborts
+ * its running requests.
+ */
+public class MultiSectionFetcher {
+
+    /**
+     * Loads the news of a single section. This is called on a thread of the pool.
+     */
+    public interface SectionLoader {
+
+        /**
+         * Returns the news of the section with the given URL, or null if they could not be loaded.
+         * Provisional news, for example stale cached ones, can be reported to the listener
+         * before the final ones are returned. The request must be aborted when the fetch is
+         * cancelled through the given token.
+         */
+        List<EducationNews> loadSection(String url, CancellationToken cancellation,
+                                        OnSectionLoadedListener provisionalListener);
+    }
+
+    /**
+     * Receives the news of a section before its load completes.
+     */
+    public interface OnSectionLoadedListener {
+        void onSectionLoaded(List<EducationNews> educationNews);
+    }
+
+    /**
+     * Receives the merged timeline every time a section completes. This is called on a
+     * background thread.
+     */
+    public interface OnMergedListener {
+        void onMerged(List<EducationNews> educationNews);
+    }
+
+    // Maximum number of requests sent at the same time, for all the loads together
+    static final int MAX_PARALLEL_REQUESTS = 4;
+
+    // Maximum time to wait for the request of a single section
+    static final long REQUEST_TIMEOUT_MILLIS = 20000;
+
+    // Bounded pool shared by all the fetchers, its threads stop when they are not used
+    private static final PrioritizedExecutor EXECUTOR =
+            new PrioritizedExecutor("SectionFetcher", MAX_PARALLEL_REQUESTS);
+
+    // Sorts the news from the most recent to the oldest one
+    private static final Comparator<EducationNews> NEWEST_FIRST = new Comparator<EducationNews>() {
+        @Override
+        public int compare(EducationNews first, EducationNews second) {
+            long firstDate = first.getNewsDate();
+            long secondDate = second.getNewsDate();
+            return firstDate < secondDate ? 1 : (firstDate == secondDate ? 0 : -1);
+        }
+    };
+
+    // Priority of the requests of this fetcher
+    private final PrioritizedExecutor.Priority priority;
+
+    // Requests of the current fetch, cancelled together
+    private final List<Future<?>> futures = new ArrayList<>();
+
+    // Cancelled with the fetch, aborts the requests that are running
+    private final CancellationToken cancellation = new CancellationToken();
+
+    /**
+     * Constructs a new MultiSectionFetcher.
+     *
+     * @param priority of its requests, compared with the requests of the other fetchers
+     */
+    public MultiSectionFetcher(PrioritizedExecutor.Priority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Fetch the news of all the given section URLs and return them merged into a single timeline.
+     * Sections that fail or time out are left out. This blocks the calling thread.
+     *
+     * @param urls           is the URL of every section
+     * @param sectionLoader  loads the news of a single section
+     * @param mergedListener receives the merged timeline every time a section completes, or null
+     */
+    public List<EducationNews> fetch(List<String> urls, final SectionLoader sectionLoader,
+                                     final OnMergedListener mergedListener) {
+        final int sectionCount = urls.size();
+        final List<List<EducationNews>> sectionNews =
+                new ArrayList<>(Collections.<List<EducationNews>>nCopies(sectionCount, null));
+
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                EXECUTOR.execute(task, priority);
+            }
+        });
+        int submitted = 0;
+        synchronized (futures) {
+            for (int i = 0; i < sectionCount; i++) {
+                if (cancellation.isCancelled()) {
+                    break;
+                }
+                final int index = i;
+                final String url = urls.get(i);
+                futures.add(completionService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        List<EducationNews> educationNews = sectionLoader.loadSection(url, cancellation,
+                                new OnSectionLoadedListener() {
+                                    @Override
+                                    public void onSectionLoaded(List<EducationNews> provisionalNews) {
+                                        publish(sectionNews, index, provisionalNews, mergedListener);
+                                    }
+                                });
+                        if (educationNews != null) {
+                            publish(sectionNews, index, educationNews, null);
+                        }
+                        return null;
+                    }
+                }));
+                submitted++;
+            }
+        }
+
+        // The requests wait in the queue when there are more sections than threads,
+        // so every wave of requests gets its own timeout
+        int waves = (sectionCount + MAX_PARALLEL_REQUESTS - 1) / MAX_PARALLEL_REQUESTS;
+        long deadline = System.currentTimeMillis() + waves * REQUEST_TIMEOUT_MILLIS;
+        try {
+            for (int completed = 0; completed < submitted && !cancellation.isCancelled(); completed++) {
+                long remaining = deadline - System.currentTimeMillis();
+                Future<Void> future = remaining > 0
+                        ? completionService.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                if (future == null) {
+                    // The slowest sections timed out, use the ones that completed
+                    break;
+                }
+                try {
+                    future.get();
+                } catch (ExecutionException | CancellationException e) {
+                    // This section failed, the other ones can still be displayed
+                    continue;
+                }
+                if (mergedListener != null && completed + 1 < sectionCount) {
+                    mergedListener.onMerged(merge(sectionNews));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Abort the sections that timed out, the other requests are already done
+            cancel();
+        }
+
+        return merge(sectionNews);
+    }
+
+    /**
+     * Cancel the requests that are still running or waiting, aborting their connections.
+     * This can be called from any thread.
+     */
+    public void cancel() {
+        // The running requests are aborted through the token. They are not interrupted: a
+        // request can be shared with other callers through InFlightRequests, and it is only
+        // aborted once all of them have been cancelled.
+        cancellation.cancel();
+        synchronized (futures) {
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Store the news of a section and report the merged timeline to the listener, if any.
+     */
+    private void publish(List<List<EducationNews>> sectionNews, int index,
+                         List<EducationNews> educationNews, OnMergedListener mergedListener) {
+        if (cancellation.isCancelled()) {
+            return;
+        }
+        synchronized (sectionNews) {
+            sectionNews.set(index, educationNews);
+        }
+        if (mergedListener != null) {
+            mergedListener.onMerged(merge(sectionNews));
+        }
+    }
+
+    /**
+     * Returns the news of all the sections loaded so far, sorted by publication date,
+     * with the news found in more than one section only once.
+     */
+    static List<EducationNews> merge(List<List<EducationNews>> sectionNews) {
+        List<EducationNews> merged = new ArrayList<>();
+        Set<String> urls = new HashSet<>();
+        synchronized (sectionNews) {
+            for (List<EducationNews> educationNews : sectionNews) {
+                if (educationNews == null) {
+                    continue;
+                }
+                for (EducationNews news : educationNews) {
+                    if (urls.add(news.getUrl())) {
+                        merged.add(news);
+                    }
+                }
+            }
+        }
+        Collections.sort(merged, NEWEST_FIRST);
+        return merged;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * The first rows of the list as they were last displayed, saved so that the next cold start
+ * can draw them before the loader, the cache or the network are even started.
+ * <p>
+ * The rows are stored in a NewsListFile, ready to be bound with their dates already formatted.
+ * The file is small enough to be read on the main thread while the activity is created, and
+ * it is only used if it was saved for the same sections as the ones currently selected.
+ * A snapshot written in an older format is ignored.
+ */
+public class NewsSnapshot {
+
+    // Constant value for the log messages
+    private static final String LOG_TAG = NewsSnapshot.class.getSimpleName();
+
+    // Maximum number of rows saved, a bit more than a screen of news
+    static final int MAX_ROWS = 20;
+
+    // Single background thread writing the snapshots, so they are written in order
+    private static final Executor WRITE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // News of the rows, and the date displayed in every row
+    private final List<EducationNews> news;
+    private final String[] formattedDates;
+
+    private NewsSnapshot(List<EducationNews> news, String[] formattedDates) {
+        this.news = news;
+        this.formattedDates = formattedDates;
+    }
+
+    /**
+     * Returns the news of the rows, in the order they were displayed.
+     */
+    public List<EducationNews> getNews() {
+        return news;
+    }
+
+    /**
+     * Returns the date displayed in the row at the given position.
+     */
+    public String getFormattedDate(int position) {
+        return formattedDates[position];
+    }
+
+    /**
+     * Read the snapshot saved for the given key, or return null if there is none,
+     * it was saved for another key or it can not be read.
+     *
+     * @param file is the file of the snapshot
+     * @param key  identifies what the rows were loaded for, such as the selected sections
+     */
+    public static NewsSnapshot read(File file, String key) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            NewsListFile listFile = NewsListFile.open(file);
+            if (!listFile.getKey().equals(key) || listFile.size() > MAX_ROWS) {
+                return null;
+            }
+            int count = listFile.size();
+            String[] formattedDates = new String[count];
+            for (int i = 0; i < count; i++) {
+                String formattedDate = listFile.getDateLabel(i);
+                formattedDates[i] = formattedDate != null ? formattedDate : "";
+            }
+            return new NewsSnapshot(Collections.unmodifiableList(listFile.getAll()), formattedDates);
+        } catch (IOException | IllegalStateException e) {
+            Log.w(LOG_TAG, "Problem reading the news snapshot.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Save the first rows of the given list in the background, replacing the previous snapshot.
+     *
+     * @param file is the file of the snapshot
+     * @param key  identifies what the rows were loaded for, such as the selected sections
+     * @param news is the list as it is displayed
+     */
+    public static void save(final File file, final String key, List<EducationNews> news) {
+        // Copy the rows now, the list may be replaced while the snapshot is written
+        final List<EducationNews> rows = new ArrayList<>(news.subList(0, Math.min(news.size(), MAX_ROWS)));
+        WRITE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(file, key, rows);
+            }
+        });
+    }
+
+    /**
+     * Write the rows, with their dates formatted, to the file.
+     * This is on a background thread.
+     */
+    static void write(File file, String key, List<EducationNews> rows) {
+        // Format the dates now, so the next start does not have to
+        NewsDateFormatter dateFormatter = new NewsDateFormatter();
+        String[] formattedDates = new String[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            formattedDates[i] = dateFormatter.format(rows.get(i).getNewsDate());
+        }
+        try {
+            NewsListFile.write(file, key, rows, formattedDates);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem writing the news snapshot.", e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of threads running the waiting tasks by priority.
+ * <p>
+ * The requests for the page the user is looking at run before the prefetch of the next pages,
+ * which run before the background sync. Tasks of the same priority run in the order they were
+ * submitted. A running task is never preempted, so the pool should have more than one thread.
+ */
+public class PrioritizedExecutor {
+
+    /**
+     * Priorities of the tasks, from the most urgent to the least urgent one.
+     */
+    public enum Priority {
+        // Requests for the news displayed on the screen
+        VISIBLE,
+        // Requests for the news displayed next, like the next page
+        PREFETCH,
+        // Requests nobody is waiting for, like the background sync
+        SYNC
+    }
+
+    // Threads of the pool, they stop when they are not used
+    private final ThreadPoolExecutor executor;
+
+    // Order in which the tasks were submitted, so tasks of the same priority run first in first out
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructs a new PrioritizedExecutor.
+     *
+     * @param name        is the prefix of the names of the threads
+     * @param threadCount is the maximum number of tasks running at the same time
+     */
+    public PrioritizedExecutor(final String name, int threadCount) {
+        executor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + " #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run the task on a thread of the pool, after the waiting tasks of a higher priority.
+     */
+    public void execute(Runnable task, Priority priority) {
+        executor.execute(new PrioritizedTask(task, priority, sequence.getAndIncrement()));
+    }
+
+    /**
+     * A task waiting in the queue, ordered by priority and then by submission order.
+     */
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+        private final Runnable task;
+        private final Priority priority;
+        private final long sequence;
+
+        PrioritizedTask(Runnable task, Priority priority, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (priority != other.priority) {
+                return priority.compareTo(other.priority);
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
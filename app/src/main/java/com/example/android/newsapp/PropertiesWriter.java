@@ -0,0 +1,109 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Saves small Properties files, like the counters of the quota and the refresh schedule, on a
+ * background thread.
+ * <p>
+ * save() only hands the values over, so it can be called on the main thread or while holding a
+ * lock. When several values are handed over before the previous ones are written, only the
+ * latest ones are written. Every file is written to a temporary file and renamed, so it is never
+ * read half written. This can be called from any thread.
+ */
+public class PropertiesWriter {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = PropertiesWriter.class.getSimpleName();
+
+    // Single background thread writing all the files, in the order they were saved
+    private static final Executor WRITE_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "PropertiesWriter");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // File where the values are written
+    private final File file;
+
+    // Executor the values are written on
+    private final Executor executor;
+
+    // Values saved and not written yet, or null
+    private final AtomicReference<Properties> pendingValues = new AtomicReference<>();
+
+    /**
+     * Constructs a new PropertiesWriter writing the given file on the shared background thread.
+     */
+    public PropertiesWriter(File file) {
+        this(file, WRITE_EXECUTOR);
+    }
+
+    /**
+     * Constructs a new PropertiesWriter writing the given file on the given executor.
+     */
+    PropertiesWriter(File file, Executor executor) {
+        this.file = file;
+        this.executor = executor;
+    }
+
+    /**
+     * Write the given values to the file in the background. They must not be modified anymore.
+     */
+    public void save(Properties values) {
+        // A write is already queued, it writes these values instead of the older ones
+        if (pendingValues.getAndSet(values) != null) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Properties latestValues = pendingValues.getAndSet(null);
+                if (latestValues != null) {
+                    write(latestValues);
+                }
+            }
+        });
+    }
+
+    /**
+     * Write the values to a temporary file and rename it. This is on the background thread.
+     */
+    private void write(Properties values) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        OutputStream output = null;
+        try {
+            output = new FileOutputStream(tempFile);
+            values.store(output, null);
+            output.close();
+            output = null;
+            if (!tempFile.renameTo(file)) {
+                Log.w(LOG_TAG, "Problem renaming " + file.getName() + ".");
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem writing " + file.getName() + ".", e);
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    // Nothing else to do, the values are written again with the next save
+                }
+            }
+            tempFile.delete();
+        }
+    }
+}
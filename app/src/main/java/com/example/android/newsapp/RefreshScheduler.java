@@ -0,0 +1,396 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Decides how long the news of every page stay fresh, from how often its section publishes.
+ * <p>
+ * Every time a page is fetched, the gaps between the publication dates of its news tell how
+ * often the section publishes, and the estimate of every page is smoothed over the fetches.
+ * A page is refreshed after half its usual gap, from a few minutes for a busy section to hours
+ * for a quiet one. Every refresh that brings no new news doubles the interval, up to a limit,
+ * and the first new news bring it back. Until a page was fetched once, the fixed time to live
+ * of the cache is used. The estimates are saved to a file, so they survive a restart.
+ * <p>
+ * The requests that the fixed time to live would have sent and the schedule avoided are counted
+ * when the repository serves a page from the cache, and reported by getStats(). Like the cache
+ * would have, a page is counted at most once per fixed time to live. This can be called from
+ * any thread.
+ */
+public class RefreshScheduler {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = RefreshScheduler.class.getSimpleName();
+
+    // Shortest and longest interval between two refreshes of a page
+    static final long MIN_INTERVAL_MILLIS = 2 * 60 * 1000;
+    static final long MAX_INTERVAL_MILLIS = 6 * 60 * 60 * 1000;
+
+    // Weight of the gap observed in a new fetch against the previous estimate
+    private static final double GAP_WEIGHT = 0.3;
+
+    // Maximum number of times the interval is doubled after refreshes without new news
+    private static final int MAX_BACKOFF = 3;
+
+    // Maximum number of pages with an estimate, the ones fetched the longest ago are dropped
+    private static final int MAX_PAGES = 64;
+
+    // Name of the file with the estimates, and the prefixes of their keys
+    private static final String FILE_NAME = "refresh_schedule";
+    private static final String KEY_AVOIDED = "avoided";
+    private static final String KEY_REFRESHES = "refreshes";
+    private static final String PREFIX_GAP = "gap.";
+    private static final String PREFIX_NEWEST = "newest.";
+    private static final String PREFIX_UNCHANGED = "unchanged.";
+    private static final String PREFIX_FETCHED = "fetched.";
+    private static final String PREFIX_AVOIDED = "avoidedAt.";
+
+    // The single scheduler of the application
+    private static RefreshScheduler instance;
+
+    // File where the estimates are saved, and its writer
+    private final File file;
+    private final PropertiesWriter writer;
+
+    // Interval used for the pages without an estimate
+    private final long defaultInterval;
+
+    // Estimate of every page by URL, the page fetched the longest ago first
+    private final LinkedHashMap<String, PageSchedule> pages = new LinkedHashMap<>();
+
+    // Requests the fixed time to live would have sent, and refreshes sent to the network
+    private long avoidedRequests;
+    private long refreshes;
+
+    /**
+     * Returns the scheduler of the application.
+     */
+    public static synchronized RefreshScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new RefreshScheduler(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                    EducationNewsCache.TIME_TO_LIVE_MILLIS);
+        }
+        return instance;
+    }
+
+    /**
+     * Constructs a new RefreshScheduler, with the estimates saved in the given file, if any.
+     *
+     * @param file            is the file where the estimates are saved
+     * @param defaultInterval is the interval of the pages without an estimate, in milliseconds
+     */
+    public RefreshScheduler(File file, long defaultInterval) {
+        this(file, defaultInterval, new PropertiesWriter(file));
+    }
+
+    /**
+     * Constructs a new RefreshScheduler writing the estimates on the given executor.
+     */
+    RefreshScheduler(File file, long defaultInterval, Executor writeExecutor) {
+        this(file, defaultInterval, new PropertiesWriter(file, writeExecutor));
+    }
+
+    private RefreshScheduler(File file, long defaultInterval, PropertiesWriter writer) {
+        this.file = file;
+        this.writer = writer;
+        this.defaultInterval = defaultInterval;
+        load();
+    }
+
+    /**
+     * Returns true if the news of the page fetched at the given time, in epoch milliseconds,
+     * are still fresh, so the page does not need to be refreshed.
+     */
+    public synchronized boolean isFresh(String pageUrl, long fetchedAt) {
+        long age = System.currentTimeMillis() - fetchedAt;
+        return age >= 0 && age < getRefreshInterval(pageUrl);
+    }
+
+    /**
+     * Returns true if the news of all the given pages, the oldest of them fetched at the given
+     * time in epoch milliseconds, are still fresh.
+     */
+    public synchronized boolean isFresh(List<String> pageUrls, long fetchedAt) {
+        long age = System.currentTimeMillis() - fetchedAt;
+        if (age < 0) {
+            return false;
+        }
+        for (String pageUrl : pageUrls) {
+            if (age >= getRefreshInterval(pageUrl)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Count a request avoided if the fixed time to live would have refreshed the page, fetched at
+     * the given time in epoch milliseconds, that is served from the cache instead. The cache would
+     * not have refreshed it again before another time to live, so the page is not counted again
+     * until then.
+     */
+    public synchronized void onServedFromCache(String pageUrl, long fetchedAt) {
+        PageSchedule page = pages.get(pageUrl);
+        long now = System.currentTimeMillis();
+        if (page == null || now - Math.max(fetchedAt, page.avoidedAt) < defaultInterval) {
+            return;
+        }
+        page.avoidedAt = now;
+        avoidedRequests++;
+        save();
+    }
+
+    /**
+     * Learn from the news of a page just fetched from the network, or revalidated with it.
+     */
+    public synchronized void onFetched(String pageUrl, List<EducationNews> educationNews) {
+        refreshes++;
+
+        // Publication dates of the news of the page, without the unknown ones
+        long newestDate = NewsDateFormatter.UNKNOWN_DATE;
+        long oldestDate = Long.MAX_VALUE;
+        int datedNews = 0;
+        for (EducationNews news : educationNews) {
+            long date = news.getNewsDate();
+            if (date != NewsDateFormatter.UNKNOWN_DATE) {
+                newestDate = Math.max(newestDate, date);
+                oldestDate = Math.min(oldestDate, date);
+                datedNews++;
+            }
+        }
+
+        PageSchedule page = pages.remove(pageUrl);
+        if (page == null) {
+            page = new PageSchedule();
+        }
+        if (datedNews >= 2 && newestDate > oldestDate) {
+            double gap = (double) (newestDate - oldestDate) / (datedNews - 1);
+            page.gapMillis = page.gapMillis > 0 ? GAP_WEIGHT * gap + (1 - GAP_WEIGHT) * page.gapMillis : gap;
+        }
+        if (newestDate != NewsDateFormatter.UNKNOWN_DATE && newestDate > page.newestDate) {
+            page.newestDate = newestDate;
+            page.unchangedRefreshes = 0;
+        } else {
+            page.unchangedRefreshes++;
+        }
+        page.fetchedAt = System.currentTimeMillis();
+
+        // The page moves to the end, it is the most recently fetched
+        pages.put(pageUrl, page);
+        trim();
+        save();
+        Log.d(LOG_TAG, "Refreshing " + pageUrl + " every " + getRefreshInterval(pageUrl) / 1000 + " s.");
+    }
+
+    /**
+     * Returns the time after which the news of the page should be refreshed, in milliseconds.
+     */
+    public synchronized long getRefreshInterval(String pageUrl) {
+        PageSchedule page = pages.get(pageUrl);
+        if (page == null || page.gapMillis <= 0) {
+            return defaultInterval;
+        }
+        long interval = (long) (page.gapMillis / 2) << Math.min(page.unchangedRefreshes, MAX_BACKOFF);
+        return Math.max(MIN_INTERVAL_MILLIS, Math.min(interval, MAX_INTERVAL_MILLIS));
+    }
+
+    /**
+     * Returns the counters of the requests sent and avoided, and the interval of every page.
+     */
+    public synchronized Stats getStats() {
+        Map<String, Long> intervals = new LinkedHashMap<>();
+        for (String pageUrl : pages.keySet()) {
+            intervals.put(pageUrl, getRefreshInterval(pageUrl));
+        }
+        return new Stats(avoidedRequests, refreshes, intervals);
+    }
+
+    /**
+     * Start counting the requests sent and avoided again, keeping the estimates.
+     */
+    public synchronized void resetStats() {
+        avoidedRequests = 0;
+        refreshes = 0;
+        save();
+    }
+
+    /**
+     * Drop the estimates of the pages fetched the longest ago.
+     */
+    private void trim() {
+        Iterator<String> iterator = pages.keySet().iterator();
+        while (pages.size() > MAX_PAGES) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Read the estimates saved by a previous process, if any.
+     */
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        Properties schedule = new Properties();
+        InputStream input = null;
+        try {
+            input = new FileInputStream(file);
+            schedule.load(input);
+            avoidedRequests = Long.parseLong(schedule.getProperty(KEY_AVOIDED, "0"));
+            refreshes = Long.parseLong(schedule.getProperty(KEY_REFRESHES, "0"));
+
+            List<Map.Entry<String, PageSchedule>> savedPages = new ArrayList<>();
+            for (String key : schedule.stringPropertyNames()) {
+                if (!key.startsWith(PREFIX_GAP)) {
+                    continue;
+                }
+                String pageUrl = key.substring(PREFIX_GAP.length());
+                PageSchedule page = new PageSchedule();
+                page.gapMillis = Double.parseDouble(schedule.getProperty(key));
+                page.newestDate = Long.parseLong(schedule.getProperty(PREFIX_NEWEST + pageUrl,
+                        String.valueOf(NewsDateFormatter.UNKNOWN_DATE)));
+                page.unchangedRefreshes = Integer.parseInt(schedule.getProperty(PREFIX_UNCHANGED + pageUrl, "0"));
+                page.fetchedAt = Long.parseLong(schedule.getProperty(PREFIX_FETCHED + pageUrl, "0"));
+                page.avoidedAt = Long.parseLong(schedule.getProperty(PREFIX_AVOIDED + pageUrl, "0"));
+                savedPages.add(new AbstractMap.SimpleEntry<>(pageUrl, page));
+            }
+
+            // Keep the pages in the order they were fetched
+            Collections.sort(savedPages, new Comparator<Map.Entry<String, PageSchedule>>() {
+                @Override
+                public int compare(Map.Entry<String, PageSchedule> first, Map.Entry<String, PageSchedule> second) {
+                    long difference = first.getValue().fetchedAt - second.getValue().fetchedAt;
+                    return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+                }
+            });
+            for (Map.Entry<String, PageSchedule> savedPage : savedPages) {
+                pages.put(savedPage.getKey(), savedPage.getValue());
+            }
+            trim();
+        } catch (IOException | NumberFormatException e) {
+            Log.w(LOG_TAG, "Problem reading the refresh schedule.", e);
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Save the estimates and the counters, so the next process starts from them. Only a copy of
+     * them is made here, the file is written on a background thread, so the callers holding the
+     * lock never wait for the disk.
+     */
+    private void save() {
+        Properties schedule = new Properties();
+        schedule.setProperty(KEY_AVOIDED, String.valueOf(avoidedRequests));
+        schedule.setProperty(KEY_REFRESHES, String.valueOf(refreshes));
+        for (Map.Entry<String, PageSchedule> entry : pages.entrySet()) {
+            String pageUrl = entry.getKey();
+            PageSchedule page = entry.getValue();
+            schedule.setProperty(PREFIX_GAP + pageUrl, String.valueOf(page.gapMillis));
+            schedule.setProperty(PREFIX_NEWEST + pageUrl, String.valueOf(page.newestDate));
+            schedule.setProperty(PREFIX_UNCHANGED + pageUrl, String.valueOf(page.unchangedRefreshes));
+            schedule.setProperty(PREFIX_FETCHED + pageUrl, String.valueOf(page.fetchedAt));
+            schedule.setProperty(PREFIX_AVOIDED + pageUrl, String.valueOf(page.avoidedAt));
+        }
+
+        writer.save(schedule);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing else to do, the estimates were read
+            }
+        }
+    }
+
+    /**
+     * What the scheduler learned about a page.
+     */
+    private static class PageSchedule {
+
+        // Estimate of the time between two news of the page, in milliseconds, or 0 if unknown
+        double gapMillis;
+
+        // Publication time of the newest news seen on the page
+        long newestDate = NewsDateFormatter.UNKNOWN_DATE;
+
+        // Number of refreshes in a row that brought no new news
+        int unchangedRefreshes;
+
+        // Time of the last fetch of the page, in epoch milliseconds
+        long fetchedAt;
+
+        // Time the last avoided request of the page was counted, in epoch milliseconds
+        long avoidedAt;
+    }
+
+    /**
+     * Counters of the requests sent and avoided by the schedule, and the interval of every page.
+     */
+    public static final class Stats {
+
+        private final long avoidedRequests;
+        private final long refreshes;
+        private final Map<String, Long> intervals;
+
+        Stats(long avoidedRequests, long refreshes, Map<String, Long> intervals) {
+            this.avoidedRequests = avoidedRequests;
+            this.refreshes = refreshes;
+            this.intervals = Collections.unmodifiableMap(intervals);
+        }
+
+        /**
+         * Returns the number of requests the fixed time to live of the cache would have sent,
+         * and the schedule avoided because the pages were not likely to have changed.
+         */
+        public long getAvoidedRequests() {
+            return avoidedRequests;
+        }
+
+        /**
+         * Returns the number of pages refreshed from the network.
+         */
+        public long getRefreshes() {
+            return refreshes;
+        }
+
+        /**
+         * Returns the refresh interval of every page with an estimate, in milliseconds.
+         */
+        public Map<String, Long> getIntervals() {
+            return intervals;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder output = new StringBuilder();
+            output.append("refresh.avoided ").append(avoidedRequests)
+                    .append("  refresh.sent ").append(refreshes).append('\n');
+            for (Map.Entry<String, Long> interval : intervals.entrySet()) {
+                output.append(interval.getValue() / 60000).append(" min  ").append(interval.getKey()).append('\n');
+            }
+            return output.toString();
+        }
+    }
+}
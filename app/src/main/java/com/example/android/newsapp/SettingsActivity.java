@@ -6,6 +6,11 @@ import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class SettingsActivity extends AppCompatActivity {
 
@@ -30,7 +35,13 @@ public class SettingsActivity extends AppCompatActivity {
 
         @Override
         public boolean onPreferenceChange(Preference preference, Object value) {
-            String stringValue = value.toString();
+            String stringValue;
+            if (value instanceof Set) {
+                // Several sections can be selected, display them sorted and separated by commas
+                stringValue = TextUtils.join(", ", new TreeSet<>((Set<?>) value));
+            } else {
+                stringValue = value.toString();
+            }
             preference.setSummary(stringValue);
             return true;
         }
@@ -39,8 +50,9 @@ public class SettingsActivity extends AppCompatActivity {
             preference.setOnPreferenceChangeListener(this);
             SharedPreferences preferences =
                     PreferenceManager.getDefaultSharedPreferences(preference.getContext());
-            String preferenceString = preferences.getString(preference.getKey(), "");
-            onPreferenceChange(preference, preferenceString);
+            Set<String> defaultSections = Collections.singleton(getString(R.string.settings_news_label));
+            Set<String> preferenceSet = preferences.getStringSet(preference.getKey(), defaultSections);
+            onPreferenceChange(preference, preferenceSet);
         }
     }
 }
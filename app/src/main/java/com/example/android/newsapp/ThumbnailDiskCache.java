@@ -0,0 +1,213 @@
+package com.example.android.newsapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Disk cache of the downloaded thumbnail images, keyed by their URL.
+ * <p>
+ * Every image is stored in its own file, named after the hash of its URL. The files are written
+ * to a temporary file first and renamed once complete, so a download that fails or is cancelled
+ * never leaves a truncated image behind. When the cache grows over its maximum size, the least
+ * recently used files are deleted. It can be used from several threads at the same time.
+ */
+public class ThumbnailDiskCache {
+
+    // Timeouts of the image downloads
+    private static final int CONNECT_TIMEOUT_MILLIS = 15000;
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
+    // Suffix of the files being downloaded
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    // Directory holding the cached images
+    private final File directory;
+
+    // Maximum total size of the cached images, in bytes
+    private final long maxBytes;
+
+    /**
+     * Constructs a new ThumbnailDiskCache.
+     *
+     * @param directory is the directory holding the cached images, created if needed
+     * @param maxBytes  is the maximum total size of the cached images
+     */
+    public ThumbnailDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached file of the image with the given URL, or null if it is not cached.
+     * Reading a file marks it as the most recently used one.
+     */
+    public File get(String url) {
+        File file = fileOf(url);
+        if (!file.isFile()) {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Returns the cached file of the image with the given URL, downloading it first if it is
+     * not cached yet. This blocks the calling thread, and stops with an InterruptedIOException
+     * if the thread is interrupted.
+     *
+     * @throws IOException if the image could not be downloaded
+     */
+    public File getOrDownload(String url) throws IOException {
+        File file = get(url);
+        if (file != null) {
+            return file;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create the directory " + directory);
+        }
+        File temporaryFile = File.createTempFile("thumbnail", TEMPORARY_SUFFIX, directory);
+        try {
+            download(url, temporaryFile);
+            file = fileOf(url);
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("Can not rename " + temporaryFile + " to " + file);
+            }
+        } finally {
+            // Nothing to delete if the download succeeded, the file was renamed
+            temporaryFile.delete();
+        }
+
+        trim();
+        return file;
+    }
+
+    /**
+     * Returns the total size of the cached images, in bytes.
+     */
+    public long size() {
+        long size = 0;
+        for (File file : listCachedFiles()) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    /**
+     * Download the image with the given URL into the given file.
+     */
+    private static void download(String url, File file) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) new URL(url).openConnection();
+        urlConnection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        urlConnection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        InputStream inputStream = null;
+        OutputStream outputStream = null;
+        try {
+            int responseCode = urlConnection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Error response code " + responseCode + " for " + url);
+            }
+            inputStream = urlConnection.getInputStream();
+            outputStream = new FileOutputStream(file);
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                // Stop as soon as the request is cancelled, the image is not needed anymore
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Download of " + url + " cancelled");
+                }
+                outputStream.write(buffer, 0, count);
+            }
+        } finally {
+            if (outputStream != null) {
+                outputStream.close();
+            }
+            if (inputStream != null) {
+                inputStream.close();
+            }
+        }
+    }
+
+    /**
+     * Delete the least recently used images until the cache is not bigger than its maximum size.
+     */
+    private synchronized void trim() {
+        File[] files = listCachedFiles();
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxBytes) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long firstModified = first.lastModified();
+                long secondModified = second.lastModified();
+                return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length && size > maxBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    /**
+     * Returns the cached images, without the ones being downloaded.
+     */
+    private File[] listCachedFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.isFile() && !file.getName().endsWith(TEMPORARY_SUFFIX)) {
+                files[count++] = file;
+            }
+        }
+        return Arrays.copyOf(files, count);
+    }
+
+    /**
+     * Returns the file of the image with the given URL.
+     */
+    private File fileOf(String url) {
+        return new File(directory, keyOf(url));
+    }
+
+    /**
+     * Returns the name of the file of the image with the given URL: the hexadecimal SHA-1
+     * of the URL, so it is short and only contains characters valid in file names.
+     */
+    static String keyOf(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(Charset.forName("UTF-8")));
+            StringBuilder key = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16));
+                key.append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
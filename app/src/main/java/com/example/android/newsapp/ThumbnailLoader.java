@@ -0,0 +1,359 @@
+package com.example.android.newsapp;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the thumbnails of the news into the ImageViews of the list.
+ * <p>
+ * The decoded thumbnails are kept in a memory cache sized after the memory class of the device,
+ * and the downloaded files in a ThumbnailDiskCache. Images are decoded on a background thread,
+ * downsampled to the size of the view, and into the memory of bitmaps that are not displayed or
+ * cached anymore when possible, so scrolling does not keep allocating new bitmaps. When a row is
+ * recycled, the request of its previous thumbnail is cancelled.
+ * <p>
+ * display() and clear() are called on the main thread.
+ */
+public class ThumbnailLoader {
+
+    // Constant value for the log messages
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+
+    // Part of the memory of the application used by the memory cache
+    private static final int MEMORY_CACHE_FRACTION = 8;
+
+    // Maximum size of the disk cache
+    private static final long DISK_CACHE_BYTES = 20 * 1024 * 1024;
+
+    // Maximum number of images downloaded and decoded at the same time
+    private static final int MAX_PARALLEL_REQUESTS = 3;
+
+    // Maximum number of bitmaps kept to decode the next images into
+    private static final int MAX_REUSABLE_BITMAPS = 8;
+
+    // Thumbnails have no transparency, so they are decoded with 2 bytes per pixel
+    private static final Bitmap.Config BITMAP_CONFIG = Bitmap.Config.RGB_565;
+    private static final int BYTES_PER_PIXEL = 2;
+
+    // The single loader shared by the whole application
+    private static ThumbnailLoader sInstance;
+
+    // Handler used to display the decoded thumbnails on the main thread
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Decoded thumbnails, keyed by their URL and size, only used on the main thread
+    private final LruCache<String, Bitmap> memoryCache;
+
+    // Bitmaps currently in the memory cache, and number of views displaying every bitmap.
+    // A bitmap can only be reused once it is in neither of them. Only used on the main thread.
+    private final Map<Bitmap, Boolean> cachedBitmaps = new IdentityHashMap<>();
+    private final Map<Bitmap, Integer> displayCounts = new IdentityHashMap<>();
+
+    // Bitmaps that are not used anymore, to decode the next images into
+    private final List<Bitmap> reusableBitmaps = new ArrayList<>();
+
+    // Thumbnail displayed by every view, and request running for it, if any
+    private final Map<ImageView, Bitmap> displayedBitmaps = new WeakHashMap<>();
+    private final Map<ImageView, Request> requests = new WeakHashMap<>();
+
+    // Downloaded thumbnail files
+    private final ThumbnailDiskCache diskCache;
+
+    // Threads downloading and decoding the thumbnails. The last request is run first,
+    // so the rows that just appeared on screen are loaded before the ones scrolled past.
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_PARALLEL_REQUESTS, MAX_PARALLEL_REQUESTS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingDeque<Runnable>() {
+                @Override
+                public boolean offer(Runnable runnable) {
+                    return offerFirst(runnable);
+                }
+            }, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ThumbnailLoader #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private ThumbnailLoader(Context context) {
+        // Use a fraction of the memory available to the application on this device
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryCacheBytes = activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CACHE_FRACTION;
+        memoryCache = new LruCache<String, Bitmap>(memoryCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldBitmap, Bitmap newBitmap) {
+                cachedBitmaps.remove(oldBitmap);
+                if (!displayCounts.containsKey(oldBitmap)) {
+                    addReusableBitmap(oldBitmap);
+                }
+            }
+        };
+        diskCache = new ThumbnailDiskCache(new File(context.getCacheDir(), "thumbnails"), DISK_CACHE_BYTES);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the loader of the application, creating it the first time it is needed.
+     */
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Display the thumbnail with the given URL in the view, downsampled to the given size.
+     * The thumbnail previously requested for the view, if any, is cancelled.
+     */
+    public void display(String url, ImageView imageView, int width, int height) {
+        String key = width + "x" + height + ":" + url;
+        Request request = requests.get(imageView);
+        if (request != null && request.key.equals(key)) {
+            // The same thumbnail is already being loaded for this view
+            return;
+        }
+
+        clear(imageView);
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            show(imageView, bitmap);
+            return;
+        }
+
+        request = new Request(key, url, imageView, width, height);
+        requests.put(imageView, request);
+        request.future = executor.submit(request);
+    }
+
+    /**
+     * Cancel the request of the view, if any, and remove its thumbnail.
+     */
+    public void clear(ImageView imageView) {
+        Request request = requests.remove(imageView);
+        if (request != null) {
+            request.cancel();
+        }
+
+        Bitmap bitmap = displayedBitmaps.remove(imageView);
+        imageView.setImageDrawable(null);
+        if (bitmap != null) {
+            int displayCount = displayCounts.get(bitmap) - 1;
+            if (displayCount > 0) {
+                displayCounts.put(bitmap, displayCount);
+            } else {
+                displayCounts.remove(bitmap);
+                if (!cachedBitmaps.containsKey(bitmap)) {
+                    addReusableBitmap(bitmap);
+                }
+            }
+        }
+    }
+
+    /**
+     * Display the bitmap in the view, and count it as displayed so it is not reused.
+     */
+    private void show(ImageView imageView, Bitmap bitmap) {
+        Integer displayCount = displayCounts.get(bitmap);
+        displayCounts.put(bitmap, displayCount == null ? 1 : displayCount + 1);
+        displayedBitmaps.put(imageView, bitmap);
+        imageView.setImageBitmap(bitmap);
+    }
+
+    /**
+     * Keep a bitmap that is not used anymore, to decode another image into it.
+     */
+    private void addReusableBitmap(Bitmap bitmap) {
+        if (!bitmap.isMutable()) {
+            return;
+        }
+        synchronized (reusableBitmaps) {
+            if (reusableBitmaps.size() < MAX_REUSABLE_BITMAPS) {
+                reusableBitmaps.add(bitmap);
+            }
+        }
+    }
+
+    /**
+     * Returns a bitmap that the image described by the options can be decoded into,
+     * removing it from the reusable bitmaps, or null if there is none.
+     */
+    private Bitmap takeReusableBitmap(BitmapFactory.Options options) {
+        synchronized (reusableBitmaps) {
+            Iterator<Bitmap> iterator = reusableBitmaps.iterator();
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                if (canDecodeInto(bitmap, options)) {
+                    iterator.remove();
+                    return bitmap;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the image described by the options can be decoded into the bitmap.
+     * Since KitKat any bitmap that is big enough can be used, before that the bitmap
+     * must have exactly the same size as the image and the image can not be downsampled.
+     */
+    private static boolean canDecodeInto(Bitmap bitmap, BitmapFactory.Options options) {
+        if (bitmap.isRecycled() || bitmap.getConfig() != BITMAP_CONFIG) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            int width = options.outWidth / options.inSampleSize;
+            int height = options.outHeight / options.inSampleSize;
+            return width * height * BYTES_PER_PIXEL <= bitmap.getAllocationByteCount();
+        }
+        return bitmap.getWidth() == options.outWidth
+                && bitmap.getHeight() == options.outHeight
+                && options.inSampleSize == 1;
+    }
+
+    /**
+     * Decode the image file, downsampled to at least the given size.
+     * This is on a background thread.
+     */
+    private Bitmap decode(File file, int width, int height) {
+        // Read the size of the image first, without decoding it
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inPreferredConfig = BITMAP_CONFIG;
+        options.inMutable = true;
+        options.inBitmap = takeReusableBitmap(options);
+        try {
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            // The image could not be decoded into the reused bitmap, decode it into a new one
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+
+    /**
+     * Returns the largest power of two the image can be divided by while staying at least as big
+     * as the requested size, so it is decoded with as few pixels as possible.
+     */
+    static int calculateInSampleSize(int imageWidth, int imageHeight, int width, int height) {
+        int inSampleSize = 1;
+        if (width <= 0 || height <= 0) {
+            return inSampleSize;
+        }
+        while (imageWidth / (inSampleSize * 2) >= width && imageHeight / (inSampleSize * 2) >= height) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * The loading of a thumbnail for a view, cancelled when the view is given another thumbnail.
+     */
+    private class Request implements Runnable {
+
+        final String key;
+        final String url;
+        final ImageView imageView;
+        final int width;
+        final int height;
+        volatile Future<?> future;
+        volatile boolean cancelled;
+
+        Request(String key, String url, ImageView imageView, int width, int height) {
+            this.key = key;
+            this.url = url;
+            this.imageView = imageView;
+            this.width = width;
+            this.height = height;
+        }
+
+        void cancel() {
+            cancelled = true;
+            Future<?> requestFuture = future;
+            if (requestFuture != null) {
+                // Interrupt the download, the image is not needed anymore
+                requestFuture.cancel(true);
+            }
+        }
+
+        /**
+         * Download and decode the thumbnail. This is on a background thread.
+         */
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            final Bitmap bitmap;
+            try {
+                File file = diskCache.getOrDownload(url);
+                if (cancelled) {
+                    return;
+                }
+                bitmap = decode(file, width, height);
+            } catch (IOException e) {
+                if (!cancelled) {
+                    Log.w(LOG_TAG, "Problem loading the thumbnail " + url, e);
+                }
+                return;
+            }
+            if (bitmap == null) {
+                return;
+            }
+
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // Display the thumbnail first, so it is never reused while it is on screen
+                    if (requests.get(imageView) == Request.this) {
+                        requests.remove(imageView);
+                        show(imageView, bitmap);
+                    }
+                    // Keep the thumbnail even if the row was recycled, it may come back on screen
+                    cachedBitmaps.put(bitmap, Boolean.TRUE);
+                    memoryCache.put(key, bitmap);
+                }
+            });
+        }
+    }
+}
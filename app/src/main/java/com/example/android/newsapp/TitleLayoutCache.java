@@ -0,0 +1,186 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Text layouts of the titles of the list, computed ahead of time on a background thread.
+ * <p>
+ * Measuring a long title and breaking it into lines is the most expensive part of binding a
+ * row. The adapter asks for the layouts of the next rows while the user scrolls, and they are
+ * computed with the width of the rows and the text appearance of the titles, then kept by the
+ * URL of the news. Binding a row only attaches the prepared layout to its TitleLayoutView.
+ * A title that was not prepared in time is laid out on the main thread, like a TextView would.
+ */
+public class TitleLayoutCache {
+
+    // Number of layouts kept, a few screens of rows
+    private static final int MAX_LAYOUTS = 200;
+
+    // Single background thread computing the layouts, in the order the rows were asked for
+    private static final Executor LAYOUT_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "TitleLayoutCache");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // The single cache of the application
+    private static TitleLayoutCache sInstance;
+
+    // Text appearance of the titles. It is only copied, every layout gets its own paint,
+    // so the main thread drawing a title never shares a paint with the background thread.
+    private final TextPaint titlePaint;
+
+    // Layouts of the titles by URL of the news
+    private final LruCache<String, StaticLayout> layouts = new LruCache<>(MAX_LAYOUTS);
+
+    // Width of the titles in the rows, in pixels, or 0 until a row was measured
+    private volatile int textWidth;
+
+    // Incremented every time the rows to prepare change, so the outdated requests are skipped
+    private volatile int generation;
+
+    // False to lay out every title on the main thread, to compare the frame times
+    private volatile boolean precomputeEnabled = true;
+
+    @SuppressWarnings("deprecation")
+    private TitleLayoutCache(Context context) {
+        Resources resources = context.getResources();
+        titlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        titlePaint.density = resources.getDisplayMetrics().density;
+        titlePaint.setTextSize(resources.getDimension(R.dimen.textSize_title));
+        titlePaint.setColor(resources.getColor(R.color.news_title));
+        titlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+    }
+
+    /**
+     * Returns the cache of the application, creating it the first time it is needed.
+     */
+    public static synchronized TitleLayoutCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new TitleLayoutCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Set the width of the titles, measured by a row. The layouts of another width are dropped.
+     * This is on the main thread.
+     */
+    public void setTextWidth(int width) {
+        if (width != textWidth) {
+            textWidth = width;
+            generation++;
+            layouts.evictAll();
+        }
+    }
+
+    /**
+     * Returns the width of the titles, or 0 if no row was measured yet.
+     */
+    public int getTextWidth() {
+        return textWidth;
+    }
+
+    /**
+     * Returns the prepared layout of the title of the news with the given URL, or null if it was
+     * not prepared for this title and width.
+     */
+    public StaticLayout get(String url, String title, int width) {
+        StaticLayout layout = layouts.get(url);
+        if (layout != null && layout.getWidth() == width && TextUtils.equals(layout.getText(), title)) {
+            return layout;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the prepared layout of the title, or lay it out now if it was not prepared in time.
+     * This is on the main thread.
+     */
+    public StaticLayout getOrCreate(String url, String title, int width) {
+        StaticLayout layout = precomputeEnabled ? get(url, title, width) : null;
+        if (layout == null) {
+            long startTime = System.nanoTime();
+            layout = createLayout(title, width);
+            NewsMetrics.TITLE_LAYOUT_MAIN.recordSince(startTime);
+            if (precomputeEnabled) {
+                layouts.put(url, layout);
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Prepare the layouts of the titles of the given rows on the background thread, replacing
+     * the rows asked for before. Nothing is prepared until the width of the rows is known.
+     *
+     * @param educationNews is the list of news of the adapter, which is never modified
+     * @param start         is the position of the first row to prepare
+     * @param count         is the number of rows to prepare
+     */
+    public void prefetch(final List<EducationNews> educationNews, final int start, final int count) {
+        final int width = textWidth;
+        if (!precomputeEnabled || width <= 0) {
+            return;
+        }
+        final int prefetchGeneration = ++generation;
+        LAYOUT_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                int end = Math.min(educationNews.size(), start + count);
+                for (int position = start; position < end; position++) {
+                    // Newer rows were asked for, or the width changed
+                    if (prefetchGeneration != generation) {
+                        return;
+                    }
+                    EducationNews news = educationNews.get(position);
+                    if (get(news.getUrl(), news.getTitle(), width) == null) {
+                        layouts.put(news.getUrl(), createLayout(news.getTitle(), width));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Enable or disable the layouts prepared on the background thread, to measure the difference.
+     */
+    public void setPrecomputeEnabled(boolean enabled) {
+        precomputeEnabled = enabled;
+        generation++;
+        layouts.evictAll();
+    }
+
+    /**
+     * Lay out the title with the text appearance of the titles of the list, as a TextView would.
+     */
+    @SuppressWarnings("deprecation")
+    private StaticLayout createLayout(String title, int width) {
+        TextPaint paint = new TextPaint(titlePaint);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            // The TextView of the framework breaks the lines with the high quality strategy since API 23
+            return StaticLayout.Builder.obtain(title, 0, title.length(), paint, width)
+                    .setBreakStrategy(Layout.BREAK_STRATEGY_HIGH_QUALITY)
+                    .setHyphenationFrequency(Layout.HYPHENATION_FREQUENCY_NORMAL)
+                    .build();
+        }
+        return new StaticLayout(title, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+    }
+}
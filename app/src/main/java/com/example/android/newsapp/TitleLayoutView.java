@@ -0,0 +1,81 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.StaticLayout;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Displays the title of a news with a text layout prepared by the TitleLayoutCache, instead of
+ * measuring and breaking the title into lines on the main thread like a TextView.
+ * The text appearance of the titles is the one of the TitleLayoutCache, only the padding is
+ * taken from the layout file.
+ */
+public class TitleLayoutView extends View {
+
+    // Cache of the prepared layouts
+    private final TitleLayoutCache titleLayouts;
+
+    // URL and title of the news displayed
+    private String url;
+    private String title;
+
+    // Layout of the title, or null until the view is measured
+    private StaticLayout layout;
+
+    public TitleLayoutView(Context context) {
+        this(context, null);
+    }
+
+    public TitleLayoutView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        titleLayouts = TitleLayoutCache.getInstance(context);
+    }
+
+    /**
+     * Display the title of the news with the given URL, with its prepared layout if there is one.
+     */
+    public void setTitle(String url, String title) {
+        this.url = url;
+        this.title = title;
+        setContentDescription(title);
+
+        StaticLayout preparedLayout = titleLayouts.get(url, title, titleLayouts.getTextWidth());
+        // A layout of the same height does not change the size of the row, so only redraw it
+        boolean sameHeight = preparedLayout != null && layout != null
+                && preparedLayout.getWidth() == layout.getWidth()
+                && preparedLayout.getHeight() == layout.getHeight();
+        layout = preparedLayout;
+        if (!sameHeight) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int textWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+
+        // The first row measured tells the cache the width of the titles
+        titleLayouts.setTextWidth(textWidth);
+        if (title != null && (layout == null || layout.getWidth() != textWidth)) {
+            layout = titleLayouts.getOrCreate(url, title, textWidth);
+        }
+
+        int height = getPaddingTop() + getPaddingBottom() + (layout != null ? layout.getHeight() : 0);
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (layout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        layout.draw(canvas);
+        canvas.restore();
+    }
+}
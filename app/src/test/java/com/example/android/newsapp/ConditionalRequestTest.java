@@ -0,0 +1,108 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import static org.junit.Assert.*;
+
+/**
+ * Conditional requests against a local server: the validators of the cached response are sent,
+ * and a "304 Not Modified" keeps the cached list with the validators of the new answer.
+ */
+public class ConditionalRequestTest {
+
+    private static final String LAST_MODIFIED = "Fri, 28 Jul 2017 10:15:30 GMT";
+
+    // Body of the page, with a single news
+    private static final byte[] PAGE = ("{\"response\":{\"status\":\"ok\",\"results\":[{"
+            + "\"webTitle\":\"Exam results day\",\"sectionName\":\"Education\","
+            + "\"webPublicationDate\":\"2017-07-28T10:15:30Z\","
+            + "\"webUrl\":\"https://www.theguardian.com/education/2017/jul/28/exam-results\"}]}}").getBytes();
+
+    private HttpServer server;
+
+    // ETag of the current version of the page, the one the server sends
+    private volatile String currentETag = "\"v1\"";
+
+    // Validators received with the last request
+    private volatile String receivedETag;
+    private volatile String receivedLastModified;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedETag = exchange.getRequestHeaders().getFirst("If-None-Match");
+                receivedLastModified = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+                exchange.getResponseHeaders().add("ETag", currentETag);
+                if (receivedETag != null || receivedLastModified != null) {
+                    // Like the API, a 304 sends the ETag again but not the Last-Modified date
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+                exchange.sendResponseHeaders(200, PAGE.length);
+                OutputStream body = exchange.getResponseBody();
+                body.write(PAGE);
+                body.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void firstRequest_sendsNoValidators() {
+        EducationNewsResponse response = Utils.fetchEducationNewsResponse(pageUrl(), null, null, null);
+
+        assertNull(receivedETag);
+        assertNull(receivedLastModified);
+        assertEquals(200, response.getStatusCode());
+        assertEquals(1, response.getNews().size());
+        assertEquals("\"v1\"", response.getETag());
+        assertEquals(LAST_MODIFIED, response.getLastModified());
+    }
+
+    @Test
+    public void notModified_keepsTheCachedListWithTheNewValidators() {
+        EducationNewsResponse first = Utils.fetchEducationNewsResponse(pageUrl(), null, null, null);
+        EducationNewsCache.Entry cachedNews = new EducationNewsCache.Entry(first.getNews(), 1000,
+                first.getETag(), first.getLastModified());
+
+        // The server changed its ETag without changing the page
+        currentETag = "\"v2\"";
+        EducationNewsResponse response = Utils.fetchEducationNewsResponse(pageUrl(),
+                cachedNews.getETag(), cachedNews.getLastModified(), null);
+
+        assertEquals("\"v1\"", receivedETag);
+        assertEquals(LAST_MODIFIED, receivedLastModified);
+        assertTrue(response.isNotModified());
+
+        EducationNewsCache.Entry revalidated = cachedNews.revalidated(response, 2000);
+        assertSame(cachedNews.getNews(), revalidated.getNews());
+        assertEquals(2000, revalidated.getFetchedAt());
+        assertEquals("\"v2\"", revalidated.getETag());
+        // The server did not send the date again, the cached one is kept
+        assertEquals(LAST_MODIFIED, revalidated.getLastModified());
+    }
+
+    private String pageUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/search?q=education&page=1";
+    }
+}
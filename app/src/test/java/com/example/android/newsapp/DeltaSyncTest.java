@@ -0,0 +1,91 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Merging the news of a delta sync into the cached page of a busy section, where every news of
+ * the page was published on the day of the from-date, and moving the oldest ones to the next page.
+ */
+public class DeltaSyncTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    // Publication time of the newest cached news, the news are a minute apart
+    private static final long NEWEST_CACHED = 1501236930000L;
+
+    @Test
+    public void busySection_mergesTheNewNewsOnTopOfTheCachedPage() {
+        List<EducationNews> cachedPage = news(0, PAGE_SIZE);
+        // Two new news, then the newest cached ones sent again because of the day granularity
+        List<EducationNews> delta = news(-2, EducationNewsQuery.DELTA_PAGE_SIZE);
+
+        List<EducationNews> mergedNews = EducationNewsRepository.mergeDelta(cachedPage, delta,
+                EducationNewsQuery.DELTA_PAGE_SIZE);
+
+        assertNotNull(mergedNews);
+        assertEquals(urls(news(-2, PAGE_SIZE + 2)), urls(mergedNews));
+    }
+
+    @Test
+    public void newNews_pushTheOldestOnesToTheNextPage() {
+        List<EducationNews> cachedPage = news(0, PAGE_SIZE);
+        List<EducationNews> cachedNextPage = news(PAGE_SIZE, PAGE_SIZE);
+        List<EducationNews> delta = news(-2, EducationNewsQuery.DELTA_PAGE_SIZE);
+
+        List<EducationNews> mergedNews = EducationNewsRepository.mergeDelta(cachedPage, delta,
+                EducationNewsQuery.DELTA_PAGE_SIZE);
+        List<EducationNews> page = mergedNews.subList(0, PAGE_SIZE);
+        List<EducationNews> nextPage = EducationNewsRepository.prependToPage(
+                mergedNews.subList(PAGE_SIZE, mergedNews.size()), cachedNextPage);
+
+        // Every news is still in one of the two pages, once, in order
+        List<EducationNews> bothPages = new ArrayList<>(page);
+        bothPages.addAll(nextPage);
+        assertEquals(urls(news(-2, 2 * PAGE_SIZE + 2)), urls(bothPages));
+    }
+
+    @Test
+    public void nothingNew_keepsTheCachedPage() {
+        List<EducationNews> cachedPage = news(0, PAGE_SIZE);
+        List<EducationNews> delta = news(0, EducationNewsQuery.DELTA_PAGE_SIZE);
+
+        List<EducationNews> mergedNews = EducationNewsRepository.mergeDelta(cachedPage, delta,
+                EducationNewsQuery.DELTA_PAGE_SIZE);
+
+        assertEquals(urls(cachedPage), urls(mergedNews));
+    }
+
+    @Test
+    public void fullDeltaOfNewNews_asksForTheWholePage() {
+        List<EducationNews> cachedPage = news(0, PAGE_SIZE);
+        List<EducationNews> delta = news(-EducationNewsQuery.DELTA_PAGE_SIZE, EducationNewsQuery.DELTA_PAGE_SIZE);
+
+        assertNull(EducationNewsRepository.mergeDelta(cachedPage, delta, EducationNewsQuery.DELTA_PAGE_SIZE));
+    }
+
+    /**
+     * Returns count news, newest first, starting from the given index. Index 0 is the newest
+     * cached news and negative indexes are newer.
+     */
+    private static List<EducationNews> news(int from, int count) {
+        List<EducationNews> news = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            news.add(new EducationNews("News " + i, "Education", NEWEST_CACHED - i * 60000L,
+                    "https://www.theguardian.com/education/2017/jul/28/news-" + i));
+        }
+        return news;
+    }
+
+    private static List<String> urls(List<EducationNews> news) {
+        List<String> urls = new ArrayList<>();
+        for (EducationNews item : news) {
+            urls.add(item.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Simulation of the fetch policy against a local server enforcing the rate limits of the API:
+ * a per-second limit answered with "429 Too Many Requests" and Retry-After, and a daily quota
+ * reported in the X-RateLimit-Remaining-day header. The requests go through Utils, as in the app.
+ */
+public class FetchPolicySimulationTest {
+
+    // Per-second and daily limits of the simulated API key
+    private static final int REQUESTS_PER_SECOND = 20;
+    private static final int REQUESTS_PER_DAY = 1000;
+
+    // Body of every successful response, a page without results
+    private static final byte[] EMPTY_PAGE = "{\"response\":{\"status\":\"ok\",\"results\":[]}}".getBytes();
+
+    private HttpServer server;
+    private File quotaFile;
+
+    // Requests received by the server, and the ones answered with 429
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger rateLimitedCount = new AtomicInteger();
+
+    // Behaviour of the server: requests answered with 429 before the normal behaviour,
+    // status code of every other request, and daily quota the server reports as remaining
+    private final AtomicInteger forcedRateLimits = new AtomicInteger();
+    private volatile int statusCode = 200;
+    private volatile int remainingDailyQuota = REQUESTS_PER_DAY;
+
+    // Second of the current rate limiting window, and requests received in it
+    private long windowSecond;
+    private int windowCount;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                exchange.getResponseHeaders().add(Utils.REMAINING_DAILY_QUOTA, String.valueOf(remainingDailyQuota));
+                if (forcedRateLimits.getAndDecrement() > 0 || isOverRateLimit()) {
+                    rateLimitedCount.incrementAndGet();
+                    exchange.getResponseHeaders().add("Retry-After", "1");
+                    exchange.sendResponseHeaders(429, -1);
+                    exchange.close();
+                } else if (statusCode != 200) {
+                    exchange.sendResponseHeaders(statusCode, -1);
+                    exchange.close();
+                } else {
+                    exchange.sendResponseHeaders(200, EMPTY_PAGE.length);
+                    OutputStream body = exchange.getResponseBody();
+                    body.write(EMPTY_PAGE);
+                    body.close();
+                }
+            }
+        });
+        server.start();
+
+        quotaFile = File.createTempFile("api_quota", "");
+        assertTrue(quotaFile.delete());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        quotaFile.delete();
+    }
+
+    @Test
+    public void burstOfRequests_staysUnderServerRateLimit() throws Exception {
+        final FetchPolicy fetchPolicy = newFetchPolicy(newQuota());
+        final AtomicInteger successCount = new AtomicInteger();
+
+        // Four sections loading five pages each, all at once
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int page = 1; page <= 5; page++) {
+                        if (fetch(fetchPolicy, PrioritizedExecutor.Priority.VISIBLE) != null) {
+                            successCount.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(20, successCount.get());
+        assertEquals(0, rateLimitedCount.get());
+    }
+
+    @Test
+    public void rateLimitedResponse_isRetriedAfterRetryAfter() {
+        FetchPolicy fetchPolicy = newFetchPolicy(newQuota());
+        forcedRateLimits.set(1);
+
+        long startTime = System.currentTimeMillis();
+        EducationNewsResponse response = fetch(fetchPolicy, PrioritizedExecutor.Priority.VISIBLE);
+
+        assertNotNull(response);
+        assertTrue(response.isSuccessful());
+        assertEquals(2, requestCount.get());
+        assertTrue(System.currentTimeMillis() - startTime >= 900);
+    }
+
+    @Test
+    public void serverErrors_openCircuitAndStopRequests() {
+        FetchPolicy fetchPolicy = newFetchPolicy(newQuota());
+        statusCode = 503;
+
+        // The first fetch tries every attempt, which opens the circuit
+        assertNull(fetch(fetchPolicy, PrioritizedExecutor.Priority.VISIBLE));
+        assertEquals(FetchPolicy.MAX_ATTEMPTS, requestCount.get());
+
+        // The next fetches fail right away, without reaching the server
+        long startTime = System.currentTimeMillis();
+        assertNull(fetch(fetchPolicy, PrioritizedExecutor.Priority.VISIBLE));
+        assertNull(fetch(fetchPolicy, PrioritizedExecutor.Priority.SYNC));
+        assertEquals(FetchPolicy.MAX_ATTEMPTS, requestCount.get());
+        assertTrue(System.currentTimeMillis() - startTime < 500);
+    }
+
+    @Test
+    public void clientErrors_areNotRetried() {
+        FetchPolicy fetchPolicy = newFetchPolicy(newQuota());
+        statusCode = 403;
+
+        assertNull(fetch(fetchPolicy, PrioritizedExecutor.Priority.VISIBLE));
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void lowDailyQuota_isKeptForVisibleRequests() {
+        ApiQuotaManager quota = newQuota();
+        FetchPolicy fetchPolicy = newFetchPolicy(quota);
+
+        // The server reports that other devices used most of the daily quota of the shared key
+        remainingDailyQuota = REQUESTS_PER_DAY / 10;
+        assertNotNull(fetch(fetchPolicy, PrioritizedExecutor.Priority.VISIBLE));
+        assertTrue(quota.isConserving());
+
+        // The background sync stops, the pages the user is looking at are still loaded
+        assertNull(fetch(fetchPolicy, PrioritizedExecutor.Priority.SYNC));
+        assertEquals(1, requestCount.get());
+        assertNotNull(fetch(fetchPolicy, PrioritizedExecutor.Priority.PREFETCH));
+        assertNotNull(fetch(fetchPolicy, PrioritizedExecutor.Priority.VISIBLE));
+        assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    public void counters_persistAcrossRestarts() {
+        FetchPolicy fetchPolicy = newFetchPolicy(newQuota());
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(fetch(fetchPolicy, PrioritizedExecutor.Priority.VISIBLE));
+        }
+
+        // A new process reads the counters saved by the previous one
+        ApiQuotaManager restartedQuota = newQuota();
+        assertEquals(REQUESTS_PER_DAY - 3, restartedQuota.getRemainingToday());
+    }
+
+    @Test
+    public void cancelledRequest_isNotRetried() throws Exception {
+        FetchPolicy fetchPolicy = newFetchPolicy(newQuota());
+        statusCode = 503;
+        final CancellationToken cancellation = new CancellationToken();
+
+        // Cancel while the policy waits before the first retry
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                cancellation.cancel();
+            }
+        }).start();
+        long startTime = System.currentTimeMillis();
+        assertNull(fetchPolicy.fetch(urlOf("/search?q=education"), null, null,
+                PrioritizedExecutor.Priority.VISIBLE, cancellation));
+
+        assertEquals(1, requestCount.get());
+        assertTrue(System.currentTimeMillis() - startTime < 1000);
+    }
+
+    /**
+     * Returns true if the request goes over the per-second limit of the server.
+     */
+    private synchronized boolean isOverRateLimit() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != windowSecond) {
+            windowSecond = second;
+            windowCount = 0;
+        }
+        return ++windowCount > REQUESTS_PER_SECOND;
+    }
+
+    private ApiQuotaManager newQuota() {
+        // The counters are written before the methods return, so a restart reads them right away
+        return new ApiQuotaManager(quotaFile, REQUESTS_PER_SECOND, REQUESTS_PER_DAY, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    private static FetchPolicy newFetchPolicy(ApiQuotaManager quota) {
+        return new FetchPolicy(quota, new FetchPolicy.Transport() {
+            @Override
+            public EducationNewsResponse fetch(String url, String eTag, String lastModified,
+                                               CancellationToken cancellation) {
+                return Utils.fetchEducationNewsResponse(url, eTag, lastModified, cancellation);
+            }
+        });
+    }
+
+    private EducationNewsResponse fetch(FetchPolicy fetchPolicy, PrioritizedExecutor.Priority priority) {
+        return fetchPolicy.fetch(urlOf("/search?q=education"), null, null, priority, null);
+    }
+
+    private String urlOf(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * A request shared by two callers, the loader running it and the sync waiting for it.
+ */
+public class InFlightRequestsTest {
+
+    private static final String URL = "https://content.guardianapis.com/search?q=education&page=1";
+
+    private final InFlightRequests<String> requests = new InFlightRequests<>();
+
+    // Released to let the shared request complete
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    // Counted down once the shared request is running
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    // Token of the shared request, cancelled when no caller needs it anymore
+    private volatile CancellationToken requestCancellation;
+
+    @Test
+    public void cancelledOwner_doesNotAbortTheRequestOfTheOtherCaller() throws Exception {
+        CancellationToken loaderCancellation = new CancellationToken();
+        Thread loader = startCaller(loaderCancellation, new AtomicReference<String>());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        AtomicReference<String> syncResult = new AtomicReference<>();
+        Thread sync = startCaller(new CancellationToken(), syncResult);
+        waitUntilWaiting(sync);
+
+        loaderCancellation.cancel();
+        assertFalse(requestCancellation.isCancelled());
+        release.countDown();
+        loader.join(5000);
+        sync.join(5000);
+
+        assertEquals("news", syncResult.get());
+    }
+
+    @Test
+    public void allCallersCancelled_abortTheRequest() throws Exception {
+        CancellationToken loaderCancellation = new CancellationToken();
+        Thread loader = startCaller(loaderCancellation, new AtomicReference<String>());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CancellationToken syncCancellation = new CancellationToken();
+        AtomicReference<String> syncResult = new AtomicReference<>("not returned");
+        Thread sync = startCaller(syncCancellation, syncResult);
+        waitUntilWaiting(sync);
+
+        syncCancellation.cancel();
+        // The waiting caller returns right away, without waiting for the request
+        sync.join(5000);
+        assertFalse(sync.isAlive());
+        assertNull(syncResult.get());
+        assertFalse(requestCancellation.isCancelled());
+
+        loaderCancellation.cancel();
+        assertTrue(requestCancellation.isCancelled());
+        release.countDown();
+        loader.join(5000);
+    }
+
+    /**
+     * Start a thread running the request with the given token, and storing its result.
+     */
+    private Thread startCaller(final CancellationToken cancellation, final AtomicReference<String> result) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.set(requests.run(URL, cancellation, new InFlightRequests.Request<String>() {
+                    @Override
+                    public String run(CancellationToken cancellation) throws Exception {
+                        requestCancellation = cancellation;
+                        started.countDown();
+                        release.await();
+                        return "news";
+                    }
+                }));
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+    }
+}
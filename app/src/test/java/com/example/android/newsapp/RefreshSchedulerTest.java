@@ -0,0 +1,138 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the refresh schedule learned from the publication dates of the sections.
+ */
+public class RefreshSchedulerTest {
+
+    private static final String BUSY_PAGE = "http://content.guardianapis.com/search?q=education&page=1";
+    private static final String QUIET_PAGE = "http://content.guardianapis.com/search?q=scholarships&page=1";
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DEFAULT_INTERVAL = 5 * MINUTE;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("refresh_schedule", "");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void unknownPage_usesTheDefaultInterval() {
+        RefreshScheduler scheduler = newScheduler();
+
+        assertEquals(DEFAULT_INTERVAL, scheduler.getRefreshInterval(BUSY_PAGE));
+        assertTrue(scheduler.isFresh(BUSY_PAGE, System.currentTimeMillis() - 4 * MINUTE));
+        assertFalse(scheduler.isFresh(BUSY_PAGE, System.currentTimeMillis() - 6 * MINUTE));
+    }
+
+    @Test
+    public void interval_followsThePublishRate() {
+        RefreshScheduler scheduler = newScheduler();
+        long now = System.currentTimeMillis();
+        // A news every 20 minutes, and one every two days
+        scheduler.onFetched(BUSY_PAGE, newsList(now, 20 * MINUTE, 10));
+        scheduler.onFetched(QUIET_PAGE, newsList(now, 48 * HOUR, 10));
+
+        assertEquals(10 * MINUTE, scheduler.getRefreshInterval(BUSY_PAGE));
+        assertEquals(RefreshScheduler.MAX_INTERVAL_MILLIS, scheduler.getRefreshInterval(QUIET_PAGE));
+    }
+
+    @Test
+    public void quietSection_avoidsTheRequestsOfTheDefaultInterval() {
+        RefreshScheduler scheduler = newScheduler();
+        long now = System.currentTimeMillis();
+        scheduler.onFetched(QUIET_PAGE, newsList(now, 48 * HOUR, 10));
+
+        // Checking the freshness counts nothing
+        assertTrue(scheduler.isFresh(QUIET_PAGE, now - HOUR));
+        assertTrue(scheduler.isFresh(Arrays.asList(QUIET_PAGE), now - HOUR));
+        assertEquals(0, scheduler.getStats().getAvoidedRequests());
+
+        // Served right after the fetch: nothing to avoid
+        scheduler.onServedFromCache(QUIET_PAGE, now - MINUTE);
+        assertEquals(0, scheduler.getStats().getAvoidedRequests());
+
+        // Served an hour after the fetch: the default interval would have sent a request,
+        // and no other one before another default interval
+        scheduler.onServedFromCache(QUIET_PAGE, now - HOUR);
+        scheduler.onServedFromCache(QUIET_PAGE, now - HOUR);
+        scheduler.onServedFromCache(QUIET_PAGE, now - HOUR);
+
+        RefreshScheduler.Stats stats = scheduler.getStats();
+        assertEquals(1, stats.getAvoidedRequests());
+        assertEquals(1, stats.getRefreshes());
+    }
+
+    @Test
+    public void refreshesWithoutNewNews_backOff() {
+        RefreshScheduler scheduler = newScheduler();
+        long now = System.currentTimeMillis();
+        List<EducationNews> news = newsList(now, 20 * MINUTE, 10);
+        scheduler.onFetched(BUSY_PAGE, news);
+        scheduler.onFetched(BUSY_PAGE, news);
+        assertEquals(20 * MINUTE, scheduler.getRefreshInterval(BUSY_PAGE));
+        scheduler.onFetched(BUSY_PAGE, news);
+        assertEquals(40 * MINUTE, scheduler.getRefreshInterval(BUSY_PAGE));
+
+        // A new news brings the interval back
+        scheduler.onFetched(BUSY_PAGE, newsList(now + 20 * MINUTE, 20 * MINUTE, 10));
+        assertEquals(10 * MINUTE, scheduler.getRefreshInterval(BUSY_PAGE));
+    }
+
+    @Test
+    public void schedule_isSavedAcrossRestarts() {
+        RefreshScheduler scheduler = newScheduler();
+        scheduler.onFetched(BUSY_PAGE, newsList(System.currentTimeMillis(), 20 * MINUTE, 10));
+
+        RefreshScheduler restarted = newScheduler();
+        assertEquals(10 * MINUTE, restarted.getRefreshInterval(BUSY_PAGE));
+        assertEquals(1, restarted.getStats().getRefreshes());
+    }
+
+    /**
+     * Returns a scheduler saving its estimates to the file before its methods return.
+     */
+    private RefreshScheduler newScheduler() {
+        return new RefreshScheduler(file, DEFAULT_INTERVAL, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    /**
+     * Returns news published every gap milliseconds, the newest at the given time.
+     */
+    private static List<EducationNews> newsList(long newestDate, long gap, int count) {
+        List<EducationNews> news = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long date = newestDate - i * gap;
+            news.add(new EducationNews("News " + date, "Education", date,
+                    "https://www.theguardian.com/education/" + date));
+        }
+        return news;
+    }
+}
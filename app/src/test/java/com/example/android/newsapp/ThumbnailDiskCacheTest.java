@@ -0,0 +1,134 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the thumbnail disk cache, with a local HTTP server standing in for the image server.
+ */
+public class ThumbnailDiskCacheTest {
+
+    // Size of every image served by the local server
+    private static final int IMAGE_SIZE = 100;
+
+    private HttpServer server;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        // Serve IMAGE_SIZE bytes for every path starting with /images/, and 404 for the other ones
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                if (exchange.getRequestURI().getPath().startsWith("/images/")) {
+                    byte[] image = new byte[IMAGE_SIZE];
+                    Arrays.fill(image, (byte) exchange.getRequestURI().getPath().length());
+                    exchange.sendResponseHeaders(200, image.length);
+                    OutputStream body = exchange.getResponseBody();
+                    body.write(image);
+                    body.close();
+                } else {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+
+        directory = File.createTempFile("thumbnails", "");
+        assertTrue(directory.delete());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void getOrDownload_downloadsOnceThenReadsFromDisk() throws Exception {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, 10 * IMAGE_SIZE);
+        String url = urlOf("/images/a.jpg");
+
+        File downloaded = cache.getOrDownload(url);
+        File cached = cache.getOrDownload(url);
+
+        assertEquals(downloaded, cached);
+        assertEquals(IMAGE_SIZE, readFile(cached).length);
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void getOrDownload_evictsLeastRecentlyUsedImages() throws Exception {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, 2 * IMAGE_SIZE);
+        String oldestUrl = urlOf("/images/a.jpg");
+        String recentUrl = urlOf("/images/b.jpg");
+
+        cache.getOrDownload(oldestUrl).setLastModified(1000000);
+        cache.getOrDownload(recentUrl).setLastModified(2000000);
+        cache.getOrDownload(urlOf("/images/c.jpg"));
+
+        assertNull(cache.get(oldestUrl));
+        assertNotNull(cache.get(recentUrl));
+        assertEquals(2 * IMAGE_SIZE, cache.size());
+    }
+
+    @Test
+    public void getOrDownload_doesNotCacheFailedDownloads() throws Exception {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, 10 * IMAGE_SIZE);
+        String url = urlOf("/missing.jpg");
+
+        try {
+            cache.getOrDownload(url);
+            fail("The download of a missing image should fail");
+        } catch (IOException expected) {
+            // The server answered 404
+        }
+
+        assertNull(cache.get(url));
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    private String urlOf(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] content = new byte[(int) file.length()];
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < content.length) {
+                offset += inputStream.read(content, offset, content.length - offset);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return content;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of BulkFetcher against a local server answering every query with a page of
+ * 10 results after a delay, which stands for the latency of the real API.
+ * <p>
+ * Every invocation fetches a batch of queries, so the throughput is reported in requests per
+ * second. With a latency of L ms, c concurrent requests can do at most c * 1000 / L requests per
+ * second: compare how close the virtual threads and the pool of threads get to it, and their
+ * allocation rates reported by the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkFetchBenchmark {
+
+    // Number of queries fetched by every invocation
+    private static final int BATCH_SIZE = 1000;
+
+    // Number of requests running at the same time
+    @Param({"16", "256"})
+    public int concurrency;
+
+    // True to run the requests on virtual threads, when the JVM has them
+    @Param({"true", "false"})
+    public boolean virtualThreads;
+
+    // Time the server takes to answer, in milliseconds
+    @Param({"0", "20"})
+    public int latencyMillis;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private BulkFetcher fetcher;
+    private List<String> urls;
+
+    @Setup
+    public void setUp() throws IOException {
+        final byte[] page = Fixtures.read(10);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (latencyMillis > 0) {
+                    try {
+                        Thread.sleep(latencyMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, page.length);
+                OutputStream body = exchange.getResponseBody();
+                body.write(page);
+                body.close();
+            }
+        });
+        // The server must not be the bottleneck: a thread for every concurrent request
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        // Keep a pooled connection for every concurrent request
+        System.setProperty("http.maxConnections", String.valueOf(concurrency));
+        fetcher = new BulkFetcher(concurrency, virtualThreads);
+        if (virtualThreads && !fetcher.usesVirtualThreads()) {
+            System.err.println("This JVM has no virtual threads, the requests run on a pool of threads.");
+        }
+
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/search?q=education&page=";
+        urls = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= BATCH_SIZE; i++) {
+            urls.add(baseUrl + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int fetchAll() throws InterruptedException {
+        return fetcher.fetchAll(urls, null, new BulkFetcher.ResultListener() {
+            @Override
+            public void onResult(String url, EducationNewsResponse response) {
+                // Only the successful responses are counted
+            }
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Guardian search responses used by the benchmarks, in src/main/resources/fixtures.
+ * <p>
+ * Every fixture is a page of the given number of results, with all the fields the
+ * content API returns, including the ones the app skips.
+ */
+final class Fixtures {
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static methods.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * Returns the bytes of the response with the given number of results: 10, 50 or 200.
+     */
+    static byte[] read(int resultCount) throws IOException {
+        String name = "/fixtures/guardian_" + resultCount + ".json";
+        InputStream inputStream = Fixtures.class.getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
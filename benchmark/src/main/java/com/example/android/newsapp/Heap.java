@@ -0,0 +1,31 @@
+package com.example.android.newsapp;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Measures the heap kept by the objects the benchmarks build, outside of the measured calls.
+ */
+final class Heap {
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static methods.
+     */
+    private Heap() {
+    }
+
+    /**
+     * Returns the heap used after collecting everything that is not reachable.
+     */
+    static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // A single GC may leave objects that are only released by the next one
+        for (int i = 0; i < 4; i++) {
+            memory.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
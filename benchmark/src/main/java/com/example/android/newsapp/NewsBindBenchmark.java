@@ -0,0 +1,106 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work EducationNewsAdapter.onBindViewHolder does for a row, without the views:
+ * reading the fields of the news, with the URLs used as the keys of the title layout and of
+ * the thumbnail, and formatting its publication date.
+ * <p>
+ * bindRowBefore is the bind of the ListView adapter before the dates were parsed once:
+ * two new SimpleDateFormat and a parse of the date text for every row. Compare the
+ * gc.alloc.rate.norm of the two benchmarks for the bytes allocated per bind.
+ * <p>
+ * TextView.setText needs the Android framework, so it is left out. A regression here shows up
+ * as dropped frames while scrolling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NewsBindBenchmark {
+
+    // News of the largest fixture, bound one row after the other as when scrolling
+    private List<EducationNews> educationNews;
+
+    // Publication dates as the API returns them, which the adapter parsed before
+    private String[] dateTexts;
+
+    // Formatter kept by the adapter
+    private NewsDateFormatter dateFormatter;
+
+    // Position of the next row to bind
+    private int position;
+
+    @Setup
+    public void setUp() throws IOException {
+        educationNews = new ArrayList<>();
+        EducationNewsJsonParser.parse(new InputStreamReader(
+                new ByteArrayInputStream(Fixtures.read(200)), Charset.forName("UTF-8")), educationNews);
+        dateFormatter = new NewsDateFormatter();
+
+        SimpleDateFormat apiFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        apiFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        dateTexts = new String[educationNews.size()];
+        for (int i = 0; i < dateTexts.length; i++) {
+            dateTexts[i] = apiFormat.format(new Date(educationNews.get(i).getNewsDate()));
+        }
+    }
+
+    @Benchmark
+    public void bindRow(Blackhole blackhole) {
+        EducationNews currentNews = educationNews.get(position);
+        position = (position + 1) % educationNews.size();
+
+        blackhole.consume(currentNews.getUrl());
+        blackhole.consume(currentNews.getTitle());
+        blackhole.consume(currentNews.getNewsSection());
+        blackhole.consume(dateFormatter.format(currentNews.getNewsDate()));
+        blackhole.consume(currentNews.getThumbnailUrl());
+    }
+
+    @Benchmark
+    public void bindRowBefore(Blackhole blackhole) {
+        EducationNews currentNews = educationNews.get(position);
+        String dateText = dateTexts[position];
+        position = (position + 1) % educationNews.size();
+
+        blackhole.consume(currentNews.getUrl());
+        blackhole.consume(currentNews.getTitle());
+        blackhole.consume(currentNews.getNewsSection());
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+        SimpleDateFormat dateFormat2 = new SimpleDateFormat("EEEE dd MMMM yyyy", Locale.US);
+        try {
+            Date date = dateFormat.parse(dateText);
+            blackhole.consume(dateFormat2.format(date));
+        } catch (ParseException e) {
+            blackhole.consume(e);
+        }
+        blackhole.consume(currentNews.getThumbnailUrl());
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap kept by a history of 10k and 100k news in the representation the app used before
+ * (one object with a String per field), in compact EducationNews objects and in a
+ * CompactNewsStore.
+ * <p>
+ * Every operation builds a history and keeps it until the next one, the time only tells how
+ * long building it took. It is not returned, the blackhole of JMH could keep an older one
+ * alive. The bytes it retains are reported as the retainedBytes and bytesPerNews counters: the
+ * used heap after a full GC with the last history alive, at the end of the iteration, minus the
+ * used heap at its start, before any history was built.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class NewsFootprintBenchmark {
+
+    // Number of news in the history
+    @Param({"10000", "100000"})
+    public int newsCount;
+
+    // News of the largest fixture, repeated with a different title and URL to make the history
+    private List<EducationNews> fixtureNews;
+
+    /**
+     * A news as the app stored it before, every field a String of its own as the parser read it.
+     */
+    static final class LegacyNews {
+        final String newsTitle;
+        final String newsSection;
+        final String newsDate;
+        final String newsUrl;
+        final String thumbnailUrl;
+
+        LegacyNews(String title, String section, String date, String url, String thumbnailUrl) {
+            newsTitle = title;
+            newsSection = section;
+            newsDate = date;
+            newsUrl = url;
+            this.thumbnailUrl = thumbnailUrl;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        fixtureNews = new ArrayList<>();
+        EducationNewsJsonParser.parse(new InputStreamReader(new ByteArrayInputStream(Fixtures.read(200)),
+                ResponseBodyReader.UTF_8), fixtureNews);
+    }
+
+    /**
+     * Heap retained by the history, reported as secondary results of every benchmark.
+     * <p>
+     * JMH adds up the counters of all the measurement iterations, so they are only recorded
+     * by the first one and the score is the footprint itself.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        // Bytes retained by the whole history, and by every news
+        public long retainedBytes;
+        public long bytesPerNews;
+
+        // History built by the last operation, kept alive until the next one, and its size.
+        // It is kept here, next to the helpers measuring it at the start and end of the iteration
+        private Object history;
+        private int historySize;
+
+        // Used heap at the start of the iteration, without any history
+        private long baseline;
+
+        // True once a measurement iteration recorded the footprint
+        private boolean recorded;
+
+        @Setup(Level.Iteration)
+        public void measureBaseline() {
+            history = null;
+            baseline = Heap.usedHeap();
+        }
+
+        @TearDown(Level.Iteration)
+        public void record(IterationParams iteration) {
+            if (recorded || iteration.getType() != IterationType.MEASUREMENT) {
+                return;
+            }
+            retainedBytes = Heap.usedHeap() - baseline;
+            bytesPerNews = retainedBytes / historySize;
+            recorded = true;
+        }
+
+        /**
+         * Release the history of the previous operation, so only one is alive at a time.
+         */
+        void release() {
+            history = null;
+        }
+
+        /**
+         * Keep the history built by the operation alive until the next one.
+         */
+        void keep(Object newHistory, int size) {
+            history = newHistory;
+            historySize = size;
+        }
+    }
+
+    @Benchmark
+    public void legacyObjects(Footprint footprint) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        footprint.release();
+        List<LegacyNews> newHistory = new ArrayList<>(newsCount);
+        for (int i = 0; i < newsCount; i++) {
+            EducationNews news = fixtureNews.get(i % fixtureNews.size());
+            // New strings, as every parsed response creates its own
+            newHistory.add(new LegacyNews(title(news, i), new String(news.getNewsSection()),
+                    dateFormat.format(new Date(news.getNewsDate())), url(news, i),
+                    thumbnailUrl(news)));
+        }
+        footprint.keep(newHistory, newsCount);
+    }
+
+    @Benchmark
+    public void compactObjects(Footprint footprint) {
+        footprint.release();
+        List<EducationNews> newHistory = new ArrayList<>(newsCount);
+        for (int i = 0; i < newsCount; i++) {
+            newHistory.add(copy(fixtureNews.get(i % fixtureNews.size()), i));
+        }
+        footprint.keep(newHistory, newsCount);
+    }
+
+    @Benchmark
+    public void compactStore(Footprint footprint) {
+        footprint.release();
+        CompactNewsStore newHistory = new CompactNewsStore();
+        for (int i = 0; i < newsCount; i++) {
+            newHistory.add(copy(fixtureNews.get(i % fixtureNews.size()), i));
+        }
+        footprint.keep(newHistory, newsCount);
+    }
+
+    /**
+     * Returns the i-th news of the history, with new strings as the parser would create them.
+     */
+    private static EducationNews copy(EducationNews news, int i) {
+        return new EducationNews(title(news, i), new String(news.getNewsSection()), news.getNewsDate(),
+                url(news, i), thumbnailUrl(news));
+    }
+
+    private static String title(EducationNews news, int i) {
+        return news.getTitle() + " " + i;
+    }
+
+    private static String url(EducationNews news, int i) {
+        return news.getUrl() + "-" + i;
+    }
+
+    private static String thumbnailUrl(EducationNews news) {
+        String thumbnailUrl = news.getThumbnailUrl();
+        return thumbnailUrl == null ? null : new String(thumbnailUrl);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restoring a list of news from disk: parsing the JSON of the API again, as a cache storing
+ * the responses would have to, against reading the binary NewsListFile.
+ * <p>
+ * The sizes of the JSON and of the file are reported with the results of the throughput mode,
+ * as the jsonBytes and fileBytes counters, to compare them as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NewsListFileBenchmark {
+
+    // Number of results in the list
+    @Param({"10", "50", "200"})
+    public int resultCount;
+
+    // Bytes of the JSON response
+    private byte[] json;
+
+    // The same news in a NewsListFile
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = Fixtures.read(resultCount);
+        List<EducationNews> news = new ArrayList<>();
+        EducationNewsJsonParser.parse(new InputStreamReader(new ByteArrayInputStream(json),
+                ResponseBodyReader.UTF_8), news);
+
+        file = File.createTempFile("news_list", "");
+        NewsListFile.write(file, "benchmark", news, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Sizes on disk of the list, reported as secondary results of every benchmark.
+     * <p>
+     * JMH adds up the counters of all the measurement iterations, so they are only recorded
+     * by the first one and the score is the size itself.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+
+        // Bytes of the JSON response and of the NewsListFile
+        public long jsonBytes;
+        public long fileBytes;
+
+        // True once a measurement iteration recorded the sizes
+        private boolean recorded;
+
+        @TearDown(Level.Iteration)
+        public void record(NewsListFileBenchmark benchmark, IterationParams iteration) {
+            if (recorded || iteration.getType() != IterationType.MEASUREMENT) {
+                return;
+            }
+            jsonBytes = benchmark.json.length;
+            fileBytes = benchmark.file.length();
+            recorded = true;
+        }
+    }
+
+    /**
+     * Parse the JSON of the response, with the streaming parser of the network path.
+     */
+    @Benchmark
+    public List<EducationNews> parseJson(Sizes sizes) throws IOException {
+        List<EducationNews> news = new ArrayList<>();
+        EducationNewsJsonParser.parse(new InputStreamReader(new ByteArrayInputStream(json),
+                ResponseBodyReader.UTF_8), news);
+        return news;
+    }
+
+    /**
+     * Map the file and read all its news.
+     */
+    @Benchmark
+    public List<EducationNews> readAll(Sizes sizes) throws IOException {
+        return NewsListFile.open(file).getAll();
+    }
+
+    /**
+     * Map the file and read the news in its middle only.
+     */
+    @Benchmark
+    public EducationNews readOneRow(Sizes sizes) throws IOException {
+        NewsListFile listFile = NewsListFile.open(file);
+        return listFile.get(listFile.size() / 2);
+    }
+}
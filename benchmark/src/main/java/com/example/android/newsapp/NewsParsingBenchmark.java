@@ -0,0 +1,172 @@
+package com.example.android.newsapp;
+
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading, parsing and model construction of a Guardian search response.
+ * <p>
+ * The DOM path reads the whole response into a String with Utils.readFromStream and builds
+ * the news with Utils.extractFeatureFromJson. The streaming path is the parser used for the
+ * network responses, EducationNewsJsonParser reading from the response bytes.
+ * <p>
+ * The two whole paths also report the peakHeapBytes counter: the heap kept by the objects they
+ * hold at the same time at the end of a parse, besides the response bytes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NewsParsingBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Number of results in the response
+    @Param({"10", "50", "200"})
+    public int resultCount;
+
+    // Bytes of the response, as received from the network
+    private byte[] response;
+
+    // The response already read into a String
+    private String responseJson;
+
+    // Title, section, date and URL of every result, already extracted from the response
+    private String[][] fields;
+
+    @Setup
+    public void setUp() throws IOException {
+        response = Fixtures.read(resultCount);
+        responseJson = new String(response, UTF_8);
+
+        List<EducationNews> educationNews = Utils.extractFeatureFromJson(responseJson);
+        fields = new String[educationNews.size()][];
+        for (int i = 0; i < fields.length; i++) {
+            EducationNews news = educationNews.get(i);
+            fields[i] = new String[]{news.getTitle(), news.getNewsSection(),
+                    "2017-07-28T10:15:30Z", news.getUrl()};
+        }
+    }
+
+    /**
+     * Heap high-water mark of a parse, reported as a secondary result of the two whole paths.
+     * <p>
+     * It is measured on the first measurement iteration only, because JMH adds up the counters
+     * of all of them: the parse runs once more with the objects alive at its end kept reachable,
+     * and the used heap after a full GC is compared with the one before it.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PeakHeap {
+
+        // Bytes kept by the parse at its peak
+        public long peakHeapBytes;
+
+        // Objects of the measured parse, kept reachable until the heap is measured
+        private Object[] alive;
+
+        // True once a measurement iteration recorded the peak
+        private boolean recorded;
+
+        @TearDown(Level.Iteration)
+        public void record(BenchmarkParams benchmark, IterationParams iteration) throws IOException {
+            if (recorded || iteration.getType() != IterationType.MEASUREMENT) {
+                return;
+            }
+            byte[] response = Fixtures.read(Integer.parseInt(benchmark.getParam("resultCount")));
+            long baseline = Heap.usedHeap();
+            if (benchmark.getBenchmark().endsWith(".readAndExtract")) {
+                // The String, the JSONObject tree extractFeatureFromJson builds from it, and the news
+                String json = Utils.readFromStream(new ByteArrayInputStream(response));
+                alive = new Object[]{json, new JSONObject(json), Utils.extractFeatureFromJson(json)};
+            } else {
+                // The reader with its decoding buffer, the buffer of the JSON reader, and the news
+                Reader reader = new InputStreamReader(new ByteArrayInputStream(response), UTF_8);
+                List<EducationNews> educationNews = new ArrayList<>();
+                alive = new Object[]{reader, new JsonReader(reader), educationNews};
+                EducationNewsJsonParser.parse(reader, educationNews);
+            }
+            peakHeapBytes = Heap.usedHeap() - baseline;
+            alive = null;
+            recorded = true;
+        }
+    }
+
+    /**
+     * Reading only: the response bytes into a String.
+     */
+    @Benchmark
+    public String readFromStream() throws IOException {
+        return Utils.readFromStream(new ByteArrayInputStream(response));
+    }
+
+    /**
+     * Parsing and model construction from a String, with JSONObject.
+     */
+    @Benchmark
+    public List<EducationNews> extractFeatureFromJson() {
+        return Utils.extractFeatureFromJson(responseJson);
+    }
+
+    /**
+     * The whole DOM path: reading the response into a String and parsing it.
+     */
+    @Benchmark
+    public List<EducationNews> readAndExtract(PeakHeap peakHeap) throws IOException {
+        return Utils.extractFeatureFromJson(Utils.readFromStream(new ByteArrayInputStream(response)));
+    }
+
+    /**
+     * The whole streaming path: parsing straight from the response bytes.
+     */
+    @Benchmark
+    public List<EducationNews> streamingParse(PeakHeap peakHeap) throws IOException {
+        List<EducationNews> educationNews = new ArrayList<>();
+        EducationNewsJsonParser.parse(
+                new InputStreamReader(new ByteArrayInputStream(response), UTF_8), educationNews);
+        return educationNews;
+    }
+
+    /**
+     * Model construction only: parsing the dates and building the EducationNews objects
+     * from fields already extracted from the response.
+     */
+    @Benchmark
+    public List<EducationNews> constructNews() {
+        List<EducationNews> educationNews = new ArrayList<>(fields.length);
+        for (String[] newsFields : fields) {
+            educationNews.add(new EducationNews(newsFields[0], newsFields[1],
+                    NewsDateFormatter.parse(newsFields[2]), newsFields[3]));
+        }
+        return educationNews;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searching a full NewsSearchIndex of 50k news for the 100 newest matches, as the activity
+ * does for every key typed. The target is below a millisecond (1000 us) for every query,
+ * from a single letter matching most of the news to two words.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NewsSearchBenchmark {
+
+    // Maximum number of results, as displayed by the activity
+    private static final int MAX_RESULTS = 100;
+
+    // Text typed by the user
+    @Param({"t", "te", "teachers", "sch pay"})
+    public String query;
+
+    // Index filled with the news of the largest fixture, repeated with a different URL and date
+    private NewsSearchIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<EducationNews> fixtureNews = new ArrayList<>();
+        EducationNewsJsonParser.parse(new InputStreamReader(new ByteArrayInputStream(Fixtures.read(200)),
+                ResponseBodyReader.UTF_8), fixtureNews);
+
+        List<EducationNews> educationNews = new ArrayList<>(NewsSearchIndex.MAX_INDEXED_NEWS);
+        for (int i = 0; i < NewsSearchIndex.MAX_INDEXED_NEWS; i++) {
+            EducationNews news = fixtureNews.get(i % fixtureNews.size());
+            // Older copies of the fixture, a minute apart, like pages loaded one after the other
+            educationNews.add(new EducationNews(news.getTitle(), news.getNewsSection(),
+                    news.getNewsDate() - i * 60000L, news.getUrl() + "-" + i, news.getThumbnailUrl()));
+        }
+        index = new NewsSearchIndex();
+        index.addAll(educationNews);
+    }
+
+    @Benchmark
+    public List<EducationNews> search() {
+        return index.search(query, MAX_RESULTS);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reading of a Guardian search response body, plain or compressed with gzip.
+ * <p>
+ * The line-based reader is the previous implementation of Utils.readFromStream: an
+ * InputStreamReader and a BufferedReader appending every line to a StringBuilder.
+ * The pooled reader is ResponseBodyReader, reading the bytes into a reused buffer sized
+ * from the Content-Length and decoding them once. Compare the allocation rates reported
+ * by the gc profiler as well as the times.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ResponseReadingBenchmark {
+
+    // Number of results in the response
+    @Param({"10", "50", "200"})
+    public int resultCount;
+
+    // True to read the body compressed with gzip, as the server sends it
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    // Bytes of the body, as received from the network
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] response = Fixtures.read(resultCount);
+        if (gzip) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            GZIPOutputStream gzipOutput = new GZIPOutputStream(output);
+            gzipOutput.write(response);
+            gzipOutput.close();
+            body = output.toByteArray();
+        } else {
+            body = response;
+        }
+    }
+
+    /**
+     * The previous implementation: line by line into a StringBuilder.
+     */
+    @Benchmark
+    public String readLines() throws IOException {
+        InputStream inputStream = new ByteArrayInputStream(body);
+        if (gzip) {
+            inputStream = new GZIPInputStream(inputStream);
+        }
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(inputStream, ResponseBodyReader.UTF_8));
+        String line = reader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = reader.readLine();
+        }
+        return output.toString();
+    }
+
+    /**
+     * The pooled reader, decoding the whole body into a String.
+     */
+    @Benchmark
+    public String readPooled() throws IOException {
+        ResponseBodyReader.Body responseBody =
+                ResponseBodyReader.read(new ByteArrayInputStream(body), body.length, gzip);
+        try {
+            return responseBody.toString();
+        } finally {
+            responseBody.release();
+        }
+    }
+
+    /**
+     * The network path: the pooled reader handing the bytes to the streaming parser.
+     */
+    @Benchmark
+    public List<EducationNews> readPooledAndParse() throws IOException {
+        ResponseBodyReader.Body responseBody =
+                ResponseBodyReader.read(new ByteArrayInputStream(body), body.length, gzip);
+        try {
+            List<EducationNews> educationNews = new ArrayList<>();
+            EducationNewsJsonParser.parse(responseBody.newReader(), educationNews);
+            return educationNews;
+        } finally {
+            responseBody.release();
+        }
+    }
+
+    /**
+     * The previous network path: the streaming parser reading straight from the stream.
+     */
+    @Benchmark
+    public List<EducationNews> streamingParse() throws IOException {
+        InputStream inputStream = new ByteArrayInputStream(body);
+        if (gzip) {
+            inputStream = new GZIPInputStream(inputStream);
+        }
+        List<EducationNews> educationNews = new ArrayList<>();
+        EducationNewsJsonParser.parse(new InputStreamReader(inputStream, ResponseBodyReader.UTF_8), educationNews);
+        return educationNews;
+    }
+}
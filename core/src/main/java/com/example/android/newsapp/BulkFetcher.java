@@ -0,0 +1,207 @@
+package com.example.android.newsapp;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends a large number of queries to The Guardian API concurrently, for the headless mode
+ * running on a JVM.
+ * <p>
+ * At most maxConcurrency requests are running at any time, and the next URL is only taken from
+ * the Iterable once a request finished, so the URLs can be generated lazily. The responses are
+ * handed to the listener as soon as they are parsed, on the thread that fetched them.
+ * <p>
+ * On a JVM with virtual threads (Java 21 and later) every request runs on its own virtual
+ * thread, so a blocked read does not hold a platform thread. Otherwise the requests run on a
+ * pool of maxConcurrency threads. Since the core is also compiled for Android, the virtual
+ * threads are created through reflection.
+ * <p>
+ * fetchAll() returns only once all the requests it started are finished: when it is cancelled
+ * or interrupted, or when the listener throws, the running requests are disconnected and waited
+ * for. HttpURLConnection keeps at most http.maxConnections (5 by default) idle connections per
+ * host, so raise that system property to about maxConcurrency to reuse the connections.
+ */
+public class BulkFetcher {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = BulkFetcher.class.getSimpleName();
+
+    /**
+     * Receives the responses of fetchAll(). It is called from several threads at once.
+     */
+    public interface ResultListener {
+
+        /**
+         * Called when a request finished.
+         *
+         * @param url      is the URL of the query
+         * @param response is the response, whatever its status code, or null if there was none
+         */
+        void onResult(String url, EducationNewsResponse response);
+    }
+
+    // Number of requests running at the same time, at most
+    private final int maxConcurrency;
+
+    // True to run the requests on virtual threads when the JVM has them
+    private final boolean preferVirtualThreads;
+
+    /**
+     * Constructs a new BulkFetcher running the requests on virtual threads when the JVM has them.
+     *
+     * @param maxConcurrency is the number of requests running at the same time, at most
+     */
+    public BulkFetcher(int maxConcurrency) {
+        this(maxConcurrency, true);
+    }
+
+    /**
+     * Constructs a new BulkFetcher.
+     *
+     * @param maxConcurrency       is the number of requests running at the same time, at most
+     * @param preferVirtualThreads is true to run the requests on virtual threads when the JVM
+     *                             has them, false to always run them on a pool of threads
+     */
+    public BulkFetcher(int maxConcurrency, boolean preferVirtualThreads) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.preferVirtualThreads = preferVirtualThreads;
+    }
+
+    /**
+     * Returns true if the requests run on virtual threads.
+     */
+    public boolean usesVirtualThreads() {
+        return preferVirtualThreads && getVirtualThreadExecutorFactory() != null;
+    }
+
+    /**
+     * Fetch all the URLs and hand every response to the listener. Returns the number of
+     * successful responses once all the requests are finished.
+     *
+     * @param urls         are the URLs of the queries, read one at a time as requests finish
+     * @param cancellation stops taking new URLs and aborts the running requests, or null
+     * @param listener     receives the responses
+     * @throws InterruptedException if the calling thread was interrupted, after the running
+     *                              requests are aborted and finished
+     */
+    public int fetchAll(Iterable<String> urls, CancellationToken cancellation,
+                        final ResultListener listener) throws InterruptedException {
+        // The requests are aborted by the caller, by an interruption or by a failing listener
+        final CancellationToken requestCancellation = new CancellationToken();
+        Runnable forwardCancellation = new Runnable() {
+            @Override
+            public void run() {
+                requestCancellation.cancel();
+            }
+        };
+        if (cancellation != null) {
+            cancellation.addOnCancelListener(forwardCancellation);
+        }
+
+        final Semaphore permits = new Semaphore(maxConcurrency);
+        final AtomicInteger successCount = new AtomicInteger();
+        final AtomicReference<RuntimeException> listenerFailure = new AtomicReference<>();
+        ExecutorService executor = newExecutor();
+        try {
+            for (final String url : urls) {
+                permits.acquire();
+                if (requestCancellation.isCancelled()) {
+                    permits.release();
+                    break;
+                }
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            EducationNewsResponse response = Utils.fetchEducationNewsResponse(
+                                    url, null, null, requestCancellation);
+                            if (requestCancellation.isCancelled()) {
+                                return;
+                            }
+                            if (response != null && response.isSuccessful()) {
+                                successCount.incrementAndGet();
+                            }
+                            listener.onResult(url, response);
+                        } catch (RuntimeException e) {
+                            // Stop the other requests, the caller gets the exception
+                            listenerFailure.compareAndSet(null, e);
+                            requestCancellation.cancel();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                });
+            }
+            awaitRequests(permits);
+        } catch (InterruptedException e) {
+            requestCancellation.cancel();
+            awaitRequests(permits);
+            throw e;
+        } finally {
+            if (cancellation != null) {
+                cancellation.removeOnCancelListener(forwardCancellation);
+            }
+            executor.shutdown();
+        }
+
+        if (listenerFailure.get() != null) {
+            throw listenerFailure.get();
+        }
+        return successCount.get();
+    }
+
+    /**
+     * Wait until all the running requests are finished, that is until all the permits are back.
+     * An interruption does not stop the wait, so no request outlives fetchAll().
+     */
+    private void awaitRequests(Semaphore permits) {
+        permits.acquireUninterruptibly(maxConcurrency);
+        permits.release(maxConcurrency);
+    }
+
+    /**
+     * Returns an executor starting a virtual thread for every request, or a pool of threads.
+     */
+    private ExecutorService newExecutor() {
+        if (preferVirtualThreads) {
+            Method factory = getVirtualThreadExecutorFactory();
+            if (factory != null) {
+                try {
+                    return (ExecutorService) factory.invoke(null);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    NewsLog.w(LOG_TAG, "Problem creating the virtual threads, using a pool instead.", e);
+                }
+            }
+        }
+        return Executors.newFixedThreadPool(maxConcurrency, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "BulkFetcher #" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns Executors.newVirtualThreadPerTaskExecutor(), or null if the JVM has no virtual threads.
+     */
+    private static Method getVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signals that the result of a load is not needed anymore.
+ * <p>
+ * The code doing the work registers listeners that abort it, for example by disconnecting
+ * a blocked HttpURLConnection, which thread interrupts can not do. A token is cancelled only
+ * once, and a listener added after that runs right away. It can be used from any thread.
+ */
+public final class CancellationToken {
+
+    // Listeners to run when the token is cancelled
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    // True once the token has been cancelled
+    private boolean cancelled;
+
+    /**
+     * Cancel the token and run its listeners, on the calling thread.
+     * Nothing happens if it is already cancelled.
+     */
+    public void cancel() {
+        List<Runnable> listenersToRun;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            listenersToRun = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        for (Runnable listener : listenersToRun) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Returns true if the token has been cancelled.
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Run the listener when the token is cancelled, or right away if it is already cancelled.
+     * The listener must be removed once the work it aborts is done.
+     */
+    public void addOnCancelListener(Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Remove a listener added with addOnCancelListener.
+     */
+    public synchronized void removeOnCancelListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar store for large histories of news, such as tens of thousands of cached articles.
+ * <p>
+ * Instead of one EducationNews object per news, every field is kept in its own array:
+ * the sections as indexes into a table of distinct names, the dates as primitive longs and
+ * the URLs as a prefix index plus the part after the prefix. EducationNews objects are only
+ * created when a row is read with get(). The store is not thread safe, it must be confined
+ * to a single thread or guarded by the caller.
+ */
+public class CompactNewsStore {
+
+    // Initial number of rows the arrays can hold
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Column of the titles
+    private String[] titles;
+
+    // Column of the sections, as indexes into the section table
+    private short[] sections;
+
+    // Column of the publication dates, in epoch milliseconds
+    private long[] dates;
+
+    // Columns of the URLs, as the index of the prefix and the part after the prefix
+    private byte[] urlPrefixes;
+    private String[] urlSuffixes;
+
+    // Columns of the thumbnail URLs, stored the same way, the suffix is null without a thumbnail
+    private byte[] thumbnailPrefixes;
+    private String[] thumbnailSuffixes;
+
+    // Distinct section names, and the index of every name in the table
+    private final List<String> sectionTable = new ArrayList<>();
+    private final Map<String, Integer> sectionIndexes = new HashMap<>();
+
+    // Number of rows in the store
+    private int size;
+
+    /**
+     * Constructs a new, empty CompactNewsStore.
+     */
+    public CompactNewsStore() {
+        titles = new String[INITIAL_CAPACITY];
+        sections = new short[INITIAL_CAPACITY];
+        dates = new long[INITIAL_CAPACITY];
+        urlPrefixes = new byte[INITIAL_CAPACITY];
+        urlSuffixes = new String[INITIAL_CAPACITY];
+        thumbnailPrefixes = new byte[INITIAL_CAPACITY];
+        thumbnailSuffixes = new String[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Add a news at the end of the store and return its row index.
+     */
+    public int add(EducationNews news) {
+        ensureCapacity(size + 1);
+        String url = news.getUrl();
+        byte prefix = NewsStrings.urlPrefixOf(url);
+
+        titles[size] = news.getTitle();
+        sections[size] = sectionIndexOf(news.getNewsSection());
+        dates[size] = news.getNewsDate();
+        urlPrefixes[size] = prefix;
+        urlSuffixes[size] = NewsStrings.urlSuffix(url, prefix);
+        String thumbnailUrl = news.getThumbnailUrl();
+        if (thumbnailUrl != null) {
+            byte thumbnailPrefix = NewsStrings.urlPrefixOf(thumbnailUrl);
+            thumbnailPrefixes[size] = thumbnailPrefix;
+            thumbnailSuffixes[size] = NewsStrings.urlSuffix(thumbnailUrl, thumbnailPrefix);
+        } else {
+            thumbnailPrefixes[size] = 0;
+            thumbnailSuffixes[size] = null;
+        }
+        return size++;
+    }
+
+    /**
+     * Add all the given news at the end of the store.
+     */
+    public void addAll(List<EducationNews> educationNews) {
+        ensureCapacity(size + educationNews.size());
+        for (EducationNews news : educationNews) {
+            add(news);
+        }
+    }
+
+    /**
+     * Returns the number of rows in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the title of the news at the given row.
+     */
+    public String getTitle(int row) {
+        checkRow(row);
+        return titles[row];
+    }
+
+    /**
+     * Returns the section of the news at the given row.
+     */
+    public String getSection(int row) {
+        checkRow(row);
+        return sectionTable.get(sections[row]);
+    }
+
+    /**
+     * Returns the publication time of the news at the given row, in epoch milliseconds.
+     */
+    public long getDate(int row) {
+        checkRow(row);
+        return dates[row];
+    }
+
+    /**
+     * Returns the URL of the news at the given row.
+     */
+    public String getUrl(int row) {
+        checkRow(row);
+        return NewsStrings.url(urlPrefixes[row], urlSuffixes[row]);
+    }
+
+    /**
+     * Returns the thumbnail URL of the news at the given row, or null if it has none.
+     */
+    public String getThumbnailUrl(int row) {
+        checkRow(row);
+        String suffix = thumbnailSuffixes[row];
+        return suffix == null ? null : NewsStrings.url(thumbnailPrefixes[row], suffix);
+    }
+
+    /**
+     * Returns a new EducationNews object with the news at the given row.
+     */
+    public EducationNews get(int row) {
+        return new EducationNews(getTitle(row), getSection(row), getDate(row), getUrl(row),
+                getThumbnailUrl(row));
+    }
+
+    /**
+     * Remove all the rows, keeping the section table.
+     */
+    public void clear() {
+        Arrays.fill(titles, 0, size, null);
+        Arrays.fill(urlSuffixes, 0, size, null);
+        Arrays.fill(thumbnailSuffixes, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the index of the section in the section table, adding it if it is new.
+     */
+    private short sectionIndexOf(String section) {
+        Integer index = sectionIndexes.get(section);
+        if (index == null) {
+            if (sectionTable.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct sections");
+            }
+            index = sectionTable.size();
+            sectionTable.add(NewsStrings.internSection(section));
+            sectionIndexes.put(section, index);
+        }
+        return (short) (int) index;
+    }
+
+    /**
+     * Grow the columns so they can hold at least the given number of rows.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= titles.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, titles.length + (titles.length >> 1));
+        titles = Arrays.copyOf(titles, newCapacity);
+        sections = Arrays.copyOf(sections, newCapacity);
+        dates = Arrays.copyOf(dates, newCapacity);
+        urlPrefixes = Arrays.copyOf(urlPrefixes, newCapacity);
+        urlSuffixes = Arrays.copyOf(urlSuffixes, newCapacity);
+        thumbnailPrefixes = Arrays.copyOf(thumbnailPrefixes, newCapacity);
+        thumbnailSuffixes = Arrays.copyOf(thumbnailSuffixes, newCapacity);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + ", size " + size);
+        }
+    }
+}
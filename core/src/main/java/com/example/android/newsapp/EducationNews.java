@@ -0,0 +1,130 @@
+package com.example.android.newsapp;
+
+/**
+ * A news about Education.
+ * <p>
+ * The news is immutable and stored compactly: the section name is interned, missing values
+ * share the same sentinel and the URL is stored without the prefix of The Guardian website.
+ * The full URLs are only built the first time they are asked for, then kept, since the
+ * adapter and the stores ask for them every time a row is bound or a list is merged.
+ */
+public class EducationNews {
+
+    // Title of the News
+    private final String newsTitle;
+
+    // Section of the News, interned
+    private final String newsSection;
+
+    // Time when the News was published, in epoch milliseconds
+    private final long newsDate;
+
+    // URL of the news, stored as the index of its prefix and the part after the prefix
+    private final byte newsUrlPrefix;
+    private final String newsUrlSuffix;
+
+    // URL of the thumbnail of the news, stored the same way, the suffix is null without a thumbnail
+    private final byte thumbnailUrlPrefix;
+    private final String thumbnailUrlSuffix;
+
+    // Full URLs, built from the prefix and the suffix the first time they are asked for.
+    // Strings are immutable, so a thread seeing null only builds an equal string again.
+    private String newsUrl;
+    private String newsThumbnailUrl;
+
+    /**
+     * Constructs a new EducationNews object.
+     *
+     * @param title   is the title of the news
+     * @param section is the section of the news
+     * @param date    is the time when the news was published, in epoch milliseconds,
+     *                or NewsDateFormatter.UNKNOWN_DATE
+     * @param url     is the website URL to find more details about the news
+     */
+
+    public EducationNews(String title, String section, long date, String url) {
+        this(title, section, date, url, null);
+    }
+
+    /**
+     * Constructs a new EducationNews object with a thumbnail.
+     *
+     * @param title        is the title of the news
+     * @param section      is the section of the news
+     * @param date         is the time when the news was published, in epoch milliseconds,
+     *                     or NewsDateFormatter.UNKNOWN_DATE
+     * @param url          is the website URL to find more details about the news
+     * @param thumbnailUrl is the URL of the thumbnail image of the news, or null if it has none
+     */
+    public EducationNews(String title, String section, long date, String url, String thumbnailUrl) {
+        url = NewsStrings.orNotAvailable(url);
+        newsTitle = NewsStrings.orNotAvailable(title);
+        newsSection = NewsStrings.internSection(section);
+        newsDate = date;
+        newsUrlPrefix = NewsStrings.urlPrefixOf(url);
+        newsUrlSuffix = NewsStrings.urlSuffix(url, newsUrlPrefix);
+        if (thumbnailUrl == null || thumbnailUrl.isEmpty()) {
+            thumbnailUrlPrefix = 0;
+            thumbnailUrlSuffix = null;
+        } else {
+            thumbnailUrlPrefix = NewsStrings.urlPrefixOf(thumbnailUrl);
+            thumbnailUrlSuffix = NewsStrings.urlSuffix(thumbnailUrl, thumbnailUrlPrefix);
+        }
+    }
+
+    /**
+     * Returns the title of the news.
+     */
+    public String getTitle() {
+        return newsTitle;
+    }
+
+    /**
+     * Returns the section of the news.
+     */
+    public String getNewsSection() {
+        return newsSection;
+    }
+
+    /**
+     * Returns the time when the news was published, in epoch milliseconds.
+     */
+    public long getNewsDate() {
+        return newsDate;
+    }
+
+    /**
+     * Returns the website URL to find more information about the news.
+     */
+    public String getUrl() {
+        String url = newsUrl;
+        if (url == null) {
+            url = NewsStrings.url(newsUrlPrefix, newsUrlSuffix);
+            newsUrl = url;
+        }
+        return url;
+    }
+
+    /**
+     * Returns the URL of the thumbnail image of the news, or null if it has none.
+     */
+    public String getThumbnailUrl() {
+        if (thumbnailUrlSuffix == null) {
+            return null;
+        }
+        String url = newsThumbnailUrl;
+        if (url == null) {
+            url = NewsStrings.url(thumbnailUrlPrefix, thumbnailUrlSuffix);
+            newsThumbnailUrl = url;
+        }
+        return url;
+    }
+
+    /**
+     * Returns true if the given news has the same URL as this one, without building the URLs.
+     */
+    public boolean hasSameUrl(EducationNews other) {
+        return newsUrlPrefix == other.newsUrlPrefix && newsUrlSuffix.equals(other.newsUrlSuffix);
+    }
+}
+
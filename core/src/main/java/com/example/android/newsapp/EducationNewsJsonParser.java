@@ -0,0 +1,192 @@
+package com.example.android.newsapp;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Streaming parser for The Guardian search responses, and for the single item responses
+ * with the text of an article.
+ * <p>
+ * Instead of reading the whole response into a String and building a JSONObject tree,
+ * the parser pulls tokens straight from the Reader, skips every value it does not need
+ * and creates the EducationNews objects one by one while reading the "results" array.
+ */
+public final class EducationNewsJsonParser {
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static methods.
+     */
+    private EducationNewsJsonParser() {
+    }
+
+    /**
+     * Parse a Guardian search response from the given Reader and add every news found
+     * to the given list, in the order in which they appear in the response.
+     * The Reader is not closed, it belongs to the caller.
+     *
+     * @param reader        is the source of the JSON response
+     * @param educationNews is the list the parsed news are added to
+     * @throws IOException if the response can not be read or is not valid JSON
+     */
+    public static void parse(Reader reader, List<EducationNews> educationNews) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        try {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (Utils.RESPONSE.equals(jsonReader.nextName())) {
+                    readResponse(jsonReader, educationNews);
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IllegalStateException e) {
+            // The JsonReader throws IllegalStateException when the response does not have
+            // the expected structure, report it like any other malformed response.
+            throw new IOException("Unexpected structure of the Education News JSON results", e);
+        }
+    }
+
+    /**
+     * Parse a Guardian single item response, requested with show-fields=bodyText, from the given
+     * Reader and return the text of the article, or null if the response has none.
+     * The Reader is not closed, it belongs to the caller.
+     *
+     * @param reader is the source of the JSON response
+     * @throws IOException if the response can not be read or is not valid JSON
+     */
+    public static String parseBodyText(Reader reader) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        String bodyText = null;
+        try {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (Utils.RESPONSE.equals(jsonReader.nextName())
+                        && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                    // The article is the "content" object of the response, its text is one of its "fields"
+                    jsonReader.beginObject();
+                    while (jsonReader.hasNext()) {
+                        if (Utils.CONTENT.equals(jsonReader.nextName())
+                                && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                            bodyText = readContentBodyText(jsonReader);
+                        } else {
+                            jsonReader.skipValue();
+                        }
+                    }
+                    jsonReader.endObject();
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Unexpected structure of the article JSON result", e);
+        }
+        return bodyText;
+    }
+
+    /**
+     * Read the "content" object of a single item response and return the text in its fields, or null.
+     */
+    private static String readContentBodyText(JsonReader jsonReader) throws IOException {
+        String bodyText = null;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            if (Utils.FIELDS.equals(jsonReader.nextName())
+                    && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                bodyText = readField(jsonReader, Utils.BODY_TEXT);
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        return bodyText;
+    }
+
+    /**
+     * Read the "response" object and look for the "results" array inside it.
+     */
+    private static void readResponse(JsonReader jsonReader, List<EducationNews> educationNews)
+            throws IOException {
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            if (Utils.RESULTS.equals(jsonReader.nextName())
+                    && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                jsonReader.beginArray();
+                while (jsonReader.hasNext()) {
+                    educationNews.add(readNews(jsonReader));
+                }
+                jsonReader.endArray();
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+    }
+
+    /**
+     * Read a single result object and create an EducationNews object from it.
+     */
+    private static EducationNews readNews(JsonReader jsonReader) throws IOException {
+        String title = NewsStrings.NOT_AVAILABLE;
+        String section = NewsStrings.NOT_AVAILABLE;
+        long date = NewsDateFormatter.UNKNOWN_DATE;
+        String newsUrl = NewsStrings.NOT_AVAILABLE;
+        String thumbnailUrl = null;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.skipValue();
+            } else if (Utils.NEWS_TITLE.equals(name)) {
+                title = jsonReader.nextString();
+            } else if (Utils.SECTION.equals(name)) {
+                section = jsonReader.nextString();
+            } else if (Utils.DATE.equals(name)) {
+                // Parse the date here, on the loader thread, instead of every time the row is bound
+                date = NewsDateFormatter.parse(jsonReader.nextString());
+            } else if (Utils.NEWS_URL.equals(name)) {
+                newsUrl = jsonReader.nextString();
+            } else if (Utils.FIELDS.equals(name) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                thumbnailUrl = readThumbnailUrl(jsonReader);
+            } else {
+                // Skip the whole subtree of any other field, like "tags"
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+
+        return new EducationNews(title, section, date, newsUrl, thumbnailUrl);
+    }
+
+    /**
+     * Read the "fields" object of a result and return the URL of its thumbnail, or null.
+     */
+    private static String readThumbnailUrl(JsonReader jsonReader) throws IOException {
+        return readField(jsonReader, Utils.THUMBNAIL);
+    }
+
+    /**
+     * Read a "fields" object and return the string of the field with the given name, or null.
+     */
+    private static String readField(JsonReader jsonReader, String fieldName) throws IOException {
+        String value = null;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            if (fieldName.equals(jsonReader.nextName())
+                    && jsonReader.peek() == JsonToken.STRING) {
+                value = jsonReader.nextString();
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        return value;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.android.newsapp;
+
+import java.net.HttpURLConnection;
+import java.util.List;
+
+/**
+ * Result of a request to The Guardian API.
+ * <p>
+ * Besides the news, it holds the validators (ETag and Last-Modified) sent by the server,
+ * which are used to make conditional requests the next time the same query is refreshed,
+ * and the rate limiting information of the API key. A failed response has no news.
+ */
+public class EducationNewsResponse {
+
+    // Value used when the server did not send a header
+    public static final int UNKNOWN = -1;
+
+    // HTTP status code of the response
+    private final int statusCode;
+
+    // List of news parsed from the response, null if the server answered "304 Not Modified"
+    private final List<EducationNews> educationNews;
+
+    // Value of the ETag header of the response
+    private final String eTag;
+
+    // Value of the Last-Modified header of the response
+    private final String lastModified;
+
+    // Delay the server asked to wait before the next request with Retry-After, in milliseconds
+    private final long retryAfterMillis;
+
+    // Number of requests the API key can still make today, as sent by the server
+    private final int remainingDailyQuota;
+
+    /**
+     * Constructs a new EducationNewsResponse.
+     *
+     * @param educationNews is the list of news parsed from the response, or null if not modified
+     * @param eTag          is the ETag header of the response, or null
+     * @param lastModified  is the Last-Modified header of the response, or null
+     */
+    public EducationNewsResponse(List<EducationNews> educationNews, String eTag, String lastModified) {
+        this(educationNews == null ? HttpURLConnection.HTTP_NOT_MODIFIED : HttpURLConnection.HTTP_OK,
+                educationNews, eTag, lastModified, UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * Constructs a new EducationNewsResponse with the given status code.
+     *
+     * @param statusCode          is the HTTP status code of the response
+     * @param educationNews       is the list of news parsed from the response, or null if there is none
+     * @param eTag                is the ETag header of the response, or null
+     * @param lastModified        is the Last-Modified header of the response, or null
+     * @param retryAfterMillis    is the delay asked with Retry-After, in milliseconds, or UNKNOWN
+     * @param remainingDailyQuota is the number of requests left today for the API key, or UNKNOWN
+     */
+    public EducationNewsResponse(int statusCode, List<EducationNews> educationNews, String eTag,
+                                 String lastModified, long retryAfterMillis, int remainingDailyQuota) {
+        this.statusCode = statusCode;
+        this.educationNews = educationNews;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.retryAfterMillis = retryAfterMillis;
+        this.remainingDailyQuota = remainingDailyQuota;
+    }
+
+    /**
+     * Returns the list of news, or null if the cached list is still valid.
+     */
+    public List<EducationNews> getNews() {
+        return educationNews;
+    }
+
+    /**
+     * Returns true if the server answered that the cached list is still valid.
+     */
+    public boolean isNotModified() {
+        return statusCode == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    /**
+     * Returns true if the response has news, or if the cached list is still valid.
+     */
+    public boolean isSuccessful() {
+        return statusCode == HttpURLConnection.HTTP_OK || isNotModified();
+    }
+
+    /**
+     * Returns the HTTP status code of the response.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns the delay the server asked to wait before the next request, in milliseconds,
+     * or UNKNOWN if it did not ask for one.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * Returns the number of requests the API key can still make today, or UNKNOWN.
+     */
+    public int getRemainingDailyQuota() {
+        return remainingDailyQuota;
+    }
+
+    /**
+     * Returns the ETag header of the response.
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Returns the Last-Modified header of the response.
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+}
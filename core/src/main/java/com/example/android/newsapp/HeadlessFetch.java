@@ -0,0 +1,133 @@
+package com.example.android.newsapp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless mode of the news fetching, run on a JVM without the app: fetches the query URLs
+ * read from the standard input, one per line, and prints a line per response and a summary.
+ * <p>
+ * Usage: HeadlessFetch [maxConcurrency] [--pool]
+ * <p>
+ * The URLs are read while the requests run, so a very long list does not have to fit in memory.
+ * With --pool the requests run on a pool of threads even when the JVM has virtual threads.
+ */
+public final class HeadlessFetch {
+
+    // Number of requests running at the same time when not given
+    private static final int DEFAULT_MAX_CONCURRENCY = 64;
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static methods.
+     */
+    private HeadlessFetch() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        boolean preferVirtualThreads = true;
+        for (String arg : args) {
+            if ("--pool".equals(arg)) {
+                preferVirtualThreads = false;
+            } else {
+                maxConcurrency = Integer.parseInt(arg);
+            }
+        }
+
+        // Keep a pooled connection for every concurrent request to the API host
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(maxConcurrency));
+        }
+
+        final PrintStream out = System.out;
+        final AtomicInteger responseCount = new AtomicInteger();
+        final AtomicInteger newsCount = new AtomicInteger();
+        BulkFetcher fetcher = new BulkFetcher(maxConcurrency, preferVirtualThreads);
+        BufferedReader input = new BufferedReader(new InputStreamReader(System.in, ResponseBodyReader.UTF_8));
+
+        long startTime = System.nanoTime();
+        int successCount = fetcher.fetchAll(new LineIterable(input), null, new BulkFetcher.ResultListener() {
+            @Override
+            public void onResult(String url, EducationNewsResponse response) {
+                responseCount.incrementAndGet();
+                String line;
+                if (response == null) {
+                    line = "FAILED " + url;
+                } else {
+                    int count = response.getNews() != null ? response.getNews().size() : 0;
+                    newsCount.addAndGet(count);
+                    line = response.getStatusCode() + " " + count + " " + url;
+                }
+                synchronized (out) {
+                    out.println(line);
+                }
+            }
+        });
+        long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+
+        out.println(String.format("%d requests, %d successful, %d news in %d ms (%.1f requests/s), %s",
+                responseCount.get(), successCount, newsCount.get(), elapsedMillis,
+                responseCount.get() * 1000.0 / Math.max(1, elapsedMillis),
+                fetcher.usesVirtualThreads() ? "virtual threads" : maxConcurrency + " threads"));
+        out.println(NewsMetrics.dump());
+    }
+
+    /**
+     * The non-empty lines of a reader, read one at a time. It can only be iterated once.
+     */
+    private static class LineIterable implements Iterable<String> {
+
+        private final BufferedReader reader;
+
+        LineIterable(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                // The next line, or null once the reader is at its end
+                private String nextLine = readLine();
+
+                @Override
+                public boolean hasNext() {
+                    return nextLine != null;
+                }
+
+                @Override
+                public String next() {
+                    if (nextLine == null) {
+                        throw new NoSuchElementException();
+                    }
+                    String line = nextLine;
+                    nextLine = readLine();
+                    return line;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        private String readLine() {
+            try {
+                String line = reader.readLine();
+                while (line != null && line.trim().isEmpty()) {
+                    line = reader.readLine();
+                }
+                return line != null ? line.trim() : null;
+            } catch (IOException e) {
+                NewsLog.e(HeadlessFetch.class.getSimpleName(), "Problem reading the URLs.", e);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.android.newsapp;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Parses the publication dates sent by The Guardian and formats them for display.
+ * <p>
+ * Dates are parsed once, on the loader thread, into epoch milliseconds. Displaying a date
+ * goes through a small cache of the strings already formatted, keyed by day, so binding a
+ * row whose day was already shown does not allocate anything. A formatter instance is not
+ * thread safe and must be confined to a single thread, usually the main thread.
+ */
+public final class NewsDateFormatter {
+
+    // Value used for news without a valid publication date
+    public static final long UNKNOWN_DATE = Long.MIN_VALUE;
+
+    // Pattern of the webPublicationDate sent by The Guardian, for example 2017-07-17T10:25:04Z
+    private static final String INPUT_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+
+    // Pattern of the date displayed in the list of news
+    private static final String DISPLAY_PATTERN = "EEEE dd MMMM yyyy";
+
+    // Number of milliseconds in a day
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000;
+
+    // Number of formatted days kept in the cache, must be a power of two
+    private static final int CACHE_SIZE = 64;
+
+    // The dates sent by The Guardian are in UTC and are displayed as they were sent
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    // SimpleDateFormat is not thread safe, so every loader thread gets its own instance
+    private static final ThreadLocal<SimpleDateFormat> INPUT_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat dateFormat = new SimpleDateFormat(INPUT_PATTERN, Locale.US);
+            dateFormat.setTimeZone(UTC);
+            return dateFormat;
+        }
+    };
+
+    // Formatter of the displayed dates, confined to the thread using this instance
+    private final SimpleDateFormat displayFormat;
+
+    // Direct-mapped cache of the formatted days: the day number and its formatted string
+    private final long[] cachedDays = new long[CACHE_SIZE];
+    private final String[] cachedDates = new String[CACHE_SIZE];
+
+    /**
+     * Constructs a new NewsDateFormatter, to be used by a single thread.
+     */
+    public NewsDateFormatter() {
+        displayFormat = new SimpleDateFormat(DISPLAY_PATTERN, Locale.US);
+        displayFormat.setTimeZone(UTC);
+    }
+
+    /**
+     * Parse a webPublicationDate into epoch milliseconds.
+     * Returns UNKNOWN_DATE if the date is missing or can not be parsed.
+     * This can be called from any thread.
+     */
+    public static long parse(String date) {
+        if (date == null || date.isEmpty()) {
+            return UNKNOWN_DATE;
+        }
+        try {
+            return INPUT_FORMAT.get().parse(date).getTime();
+        } catch (ParseException e) {
+            return UNKNOWN_DATE;
+        }
+    }
+
+    /**
+     * Returns the display string of the given publication time, or an empty string if unknown.
+     */
+    public String format(long time) {
+        if (time == UNKNOWN_DATE) {
+            return "";
+        }
+
+        // All the times of the same day are displayed the same way
+        long day = floorDiv(time, DAY_MILLIS);
+        int index = (int) (day & (CACHE_SIZE - 1));
+        String formattedDate = cachedDates[index];
+        if (formattedDate == null || cachedDays[index] != day) {
+            formattedDate = displayFormat.format(time);
+            cachedDays[index] = day;
+            cachedDates[index] = formattedDate;
+        }
+        return formattedDate;
+    }
+
+    /**
+     * Integer division rounded towards negative infinity, so dates before 1970 get the right day.
+     */
+    private static long floorDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        if ((dividend % divisor != 0) && ((dividend < 0) != (divisor < 0))) {
+            quotient--;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary file of a list of news, read through a memory mapped buffer.
+ * <p>
+ * The file starts with a header and a table of the distinct strings: the key of the list,
+ * the section names, the URL prefixes and the date labels. Then comes an index with the offset
+ * of every row, and the rows themselves. A row starts with fixed-width fields, the publication
+ * time in epoch milliseconds and indexes into the string table, followed by the title and the
+ * URLs without their prefix. A single row can therefore be read without reading the others,
+ * and nothing is parsed as with the JSON of the API.
+ * <p>
+ * Opening a file reads the string table only. Reading the rows can be done from any thread.
+ */
+public final class NewsListFile {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = NewsListFile.class.getSimpleName();
+
+    // First bytes of every file, "ENLF"
+    private static final int MAGIC = 0x454e4c46;
+
+    // Version of the format, a file of another version is rejected
+    static final int FORMAT_VERSION = 1;
+
+    // Size of the fixed-width fields of a row: date, section, URL prefix, thumbnail prefix,
+    // date label and flags
+    private static final int ROW_FIXED_SIZE = 8 + 2 + 2 + 2 + 2 + 1;
+
+    // Offsets of the fixed-width fields in a row
+    private static final int ROW_DATE = 0;
+    private static final int ROW_SECTION = 8;
+    private static final int ROW_URL_PREFIX = 10;
+    private static final int ROW_THUMBNAIL_PREFIX = 12;
+    private static final int ROW_DATE_LABEL = 14;
+    private static final int ROW_FLAGS = 16;
+
+    // Flag of the rows with a thumbnail URL
+    private static final int FLAG_THUMBNAIL = 1;
+
+    // Index of the string table meaning no string, and the largest string table
+    private static final int NO_STRING = 0xffff;
+    private static final int MAX_STRINGS = NO_STRING;
+
+    // Longest string that can be stored, in UTF-8 bytes
+    private static final int MAX_STRING_BYTES = 0xffff;
+
+    // The mapped content of the file
+    private final ByteBuffer buffer;
+
+    // The string table, the first string is the key of the list
+    private final String[] strings;
+
+    // Number of rows, and offset of the index of the rows in the file
+    private final int size;
+    private final int indexOffset;
+
+    private NewsListFile(ByteBuffer buffer, String[] strings, int size, int indexOffset) {
+        this.buffer = buffer;
+        this.strings = strings;
+        this.size = size;
+        this.indexOffset = indexOffset;
+    }
+
+    /**
+     * Map the given file and read its string table.
+     *
+     * @throws IOException if the file can not be read, is of another version or is corrupted
+     */
+    public static NewsListFile open(File file) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        ByteBuffer buffer;
+        try {
+            // The mapping stays valid after the channel is closed
+            FileChannel channel = input.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            input.close();
+        }
+        return read(buffer);
+    }
+
+    /**
+     * Read a list from a buffer with the content of a file, from its position to its limit.
+     *
+     * @throws IOException if the content is of another version or is corrupted
+     */
+    static NewsListFile read(ByteBuffer content) throws IOException {
+        ByteBuffer buffer = content.slice();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a news list file");
+            }
+            int version = buffer.getShort() & 0xffff;
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported news list file version " + version);
+            }
+            // Flags, none defined yet
+            buffer.getShort();
+            int size = buffer.getInt();
+            int stringCount = buffer.getInt();
+            if (size < 0 || stringCount < 1 || stringCount > MAX_STRINGS) {
+                throw new IOException("Corrupted news list file header");
+            }
+
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = readString(buffer);
+            }
+
+            // Check the index, so reading a row never goes out of the file
+            int indexOffset = buffer.position();
+            if (size > (buffer.limit() - indexOffset) / 4) {
+                throw new IOException("Truncated news list file index");
+            }
+            int previousOffset = indexOffset + size * 4;
+            for (int row = 0; row < size; row++) {
+                int offset = buffer.getInt(indexOffset + row * 4);
+                if (offset < previousOffset || offset > buffer.limit() - ROW_FIXED_SIZE) {
+                    throw new IOException("Corrupted news list file index");
+                }
+                previousOffset = offset + ROW_FIXED_SIZE;
+            }
+            return new NewsListFile(buffer, strings, size, indexOffset);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated news list file", e);
+        }
+    }
+
+    /**
+     * Write the news to the given file, through a temporary file renamed at the end so the
+     * file is never read half written.
+     *
+     * @param file       is the file to write
+     * @param key        identifies what the news were loaded for, such as a query URL
+     * @param news       are the news to write
+     * @param dateLabels are the dates of the news as they are displayed, or null
+     */
+    public static void write(File file, String key, List<EducationNews> news, String[] dateLabels)
+            throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(tempFile);
+            output.write(toBytes(key, news, dateLabels));
+            output.close();
+            output = null;
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Problem renaming " + tempFile + " to " + file);
+            }
+        } finally {
+            closeQuietly(output);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Returns the content of a file with the given news.
+     */
+    static byte[] toBytes(String key, List<EducationNews> news, String[] dateLabels) throws IOException {
+        if (dateLabels != null && dateLabels.length != news.size()) {
+            throw new IllegalArgumentException("One date label is needed for every news");
+        }
+        StringTable strings = new StringTable();
+        strings.indexOf(key);
+
+        // Write the rows first, to know their offsets and the strings they use
+        ByteArrayOutputStream rowBytes = new ByteArrayOutputStream(news.size() * 128);
+        DataOutputStream rows = new DataOutputStream(rowBytes);
+        int[] rowOffsets = new int[news.size()];
+        for (int i = 0; i < news.size(); i++) {
+            EducationNews row = news.get(i);
+            rowOffsets[i] = rows.size();
+
+            String url = row.getUrl();
+            byte urlPrefix = NewsStrings.urlPrefixOf(url);
+            String thumbnailUrl = row.getThumbnailUrl();
+            byte thumbnailPrefix = thumbnailUrl != null ? NewsStrings.urlPrefixOf(thumbnailUrl) : 0;
+
+            rows.writeLong(row.getNewsDate());
+            rows.writeShort(strings.indexOf(row.getNewsSection()));
+            rows.writeShort(urlPrefix != 0 ? strings.indexOf(NewsStrings.URL_PREFIXES[urlPrefix]) : NO_STRING);
+            rows.writeShort(thumbnailPrefix != 0
+                    ? strings.indexOf(NewsStrings.URL_PREFIXES[thumbnailPrefix]) : NO_STRING);
+            rows.writeShort(dateLabels != null && dateLabels[i] != null
+                    ? strings.indexOf(dateLabels[i]) : NO_STRING);
+            rows.writeByte(thumbnailUrl != null ? FLAG_THUMBNAIL : 0);
+            writeString(rows, row.getTitle());
+            writeString(rows, NewsStrings.urlSuffix(url, urlPrefix));
+            if (thumbnailUrl != null) {
+                writeString(rows, NewsStrings.urlSuffix(thumbnailUrl, thumbnailPrefix));
+            }
+        }
+
+        ByteArrayOutputStream fileBytes = new ByteArrayOutputStream(rows.size() + 1024);
+        DataOutputStream output = new DataOutputStream(fileBytes);
+        output.writeInt(MAGIC);
+        output.writeShort(FORMAT_VERSION);
+        output.writeShort(0);
+        output.writeInt(news.size());
+        output.writeInt(strings.size());
+        for (String string : strings.strings) {
+            writeString(output, string);
+        }
+        int rowsOffset = output.size() + news.size() * 4;
+        for (int rowOffset : rowOffsets) {
+            output.writeInt(rowsOffset + rowOffset);
+        }
+        rowBytes.writeTo(output);
+        output.flush();
+        return fileBytes.toByteArray();
+    }
+
+    /**
+     * Returns the key the news were written with.
+     */
+    public String getKey() {
+        return strings[0];
+    }
+
+    /**
+     * Returns the number of news in the file.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the publication time of the news at the given row, in epoch milliseconds,
+     * without reading the rest of the row.
+     */
+    public long getDate(int row) {
+        return buffer.getLong(rowOffset(row) + ROW_DATE);
+    }
+
+    /**
+     * Returns the date label of the news at the given row, or null if it was written without one.
+     */
+    public String getDateLabel(int row) {
+        return string(buffer.getShort(rowOffset(row) + ROW_DATE_LABEL));
+    }
+
+    /**
+     * Returns a new EducationNews object with the news at the given row.
+     *
+     * @throws IllegalStateException if the row is corrupted
+     */
+    public EducationNews get(int row) {
+        int offset = rowOffset(row);
+        // A view of the buffer, so several threads can read rows at the same time
+        ByteBuffer rowBuffer = buffer.duplicate();
+        rowBuffer.position(offset + ROW_FIXED_SIZE);
+        try {
+            String title = readString(rowBuffer);
+            String url = prefixed(buffer.getShort(offset + ROW_URL_PREFIX), readString(rowBuffer));
+            String thumbnailUrl = null;
+            if ((buffer.get(offset + ROW_FLAGS) & FLAG_THUMBNAIL) != 0) {
+                thumbnailUrl = prefixed(buffer.getShort(offset + ROW_THUMBNAIL_PREFIX), readString(rowBuffer));
+            }
+            return new EducationNews(title, string(buffer.getShort(offset + ROW_SECTION)),
+                    buffer.getLong(offset + ROW_DATE), url, thumbnailUrl);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IllegalStateException("Corrupted row " + row + " of the news list file", e);
+        }
+    }
+
+    /**
+     * Returns new EducationNews objects with all the news of the file, in order.
+     *
+     * @throws IllegalStateException if a row is corrupted
+     */
+    public List<EducationNews> getAll() {
+        List<EducationNews> news = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            news.add(get(row));
+        }
+        return news;
+    }
+
+    private int rowOffset(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + ", size " + size);
+        }
+        return buffer.getInt(indexOffset + row * 4);
+    }
+
+    /**
+     * Returns the string of the table at the given index, or null for NO_STRING.
+     */
+    private String string(short index) {
+        int unsignedIndex = index & 0xffff;
+        if (unsignedIndex == NO_STRING) {
+            return null;
+        }
+        if (unsignedIndex >= strings.length) {
+            throw new IllegalStateException("Corrupted string index " + unsignedIndex);
+        }
+        return strings[unsignedIndex];
+    }
+
+    private String prefixed(short prefixIndex, String suffix) {
+        String prefix = string(prefixIndex);
+        return prefix != null ? prefix.concat(suffix) : suffix;
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(ResponseBodyReader.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IOException("String of " + bytes.length + " bytes too long for a news list file");
+        }
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Read a string at the position of the buffer, and move the position after it.
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        if (buffer.hasArray()) {
+            int start = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + length);
+            return new String(buffer.array(), start, length, ResponseBodyReader.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, ResponseBodyReader.UTF_8);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                NewsLog.w(LOG_TAG, "Problem closing the news list file.", e);
+            }
+        }
+    }
+
+    /**
+     * Distinct strings of a file being written, in the order they were first used.
+     */
+    private static class StringTable {
+
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        int indexOf(String string) throws IOException {
+            Integer index = indexes.get(string);
+            if (index == null) {
+                if (strings.size() >= MAX_STRINGS) {
+                    throw new IOException("Too many distinct strings for a news list file");
+                }
+                index = strings.size();
+                strings.add(string);
+                indexes.put(string, index);
+            }
+            return index;
+        }
+
+        int size() {
+            return strings.size();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.android.newsapp;
+
+import java.util.logging.Level;
+
+/**
+ * Logging of the core classes, which run on Android as well as on a plain JVM.
+ * <p>
+ * The messages go to the installed NewsLog.Logger: the app installs one writing to
+ * android.util.Log, and without one they go to java.util.logging.
+ * This can be called from any thread.
+ */
+public final class NewsLog {
+
+    // Priorities of the messages, the same values as the ones of android.util.Log
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    /**
+     * Writes the log messages somewhere.
+     */
+    public interface Logger {
+
+        /**
+         * Write a message.
+         *
+         * @param priority  is the priority of the message, one of DEBUG, INFO, WARN and ERROR
+         * @param tag       identifies the class writing the message
+         * @param message   is the message
+         * @param throwable is the exception that caused the message, or null
+         */
+        void log(int priority, String tag, String message, Throwable throwable);
+    }
+
+    // Logger used until another one is installed
+    private static final Logger JAVA_LOGGER = new Logger() {
+        @Override
+        public void log(int priority, String tag, String message, Throwable throwable) {
+            // The tag is given as the source, which would otherwise be this class
+            java.util.logging.Logger.getLogger(tag).logp(toLevel(priority), tag, null, message, throwable);
+        }
+    };
+
+    // The installed logger
+    private static volatile Logger logger = JAVA_LOGGER;
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static methods.
+     */
+    private NewsLog() {
+    }
+
+    /**
+     * Install the logger the messages go to, or go back to java.util.logging with null.
+     */
+    public static void setLogger(Logger newLogger) {
+        logger = newLogger != null ? newLogger : JAVA_LOGGER;
+    }
+
+    public static void d(String tag, String message) {
+        logger.log(DEBUG, tag, message, null);
+    }
+
+    public static void i(String tag, String message) {
+        logger.log(INFO, tag, message, null);
+    }
+
+    public static void w(String tag, String message) {
+        logger.log(WARN, tag, message, null);
+    }
+
+    public static void w(String tag, String message, Throwable throwable) {
+        logger.log(WARN, tag, message, throwable);
+    }
+
+    public static void e(String tag, String message) {
+        logger.log(ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable throwable) {
+        logger.log(ERROR, tag, message, throwable);
+    }
+
+    private static Level toLevel(int priority) {
+        switch (priority) {
+            case DEBUG:
+                return Level.FINE;
+            case INFO:
+                return Level.INFO;
+            case WARN:
+                return Level.WARNING;
+            default:
+                return Level.SEVERE;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.android.newsapp;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency and size histograms of the hot paths of the app, so performance problems can be
+ * diagnosed on a device without a profiler.
+ * <p>
+ * Recording a value does not allocate and does not lock: the value is counted in one of 64
+ * buckets whose bounds are powers of two. The percentiles are therefore approximate, they are
+ * the upper bound of the bucket they fall into. The histograms are exported with dump(),
+ * displayed by the MetricsActivity.
+ */
+public final class NewsMetrics {
+
+    // Time to resolve the host name and open the connection (DNS, TCP and TLS together)
+    public static final Histogram HTTP_CONNECT = new Histogram("http.connect", "us");
+
+    // Time from the connection to the response code, the time to first byte
+    public static final Histogram HTTP_FIRST_BYTE = new Histogram("http.first_byte", "us");
+
+    // Time to read the response body, parsed while it is downloaded
+    public static final Histogram HTTP_DOWNLOAD = new Histogram("http.download", "us");
+
+    // Time to parse a response into news
+    public static final Histogram PARSE = new Histogram("parse.time", "us");
+
+    // Number of news parsed from a response
+    public static final Histogram PARSE_ITEMS = new Histogram("parse.items", "news");
+
+    // Time from the start of a load to the delivery of its result to the activity
+    public static final Histogram LOADER_DELIVERY = new Histogram("loader.delivery", "us");
+
+    // Time to bind a news to a row of the list
+    public static final Histogram BIND = new Histogram("adapter.bind", "us");
+
+    // Time from the creation of the main activity to the first frame drawn with news in the list
+    public static final Histogram FIRST_FRAME = new Histogram("startup.first_frame", "us");
+
+    // Time from the tap on a news to its text displayed in the reader
+    public static final Histogram READER_OPEN = new Histogram("reader.open", "us");
+
+    // Time to lay out a title on the main thread, because it was not prepared in the background
+    public static final Histogram TITLE_LAYOUT_MAIN = new Histogram("layout.title_main", "us");
+
+    // Time between two frames while the list scrolls
+    public static final Histogram FRAME = new Histogram("ui.frame", "us");
+
+    // All the histograms, in the order they are dumped
+    private static final Histogram[] ALL = {
+            HTTP_CONNECT, HTTP_FIRST_BYTE, HTTP_DOWNLOAD, PARSE, PARSE_ITEMS, LOADER_DELIVERY, BIND,
+            FIRST_FRAME, READER_OPEN, TITLE_LAYOUT_MAIN, FRAME
+    };
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static methods.
+     */
+    private NewsMetrics() {
+    }
+
+    /**
+     * Returns the histograms as text, one line per histogram with its count, mean,
+     * percentiles and maximum.
+     */
+    public static String dump() {
+        StringBuilder output = new StringBuilder();
+        for (Histogram histogram : ALL) {
+            histogram.appendTo(output);
+            output.append('\n');
+        }
+        return output.toString();
+    }
+
+    /**
+     * Clear all the histograms.
+     */
+    public static void reset() {
+        for (Histogram histogram : ALL) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * A histogram of positive values counted in buckets whose bounds are powers of two.
+     * It can be recorded from any thread.
+     */
+    public static final class Histogram {
+
+        // Bucket i counts the values in [2^(i-1), 2^i), bucket 0 counts the zeros
+        private static final int BUCKET_COUNT = 64;
+
+        private final String name;
+        private final String unit;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        /**
+         * Record a value. Negative values are recorded as zero.
+         */
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            // The bucket of a value is its number of significant bits
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        /**
+         * Record the time elapsed since the given System.nanoTime(), in microseconds.
+         */
+        public void recordSince(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1000);
+        }
+
+        /**
+         * Returns the number of values recorded.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Returns an upper bound of the given percentile of the values recorded, from 0 to 100.
+         */
+        public long getPercentile(double percentile) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.max(rank, 1)) {
+                    // Upper bound of the bucket, never more than the largest value recorded
+                    long upperBound = i == 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(upperBound, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        void appendTo(StringBuilder output) {
+            long total = count.get();
+            output.append(String.format(Locale.US,
+                    "%-16s count=%d mean=%d p50=%d p90=%d p99=%d max=%d %s",
+                    name, total, total == 0 ? 0 : sum.get() / total, getPercentile(50),
+                    getPercentile(90), getPercentile(99), max.get(), unit));
+        }
+    }
+}
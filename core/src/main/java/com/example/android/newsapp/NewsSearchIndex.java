@@ -0,0 +1,341 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * On-device inverted index of the news fetched so far, used to search them without a request.
+ * <p>
+ * The titles and sections are split into lowercase tokens, and every token points to the rows
+ * of the news containing it. Every word of a query is matched as a prefix, and a news matches
+ * when all the words of the query match. The news themselves are kept in a CompactNewsStore.
+ * The index is built incrementally by the loader threads and searched from a background thread.
+ * <p>
+ * Only the newest matches are returned, selected with a bounded heap over the matching rows,
+ * so a search never sorts all of them. Once the index is full, the oldest news are evicted to
+ * make room for the new ones.
+ */
+public class NewsSearchIndex {
+
+    // Maximum number of news indexed, so the index stays bounded in memory
+    static final int MAX_INDEXED_NEWS = 50000;
+
+    // Number of news evicted at once when the index is full, so it is not rebuilt at every add
+    static final int EVICTED_NEWS = MAX_INDEXED_NEWS / 4;
+
+    // The single index shared by the whole application
+    private static final NewsSearchIndex INSTANCE = new NewsSearchIndex();
+
+    // Guards all the fields below: many searches or a single writer at a time
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // The indexed news, replaced when the oldest ones are evicted
+    private CompactNewsStore store = new CompactNewsStore();
+
+    // Row of every indexed URL, so the same news is indexed only once
+    private Map<String, Integer> rowsByUrl = new HashMap<>();
+
+    // Rows of the news containing every token, sorted so the tokens with a prefix are contiguous
+    private TreeMap<String, Postings> postingsByToken = new TreeMap<>();
+
+    /**
+     * Returns the index of the application.
+     */
+    public static NewsSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add the given news to the index, skipping the ones already indexed. When the index is full,
+     * the oldest news are evicted first. This can be called from any thread.
+     */
+    public void addAll(List<EducationNews> educationNews) {
+        if (educationNews == null || educationNews.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Set<String> newsTokens = new HashSet<>();
+            for (EducationNews news : educationNews) {
+                String url = news.getUrl();
+                if (rowsByUrl.containsKey(url)) {
+                    continue;
+                }
+                if (store.size() >= MAX_INDEXED_NEWS) {
+                    evictOldest(EVICTED_NEWS);
+                }
+                int row = store.add(news);
+                rowsByUrl.put(url, row);
+
+                // Every token is added once per news, even if it appears several times
+                newsTokens.clear();
+                tokenize(news.getTitle(), newsTokens);
+                tokenize(news.getNewsSection(), newsTokens);
+                for (String token : newsTokens) {
+                    Postings postings = postingsByToken.get(token);
+                    if (postings == null) {
+                        postings = new Postings();
+                        postingsByToken.put(token, postings);
+                    }
+                    postings.add(row);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the indexed news matching all the words of the query as prefixes,
+     * from the most recent to the oldest one. This can be called from any thread.
+     *
+     * @param query      is the text typed by the user
+     * @param maxResults is the maximum number of news returned
+     */
+    public List<EducationNews> search(String query, int maxResults) {
+        Set<String> queryTokens = new HashSet<>();
+        tokenize(query, queryTokens);
+        List<EducationNews> results = new ArrayList<>();
+        if (queryTokens.isEmpty()) {
+            return results;
+        }
+
+        lock.readLock().lock();
+        try {
+            // Intersect the rows matching every word of the query
+            BitSet matches = null;
+            for (String token : queryTokens) {
+                BitSet tokenMatches = rowsWithPrefix(token);
+                if (matches == null) {
+                    matches = tokenMatches;
+                } else {
+                    matches.and(tokenMatches);
+                }
+                if (matches.isEmpty()) {
+                    return results;
+                }
+            }
+
+            // Keep the most recent matching rows only, and read their news newest first
+            int[] rows = newestRows(matches, maxResults);
+            for (int row : rows) {
+                results.add(store.get(row));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    /**
+     * Returns the number of indexed news.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return store.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the rows of all the news having a token that starts with the given prefix.
+     * The caller holds the read lock.
+     */
+    private BitSet rowsWithPrefix(String prefix) {
+        BitSet rows = new BitSet(store.size());
+        SortedMap<String, Postings> tokens = postingsByToken.tailMap(prefix);
+        for (Map.Entry<String, Postings> entry : tokens.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            entry.getValue().addTo(rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the given number of rows of the set, or fewer, with the most recent publication
+     * dates, from the most recent to the oldest one. The news with the same date are in the order
+     * they were indexed. The caller holds the read lock.
+     */
+    private int[] newestRows(BitSet rows, int count) {
+        // Min-heap of the newest rows seen so far: its root is the oldest of them
+        int[] heap = new int[Math.min(count, rows.cardinality())];
+        if (heap.length == 0) {
+            return heap;
+        }
+        int size = 0;
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            if (size < heap.length) {
+                heap[size] = row;
+                siftUp(heap, size++);
+            } else if (isNewer(row, heap[0])) {
+                heap[0] = row;
+                siftDown(heap, 0, size);
+            }
+        }
+
+        // Move the oldest row to the end until the heap is empty, the newest row ends up first
+        for (int end = size - 1; end > 0; end--) {
+            int oldest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = oldest;
+            siftDown(heap, 0, end);
+        }
+        return heap;
+    }
+
+    private void siftUp(int[] heap, int index) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isNewer(heap[parent], row)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private void siftDown(int[] heap, int index, int size) {
+        int row = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && isNewer(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!isNewer(row, heap[child])) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+
+    /**
+     * Returns true if the news at the first row comes before the one at the second row in the
+     * results: it is more recent, or it has the same date and was indexed first.
+     */
+    private boolean isNewer(int first, int second) {
+        long firstDate = store.getDate(first);
+        long secondDate = store.getDate(second);
+        return firstDate > secondDate || (firstDate == secondDate && first < second);
+    }
+
+    /**
+     * Remove at least the given number of news with the oldest publication dates, keeping the
+     * rows of the other ones in the same order. The caller holds the write lock.
+     */
+    private void evictOldest(int count) {
+        int oldSize = store.size();
+        long[] dates = new long[oldSize];
+        for (int row = 0; row < oldSize; row++) {
+            dates[row] = store.getDate(row);
+        }
+        long[] sortedDates = dates.clone();
+        Arrays.sort(sortedDates);
+        // News published at the same time as the last evicted one are evicted with it
+        long newestEvictedDate = sortedDates[Math.min(count, oldSize) - 1];
+
+        // Copy the news kept to a new store, and remember the new row of every old row
+        CompactNewsStore keptStore = new CompactNewsStore();
+        Map<String, Integer> keptRowsByUrl = new HashMap<>();
+        int[] newRows = new int[oldSize];
+        for (int row = 0; row < oldSize; row++) {
+            if (dates[row] <= newestEvictedDate) {
+                newRows[row] = -1;
+            } else {
+                EducationNews news = store.get(row);
+                newRows[row] = keptStore.add(news);
+                keptRowsByUrl.put(news.getUrl(), newRows[row]);
+            }
+        }
+
+        // The postings keep their order, as the rows kept keep theirs
+        TreeMap<String, Postings> keptPostings = new TreeMap<>();
+        for (Map.Entry<String, Postings> entry : postingsByToken.entrySet()) {
+            Postings postings = entry.getValue().remap(newRows);
+            if (postings != null) {
+                keptPostings.put(entry.getKey(), postings);
+            }
+        }
+
+        store = keptStore;
+        rowsByUrl = keptRowsByUrl;
+        postingsByToken = keptPostings;
+    }
+
+    /**
+     * Split the text into lowercase tokens of letters and digits and add them to the set.
+     */
+    static void tokenize(String text, Set<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        String lowerCaseText = text.toLowerCase(Locale.US);
+        int start = -1;
+        for (int i = 0; i <= lowerCaseText.length(); i++) {
+            boolean isTokenChar = i < lowerCaseText.length()
+                    && Character.isLetterOrDigit(lowerCaseText.charAt(i));
+            if (isTokenChar && start < 0) {
+                start = i;
+            } else if (!isTokenChar && start >= 0) {
+                tokens.add(lowerCaseText.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Growable list of the rows containing a token, in increasing order.
+     */
+    private static class Postings {
+
+        private int[] rows = new int[4];
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        void addTo(BitSet bitSet) {
+            for (int i = 0; i < size; i++) {
+                bitSet.set(rows[i]);
+            }
+        }
+
+        /**
+         * Returns the postings with every row replaced by its new row, leaving out the rows
+         * replaced by -1, or null if no row is left.
+         */
+        Postings remap(int[] newRows) {
+            Postings remapped = new Postings();
+            for (int i = 0; i < size; i++) {
+                int newRow = newRows[rows[i]];
+                if (newRow >= 0) {
+                    remapped.add(newRow);
+                }
+            }
+            return remapped.size > 0 ? remapped : null;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shared in-memory store of the news loaded by the application, written by the loader, the
+ * background sync and any other source of news, and read by the user interface.
+ * <p>
+ * The content of the store is an immutable Snapshot: the news of every feed, usually a page of
+ * a section keyed by its request URL, and the news of all the feeds keyed by their URL. Reading
+ * a snapshot never takes a lock and never sees a half written update. A writer collects its
+ * updates into a Batch and applies it at once: a new snapshot is built from the current one and
+ * swapped in with a compare-and-set, and rebuilt if another writer got there first. Every
+ * snapshot has a version, incremented by every batch that changed something.
+ * <p>
+ * Observers are notified of every new version with a ChangeSet, telling which feeds and which
+ * news changed, so they only react to the changes they care about. When writers race, the
+ * change sets can be delivered out of order, but the snapshot given with a change set is always
+ * the newest one at the time of the delivery, which contains that change set.
+ */
+public final class NewsStore {
+
+    // Maximum number of feeds kept in the store, the feeds written the longest ago are dropped first
+    static final int MAX_FEEDS = 200;
+
+    // The store shared by the whole application
+    private static final NewsStore INSTANCE = new NewsStore(MAX_FEEDS);
+
+    /**
+     * Notified when the content of the store changed.
+     */
+    public interface Observer {
+
+        /**
+         * Called on the executor of the observer after a batch changed the store.
+         *
+         * @param snapshot is the newest snapshot of the store, which contains the changes
+         * @param changes  are the feeds and the news changed by the batch
+         */
+        void onStoreChanged(Snapshot snapshot, ChangeSet changes);
+    }
+
+    // Maximum number of feeds kept
+    private final int maxFeeds;
+
+    // Current content of the store, replaced as a whole by every batch
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+
+    // Observers and the executors they are notified on
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a new empty NewsStore keeping at most the given number of feeds.
+     */
+    NewsStore(int maxFeeds) {
+        this.maxFeeds = maxFeeds;
+    }
+
+    /**
+     * Returns the store of the application.
+     */
+    public static NewsStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the current content of the store. This can be called from any thread.
+     */
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * Apply all the updates of the batch at once and notify the observers if anything changed.
+     * This can be called from any thread.
+     *
+     * @return the changes made by the batch, empty if it did not change anything
+     */
+    public ChangeSet apply(Batch batch) {
+        Map<String, List<EducationNews>> updates = batch.drain();
+        if (updates.isEmpty()) {
+            return new ChangeSet(current.get().version);
+        }
+        while (true) {
+            Snapshot previous = current.get();
+            ChangeSet changes = new ChangeSet(previous.version + 1);
+            Snapshot next = previous.update(updates, maxFeeds, changes);
+            if (changes.isEmpty()) {
+                // Nothing changed, the readers keep the same snapshot and the observers are not notified
+                return new ChangeSet(previous.version);
+            }
+            if (current.compareAndSet(previous, next)) {
+                notifyObservers(changes);
+                return changes;
+            }
+            // Another writer replaced the snapshot in the meantime, apply the batch to the new one
+        }
+    }
+
+    /**
+     * Notify the given observer of every change from now on, on the given executor.
+     */
+    public void addObserver(Observer observer, Executor executor) {
+        registrations.add(new Registration(observer, executor));
+    }
+
+    /**
+     * Stop notifying the given observer. A notification already handed to its executor is still delivered.
+     */
+    public void removeObserver(Observer observer) {
+        for (Registration registration : registrations) {
+            if (registration.observer == observer) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    private void notifyObservers(final ChangeSet changes) {
+        for (final Registration registration : registrations) {
+            registration.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    registration.observer.onStoreChanged(current.get(), changes);
+                }
+            });
+        }
+    }
+
+    /**
+     * Observer registered with the executor it is notified on.
+     */
+    private static final class Registration {
+        final Observer observer;
+        final Executor executor;
+
+        Registration(Observer observer, Executor executor) {
+            this.observer = observer;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Updates collected by a writer, applied to the store at once. The updates of the same feed
+     * replace each other, the last one wins. A batch can be filled from several threads.
+     */
+    public static final class Batch {
+
+        // News of every feed updated by the batch, null for a feed removed
+        private Map<String, List<EducationNews>> updates = new LinkedHashMap<>();
+
+        /**
+         * Replace the news of the feed with the given key.
+         */
+        public synchronized Batch putFeed(String key, List<EducationNews> educationNews) {
+            updates.put(key, Collections.unmodifiableList(new ArrayList<>(educationNews)));
+            return this;
+        }
+
+        /**
+         * Remove the feed with the given key and its news from the store.
+         */
+        public synchronized Batch removeFeed(String key) {
+            updates.put(key, null);
+            return this;
+        }
+
+        /**
+         * Returns true if the batch has no updates.
+         */
+        public synchronized boolean isEmpty() {
+            return updates.isEmpty();
+        }
+
+        /**
+         * Returns the updates collected so far and empty the batch.
+         */
+        synchronized Map<String, List<EducationNews>> drain() {
+            Map<String, List<EducationNews>> drained = updates;
+            updates = new LinkedHashMap<>();
+            return drained;
+        }
+    }
+
+    /**
+     * Immutable content of the store at a given version.
+     */
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0,
+                new LinkedHashMap<String, List<EducationNews>>(),
+                new HashMap<String, EducationNews>(),
+                new HashMap<String, Integer>());
+
+        // Version of the snapshot, 0 for the empty store
+        private final long version;
+
+        // News of every feed, in the order the feeds were written, the oldest first
+        private final LinkedHashMap<String, List<EducationNews>> feeds;
+
+        // News of all the feeds by URL, and the number of feeds every news is in
+        private final HashMap<String, EducationNews> news;
+        private final HashMap<String, Integer> feedCounts;
+
+        private Snapshot(long version, LinkedHashMap<String, List<EducationNews>> feeds,
+                         HashMap<String, EducationNews> news, HashMap<String, Integer> feedCounts) {
+            this.version = version;
+            this.feeds = feeds;
+            this.news = news;
+            this.feedCounts = feedCounts;
+        }
+
+        /**
+         * Returns the version of the snapshot. A snapshot with a greater version is more recent.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the news of the feed with the given key, or null if it is not in the store.
+         * The list can not be modified.
+         */
+        public List<EducationNews> getFeed(String key) {
+            return feeds.get(key);
+        }
+
+        /**
+         * Returns the news with the given URL, as last written in any feed, or null.
+         */
+        public EducationNews getNews(String url) {
+            return news.get(url);
+        }
+
+        /**
+         * Returns the number of feeds in the snapshot.
+         */
+        public int getFeedCount() {
+            return feeds.size();
+        }
+
+        /**
+         * Returns the number of distinct news in all the feeds of the snapshot.
+         */
+        public int getNewsCount() {
+            return news.size();
+        }
+
+        /**
+         * Returns a new snapshot with the updates applied, and records the differences in the
+         * change set. Returns this snapshot if nothing changed.
+         */
+        @SuppressWarnings("unchecked")
+        Snapshot update(Map<String, List<EducationNews>> updates, int maxFeeds, ChangeSet changes) {
+            LinkedHashMap<String, List<EducationNews>> newFeeds =
+                    (LinkedHashMap<String, List<EducationNews>>) feeds.clone();
+            HashMap<String, EducationNews> newNews = (HashMap<String, EducationNews>) news.clone();
+            HashMap<String, Integer> newFeedCounts = (HashMap<String, Integer>) feedCounts.clone();
+
+            // URLs of the news of the feeds written or removed, compared with this snapshot at the end
+            Set<String> touchedUrls = new HashSet<>();
+            for (Map.Entry<String, List<EducationNews>> update : updates.entrySet()) {
+                String key = update.getKey();
+                List<EducationNews> feedNews = update.getValue();
+                List<EducationNews> oldFeedNews = newFeeds.remove(key);
+                if (feedNews != null) {
+                    // The feed moves to the end, it is the most recently written
+                    newFeeds.put(key, feedNews);
+                    addNews(feedNews, newNews, newFeedCounts, touchedUrls);
+                }
+                if (oldFeedNews != null) {
+                    removeNews(oldFeedNews, newNews, newFeedCounts, touchedUrls);
+                }
+                if (feedNews == null ? oldFeedNews != null
+                        : oldFeedNews == null || !sameNews(oldFeedNews, feedNews)) {
+                    changes.feeds.add(key);
+                }
+            }
+
+            // Drop the feeds written the longest ago
+            Iterator<Map.Entry<String, List<EducationNews>>> iterator = newFeeds.entrySet().iterator();
+            while (newFeeds.size() > maxFeeds) {
+                Map.Entry<String, List<EducationNews>> oldestFeed = iterator.next();
+                iterator.remove();
+                changes.feeds.add(oldestFeed.getKey());
+                removeNews(oldestFeed.getValue(), newNews, newFeedCounts, touchedUrls);
+            }
+
+            for (String url : touchedUrls) {
+                EducationNews oldNews = news.get(url);
+                EducationNews newsNow = newNews.get(url);
+                if (oldNews == null) {
+                    if (newsNow != null) {
+                        changes.added.add(url);
+                    }
+                } else if (newsNow == null) {
+                    changes.removed.add(url);
+                } else if (!sameContent(oldNews, newsNow)) {
+                    changes.updated.add(url);
+                }
+            }
+
+            if (changes.isEmpty()) {
+                return this;
+            }
+            return new Snapshot(changes.version, newFeeds, newNews, newFeedCounts);
+        }
+
+        private static void addNews(List<EducationNews> feedNews, HashMap<String, EducationNews> newNews,
+                                    HashMap<String, Integer> newFeedCounts, Set<String> touchedUrls) {
+            for (EducationNews educationNews : feedNews) {
+                String url = educationNews.getUrl();
+                newNews.put(url, educationNews);
+                Integer count = newFeedCounts.get(url);
+                newFeedCounts.put(url, count == null ? 1 : count + 1);
+                touchedUrls.add(url);
+            }
+        }
+
+        private static void removeNews(List<EducationNews> feedNews, HashMap<String, EducationNews> newNews,
+                                       HashMap<String, Integer> newFeedCounts, Set<String> touchedUrls) {
+            for (EducationNews educationNews : feedNews) {
+                String url = educationNews.getUrl();
+                Integer count = newFeedCounts.get(url);
+                if (count == null) {
+                    continue;
+                }
+                if (count > 1) {
+                    newFeedCounts.put(url, count - 1);
+                } else {
+                    newFeedCounts.remove(url);
+                    newNews.remove(url);
+                }
+                touchedUrls.add(url);
+            }
+        }
+
+        /**
+         * Returns true if the two lists have the same news, in the same order, with the same content.
+         */
+        private static boolean sameNews(List<EducationNews> oldFeedNews, List<EducationNews> feedNews) {
+            if (oldFeedNews.size() != feedNews.size()) {
+                return false;
+            }
+            for (int i = 0; i < feedNews.size(); i++) {
+                if (!oldFeedNews.get(i).hasSameUrl(feedNews.get(i))
+                        || !sameContent(oldFeedNews.get(i), feedNews.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean sameContent(EducationNews oldNews, EducationNews news) {
+            String oldThumbnailUrl = oldNews.getThumbnailUrl();
+            return oldNews.getNewsDate() == news.getNewsDate()
+                    && oldNews.getTitle().equals(news.getTitle())
+                    && oldNews.getNewsSection().equals(news.getNewsSection())
+                    && (oldThumbnailUrl == null ? news.getThumbnailUrl() == null
+                    : oldThumbnailUrl.equals(news.getThumbnailUrl()));
+        }
+    }
+
+    /**
+     * Changes made to the store by a batch: the feeds whose news changed, and the URLs of the
+     * news added to the store, updated or removed from it.
+     */
+    public static final class ChangeSet {
+
+        // Version of the snapshot made by the batch
+        private final long version;
+
+        private final Set<String> feeds = new HashSet<>();
+        private final Set<String> added = new HashSet<>();
+        private final Set<String> updated = new HashSet<>();
+        private final Set<String> removed = new HashSet<>();
+
+        ChangeSet(long version) {
+            this.version = version;
+        }
+
+        /**
+         * Returns the version of the snapshot made by the batch, or of the current snapshot if the
+         * batch did not change anything.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns true if the batch did not change anything.
+         */
+        public boolean isEmpty() {
+            return feeds.isEmpty() && added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+        }
+
+        /**
+         * Returns true if the news of any of the given feeds changed.
+         */
+        public boolean affectsAnyFeed(Collection<String> keys) {
+            for (String key : keys) {
+                if (feeds.contains(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the keys of the feeds whose news changed, were added or were removed.
+         */
+        public Set<String> getFeeds() {
+            return Collections.unmodifiableSet(feeds);
+        }
+
+        /**
+         * Returns the URLs of the news that were not in the store before.
+         */
+        public Set<String> getAdded() {
+            return Collections.unmodifiableSet(added);
+        }
+
+        /**
+         * Returns the URLs of the news whose title, section, date or thumbnail changed.
+         */
+        public Set<String> getUpdated() {
+            return Collections.unmodifiableSet(updated);
+        }
+
+        /**
+         * Returns the URLs of the news that are not in any feed anymore.
+         */
+        public Set<String> getRemoved() {
+            return Collections.unmodifiableSet(removed);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Helpers that keep the strings of the news compact in memory.
+ * <p>
+ * Section names repeat the same few values, so they are interned in a small shared pool.
+ * Missing values all point to the same sentinel string. The URLs of the news and of their
+ * thumbnails share the address of The Guardian websites, so only the part after that prefix is stored.
+ */
+public final class NewsStrings {
+
+    // Shared sentinel for any value that is missing from the news
+    public static final String NOT_AVAILABLE = "N/A";
+
+    // Known URL prefixes, the index 0 means that the URL is stored without a prefix
+    static final String[] URL_PREFIXES = {
+            "",
+            "https://www.theguardian.com/",
+            "http://www.theguardian.com/",
+            "https://media.guim.co.uk/"
+    };
+
+    // Maximum number of section names kept in the pool, so unexpected values can not fill the memory
+    private static final int MAX_INTERNED_SECTIONS = 256;
+
+    // Pool of the section names seen so far
+    private static final ConcurrentHashMap<String, String> SECTIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static variables and methods.
+     */
+    private NewsStrings() {
+    }
+
+    /**
+     * Returns the shared sentinel if the value is missing, otherwise the value itself.
+     */
+    public static String orNotAvailable(String value) {
+        return value == null || NOT_AVAILABLE.equals(value) ? NOT_AVAILABLE : value;
+    }
+
+    /**
+     * Returns the shared instance of the given section name.
+     * This can be called from any thread.
+     */
+    public static String internSection(String section) {
+        section = orNotAvailable(section);
+        String interned = SECTIONS.get(section);
+        if (interned != null) {
+            return interned;
+        }
+        if (SECTIONS.size() >= MAX_INTERNED_SECTIONS) {
+            return section;
+        }
+        interned = SECTIONS.putIfAbsent(section, section);
+        return interned != null ? interned : section;
+    }
+
+    /**
+     * Returns the index of the known prefix the URL starts with, or 0 if there is none.
+     */
+    static byte urlPrefixOf(String url) {
+        for (byte i = 1; i < URL_PREFIXES.length; i++) {
+            if (url.startsWith(URL_PREFIXES[i])) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the part of the URL after the prefix with the given index.
+     */
+    static String urlSuffix(String url, byte prefix) {
+        if (prefix == 0) {
+            return url;
+        }
+        // Copy the substring, so it does not keep the whole URL alive on older platforms
+        // where substring() shares the characters of the original string
+        return new String(url.substring(URL_PREFIXES[prefix].length()));
+    }
+
+    /**
+     * Returns the full URL from its prefix index and the part after the prefix.
+     */
+    static String url(byte prefix, String suffix) {
+        return prefix == 0 ? suffix : URL_PREFIXES[prefix].concat(suffix);
+    }
+}
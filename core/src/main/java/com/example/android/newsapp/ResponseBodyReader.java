@@ -0,0 +1,187 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads whole response bodies into byte buffers reused from one response to the next.
+ * <p>
+ * The body is read straight into the buffer, sized from the Content-Length of the response,
+ * and a gzip body is inflated straight into it too. The bytes are then decoded from UTF-8 only
+ * once, while they are parsed. Reading the whole body before parsing it also means that a
+ * request cancelled during the download is never parsed.
+ * This can be called from any thread.
+ */
+public final class ResponseBodyReader {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Size of the buffer when the length of the body is unknown
+    static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    // Bodies larger than this are rejected, a page of news is far smaller
+    static final int MAX_BODY_SIZE = 8 * 1024 * 1024;
+
+    // Expected ratio between the size of a JSON body and its size compressed with gzip
+    private static final int GZIP_EXPANSION = 6;
+
+    // Size of the buffer of compressed bytes of the gzip inflater
+    private static final int GZIP_INPUT_BUFFER_SIZE = 8 * 1024;
+
+    // Buffers kept for the next responses, at most one per parallel request
+    private static final int MAX_POOLED_BUFFERS = 4;
+
+    // Larger buffers are not kept, so a single huge response does not stay in memory
+    private static final int MAX_POOLED_BUFFER_SIZE = 512 * 1024;
+
+    // Buffers free to be reused, guarded by the pool itself
+    private static final ArrayDeque<byte[]> POOL = new ArrayDeque<>();
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static methods.
+     */
+    private ResponseBodyReader() {
+    }
+
+    /**
+     * Read the stream until its end into a pooled buffer. The returned body must be released.
+     *
+     * @param inputStream   is the body as received from the network
+     * @param contentLength is the Content-Length of the response, or -1 if it is unknown
+     * @param gzip          is true if the body is compressed with gzip
+     */
+    public static Body read(InputStream inputStream, long contentLength, boolean gzip) throws IOException {
+        InputStream source = gzip ? new GZIPInputStream(inputStream, GZIP_INPUT_BUFFER_SIZE) : inputStream;
+
+        // One more byte than expected, so the end of the stream is found without growing the buffer
+        long expectedLength = contentLength > 0
+                ? contentLength * (gzip ? GZIP_EXPANSION : 1) + 1 : DEFAULT_BUFFER_SIZE;
+        byte[] buffer = acquire((int) Math.min(expectedLength, MAX_POOLED_BUFFER_SIZE));
+        int length = 0;
+        try {
+            while (true) {
+                if (length == buffer.length) {
+                    buffer = grow(buffer);
+                }
+                int count = source.read(buffer, length, buffer.length - length);
+                if (count == -1) {
+                    break;
+                }
+                length += count;
+            }
+        } catch (IOException e) {
+            release(buffer);
+            throw e;
+        }
+        return new Body(buffer, length);
+    }
+
+    /**
+     * Returns a buffer of at least the given size, from the pool if there is one.
+     */
+    private static byte[] acquire(int minSize) {
+        synchronized (POOL) {
+            Iterator<byte[]> buffers = POOL.iterator();
+            while (buffers.hasNext()) {
+                byte[] buffer = buffers.next();
+                if (buffer.length >= minSize) {
+                    buffers.remove();
+                    return buffer;
+                }
+            }
+        }
+        return new byte[Math.max(minSize, DEFAULT_BUFFER_SIZE)];
+    }
+
+    /**
+     * Give a buffer back to the pool, replacing the smallest one if the pool is full.
+     */
+    private static void release(byte[] buffer) {
+        if (buffer.length > MAX_POOLED_BUFFER_SIZE) {
+            return;
+        }
+        synchronized (POOL) {
+            if (POOL.size() >= MAX_POOLED_BUFFERS) {
+                byte[] smallest = null;
+                for (byte[] pooled : POOL) {
+                    if (smallest == null || pooled.length < smallest.length) {
+                        smallest = pooled;
+                    }
+                }
+                if (smallest.length >= buffer.length) {
+                    return;
+                }
+                POOL.remove(smallest);
+            }
+            POOL.add(buffer);
+        }
+    }
+
+    /**
+     * Returns a buffer twice as large with the content of the given one, which goes back to the pool.
+     */
+    private static byte[] grow(byte[] buffer) throws IOException {
+        if (buffer.length >= MAX_BODY_SIZE) {
+            throw new IOException("Response body larger than " + MAX_BODY_SIZE + " bytes");
+        }
+        byte[] newBuffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_BODY_SIZE));
+        release(buffer);
+        return newBuffer;
+    }
+
+    /**
+     * The bytes of a response body, in a pooled buffer. It must be released once it is parsed,
+     * and must not be used anymore afterwards.
+     */
+    public static final class Body {
+
+        private byte[] buffer;
+        private final int length;
+
+        private Body(byte[] buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+
+        /**
+         * Returns the number of bytes of the body.
+         */
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Returns a Reader decoding the body from UTF-8 while it is read.
+         */
+        public Reader newReader() {
+            return new InputStreamReader(new ByteArrayInputStream(buffer, 0, length), UTF_8);
+        }
+
+        /**
+         * Returns the body decoded from UTF-8.
+         */
+        @Override
+        public String toString() {
+            return new String(buffer, 0, length, UTF_8);
+        }
+
+        /**
+         * Give the buffer back to the pool.
+         */
+        public void release() {
+            if (buffer != null) {
+                ResponseBodyReader.release(buffer);
+                buffer = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package com.example.android.newsapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Helper methods related to requesting and receiving news data from The Guardian.
+ */
+public class Utils {
+
+    // Key used for the JSON response
+    static final String RESPONSE = "response";
+    // Key used for the results with the list of news
+    static final String RESULTS = "results";
+    // Key used for the title of the news
+    static final String NEWS_TITLE = "webTitle";
+    // Key used for the section of the news
+    static final String SECTION = "sectionName";
+    // Key used for the date when the news was published
+    static final String DATE = "webPublicationDate";
+    // Key used for the URL of the news
+    static final String NEWS_URL = "webUrl";
+    // Key used for the optional fields of the news, and for the thumbnail among them
+    static final String FIELDS = "fields";
+    static final String THUMBNAIL = "thumbnail";
+    // Key used for the article of a single item response, and for its text among its fields
+    static final String CONTENT = "content";
+    static final String BODY_TEXT = "bodyText";
+    // Header with the number of requests the API key can still make today
+    static final String REMAINING_DAILY_QUOTA = "X-RateLimit-Remaining-day";
+    // Tag for the log messages
+    private static final String LOG_TAG = Utils.class.getSimpleName();
+
+    /**
+     * Create a private constructor.
+     * This class is only meant to hold static variables and methods, which can be accessed
+     * directly from the class name Utils (and an object instance of Utils is not needed).
+     */
+    private Utils() {
+    }
+
+    /**
+     * Query the Guardian dataset and return a list of EducationNews objects.
+     */
+    public static List<EducationNews> fetchEducationNewsData(String requestUrl) {
+        EducationNewsResponse response = fetchEducationNewsData(requestUrl, null, null, null);
+        return response != null ? response.getNews() : null;
+    }
+
+    /**
+     * Query the Guardian dataset with a conditional request.
+     * <p>
+     * When the validators of a previous response are given, the server can answer
+     * "304 Not Modified" and the returned response has no news, meaning that the cached
+     * list is still valid. Returns null if the request failed.
+     *
+     * @param requestUrl   is the URL of the query
+     * @param eTag         is the ETag of the cached response, or null
+     * @param lastModified is the Last-Modified date of the cached response, or null
+     * @param cancellation aborts the request, even while it is blocked reading, or null
+     */
+    public static EducationNewsResponse fetchEducationNewsData(String requestUrl, String eTag,
+                                                               String lastModified,
+                                                               CancellationToken cancellation) {
+        EducationNewsResponse response = fetchEducationNewsResponse(requestUrl, eTag, lastModified, cancellation);
+        return response != null && response.isSuccessful() ? response : null;
+    }
+
+    /**
+     * Query the Guardian dataset with a conditional request, like fetchEducationNewsData,
+     * but also return the responses with an error status code, so the caller can decide whether
+     * and when to retry. Returns null if there was no response at all or the request was cancelled.
+     */
+    public static EducationNewsResponse fetchEducationNewsResponse(String requestUrl, String eTag,
+                                                                   String lastModified,
+                                                                   CancellationToken cancellation) {
+        // Create the URL object
+        URL url = createUrl(requestUrl);
+
+        // Perform HTTP request to the URL and parse the JSON response while it is being received
+        EducationNewsResponse response = null;
+        try {
+            // Try to create a HTTP request with the request URL by using the makeHttpRequest method to get the data
+            response = makeHttpRequest(url, eTag, lastModified, cancellation);
+        } catch (IOException e) {
+            // If the request fails, print the error message to the Log
+            if (!isCancelled(cancellation)) {
+                NewsLog.e(LOG_TAG, "Problem making the HTTP request.", e);
+            }
+        }
+
+        // Return the response with the list of Education News
+        return response;
+    }
+
+    /**
+     * Fetch the text of an article with a single item request, and return it, or null if the
+     * request failed, was cancelled or the article has no text.
+     *
+     * @param requestUrl   is the URL of the article in the content API, with show-fields=bodyText
+     * @param cancellation aborts the request, even while it is blocked reading, or null
+     */
+    public static String fetchArticleBodyText(String requestUrl, CancellationToken cancellation) {
+        URL url = createUrl(requestUrl);
+        if (url == null || isCancelled(cancellation)) {
+            return null;
+        }
+
+        HttpURLConnection urlConnection = null;
+        InputStream inputStream = null;
+        Runnable abortListener = null;
+        try {
+            urlConnection = (HttpURLConnection) url.openConnection();
+
+            // Disconnect when the request is cancelled, as for the lists of news
+            if (cancellation != null) {
+                final HttpURLConnection connection = urlConnection;
+                abortListener = new Runnable() {
+                    @Override
+                    public void run() {
+                        connection.disconnect();
+                    }
+                };
+                cancellation.addOnCancelListener(abortListener);
+                if (cancellation.isCancelled()) {
+                    return null;
+                }
+            }
+
+            urlConnection.setReadTimeout(10000 /* milliseconds */);
+            urlConnection.setConnectTimeout(15000 /* milliseconds */);
+            urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+
+            int responseCode = urlConnection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                NewsLog.w(LOG_TAG, "Error response code for the article: " + responseCode);
+                inputStream = urlConnection.getErrorStream();
+                drain(inputStream);
+                return null;
+            }
+
+            // The text of an article is several times bigger than a page of news, and compresses well
+            inputStream = urlConnection.getInputStream();
+            ResponseBodyReader.Body body = ResponseBodyReader.read(inputStream,
+                    urlConnection.getContentLength(),
+                    "gzip".equalsIgnoreCase(urlConnection.getContentEncoding()));
+            try {
+                drain(inputStream);
+                if (isCancelled(cancellation)) {
+                    return null;
+                }
+                return EducationNewsJsonParser.parseBodyText(body.newReader());
+            } finally {
+                body.release();
+            }
+        } catch (IOException e) {
+            if (!isCancelled(cancellation)) {
+                NewsLog.e(LOG_TAG, "Problem retrieving the article JSON result.", e);
+            }
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+            return null;
+        } finally {
+            if (abortListener != null) {
+                cancellation.removeOnCancelListener(abortListener);
+            }
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    // The text was already read
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns new URL object from the given string URL.
+     */
+    private static URL createUrl(String stringUrl) {
+        URL url = null;
+        try {
+            // Try to create an URL from the String
+            url = new URL(stringUrl);
+        } catch (MalformedURLException e) {
+            // If the request fails, print the error to the Log
+            NewsLog.e(LOG_TAG, "Problem building the URL ", e);
+        }
+        return url;
+    }
+
+    /**
+     * Make an HTTP request to the given URL and return the response with the list of
+     * EducationNews objects parsed from it, or null if the request failed.
+     * <p>
+     * The connection is not disconnected and the response body is read until its end,
+     * so that HttpURLConnection can put the connection back in its pool and reuse it
+     * (keep-alive) for the next request to the same host.
+     * <p>
+     * Cancelling the request disconnects it, which makes a blocked read fail right away.
+     * If it is cancelled before its body is read, the body is not parsed at all.
+     */
+    private static EducationNewsResponse makeHttpRequest(URL url, String eTag, String lastModified,
+                                                         CancellationToken cancellation)
+            throws IOException {
+
+        EducationNewsResponse response = null;
+
+        // If the URL is null (if there is no request URL), or nobody wants the result anymore, then return early.
+        if (url == null || isCancelled(cancellation)) {
+            return response;
+        }
+
+        // Initialize variables for the HTTP connection and for the InputStream
+        HttpURLConnection urlConnection = null;
+        InputStream inputStream = null;
+        Runnable abortListener = null;
+        try {
+            // Try to establish a HTTP connection with the request URL and set up the properties of the request
+            urlConnection = (HttpURLConnection) url.openConnection();
+
+            // Disconnect when the request is cancelled, interrupting the thread would not stop a blocked read
+            if (cancellation != null) {
+                final HttpURLConnection connection = urlConnection;
+                abortListener = new Runnable() {
+                    @Override
+                    public void run() {
+                        connection.disconnect();
+                    }
+                };
+                cancellation.addOnCancelListener(abortListener);
+                if (cancellation.isCancelled()) {
+                    return null;
+                }
+            }
+
+            urlConnection.setReadTimeout(10000 /* milliseconds */);
+            urlConnection.setConnectTimeout(15000 /* milliseconds */);
+            urlConnection.setRequestMethod("GET");
+
+            // Ask for a compressed response and send the validators of the cached response, if any
+            urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+            if (eTag != null) {
+                urlConnection.setRequestProperty("If-None-Match", eTag);
+            }
+            if (lastModified != null) {
+                urlConnection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            // Send a request to connect, timing the DNS lookup and the connection together
+            long startTime = System.nanoTime();
+            urlConnection.connect();
+            NewsMetrics.HTTP_CONNECT.recordSince(startTime);
+
+            // Wait for the status line, timing the server until the first byte of the response
+            long connectedTime = System.nanoTime();
+            int responseCode = urlConnection.getResponseCode();
+            NewsMetrics.HTTP_FIRST_BYTE.recordSince(connectedTime);
+
+            // Validators to send the next time the same query is refreshed
+            String responseETag = urlConnection.getHeaderField("ETag");
+            String responseLastModified = urlConnection.getHeaderField("Last-Modified");
+            int remainingDailyQuota = urlConnection.getHeaderFieldInt(
+                    REMAINING_DAILY_QUOTA, EducationNewsResponse.UNKNOWN);
+
+            if (isCancelled(cancellation)) {
+                // The query was superseded while waiting for the server, drop the body without parsing it
+                urlConnection.disconnect();
+                return null;
+            }
+
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                // If the request was successful (response code 200), then read the whole body
+                // into a pooled buffer, inflating it if it is compressed, and parse it from there.
+                long downloadStartTime = System.nanoTime();
+                inputStream = urlConnection.getInputStream();
+                ResponseBodyReader.Body body = ResponseBodyReader.read(inputStream,
+                        urlConnection.getContentLength(),
+                        "gzip".equalsIgnoreCase(urlConnection.getContentEncoding()));
+                try {
+                    drain(inputStream);
+                    NewsMetrics.HTTP_DOWNLOAD.recordSince(downloadStartTime);
+                    if (isCancelled(cancellation)) {
+                        // The query was superseded during the download, drop the body without parsing it
+                        return null;
+                    }
+                    List<EducationNews> educationNews = parseBody(body);
+                    response = new EducationNewsResponse(responseCode, educationNews, responseETag,
+                            responseLastModified, EducationNewsResponse.UNKNOWN, remainingDailyQuota);
+                } finally {
+                    body.release();
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                // If the cached response is still valid (response code 304), there is nothing to parse
+                // and the validators of the cached response are kept if the server did not send new ones.
+                response = new EducationNewsResponse(responseCode, null,
+                        responseETag != null ? responseETag : eTag,
+                        responseLastModified != null ? responseLastModified : lastModified,
+                        EducationNewsResponse.UNKNOWN, remainingDailyQuota);
+            } else {
+                // If the response failed, print it to the Log
+                NewsLog.e(LOG_TAG, "Error response code: " + responseCode);
+                // Read the error body until its end, so the connection can still be reused
+                inputStream = urlConnection.getErrorStream();
+                drain(inputStream);
+                // Keep the delay asked by the server, if any, so the caller retries no sooner
+                response = new EducationNewsResponse(responseCode, null, null, null,
+                        parseRetryAfter(urlConnection.getHeaderField("Retry-After")), remainingDailyQuota);
+            }
+        } catch (IOException e) {
+
+            // If the connection was not established, print it to the log,
+            // unless it was disconnected on purpose because the request was cancelled
+            if (!isCancelled(cancellation)) {
+                NewsLog.e(LOG_TAG, "Problem retrieving the Education News JSON results.", e);
+            }
+            response = null;
+
+            // Do not return a broken connection to the pool
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        } finally {
+
+            // The request is done, cancelling it must not disconnect the pooled connection anymore
+            if (abortListener != null) {
+                cancellation.removeOnCancelListener(abortListener);
+            }
+
+            // Close the Input Stream if it is not closed yet
+            if (inputStream != null) {
+                // Closing the input stream could throw an IOException, which is why
+                // the makeHttpRequest(URL url) method signature specifies than an IOException
+                // could be thrown.
+                inputStream.close();
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Returns the delay of a Retry-After header in milliseconds, or EducationNewsResponse.UNKNOWN.
+     * The header is either a number of seconds or an HTTP date.
+     */
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return EducationNewsResponse.UNKNOWN;
+        }
+        retryAfter = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(retryAfter) * 1000);
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, so it should be a date
+        }
+        SimpleDateFormat httpDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        try {
+            return Math.max(0, httpDateFormat.parse(retryAfter).getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return EducationNewsResponse.UNKNOWN;
+        }
+    }
+
+    /**
+     * Returns true if the request was cancelled.
+     */
+    private static boolean isCancelled(CancellationToken cancellation) {
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    /**
+     * Read whatever is left of the InputStream, so the connection can be reused.
+     */
+    private static void drain(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return;
+        }
+        byte[] buffer = new byte[1024];
+        while (inputStream.read(buffer) != -1) {
+            // Discard the remaining bytes
+        }
+    }
+
+    /**
+     * Parse the response body with the streaming parser, decoding it from UTF-8 while it is parsed,
+     * without building a String of the whole JSON response.
+     */
+    private static List<EducationNews> parseBody(ResponseBodyReader.Body body) throws IOException {
+        long startTime = System.nanoTime();
+        List<EducationNews> educationNews = new ArrayList<>();
+        EducationNewsJsonParser.parse(body.newReader(), educationNews);
+        NewsMetrics.PARSE.recordSince(startTime);
+        NewsMetrics.PARSE_ITEMS.record(educationNews.size());
+        return educationNews;
+    }
+
+    /**
+     * Convert the InputStream into a String which contains the
+     * whole JSON response from the server.
+     */
+    static String readFromStream(InputStream inputStream) throws IOException {
+
+        // If there is no InputStream, there is no response
+        if (inputStream == null) {
+            return "";
+        }
+
+        // Read the bytes into a pooled buffer and decode them only once, keeping the line breaks
+        ResponseBodyReader.Body body = ResponseBodyReader.read(inputStream, -1, false);
+        try {
+            return body.toString();
+        } finally {
+            body.release();
+        }
+    }
+
+    /**
+     * Return a list of EducationNews objects that has been built up from
+     * parsing the given JSON response.
+     * <p>
+     * This is the JSONObject (DOM) based path. The network path uses the streaming
+     * EducationNewsJsonParser, this one is kept for responses that are already held as a String.
+     */
+    static List<EducationNews> extractFeatureFromJson(String educationNewsJSON) {
+
+        // If the JSON string is empty or null, then return early.
+        if (educationNewsJSON == null || educationNewsJSON.isEmpty()) {
+            return null;
+        }
+
+        // Create an empty List that we can start adding Education News to
+        long startTime = System.nanoTime();
+        List<EducationNews> educationNews = new ArrayList<>();
+
+        // Try to parse the JSON response string. If there's a problem with the way the JSON
+        // is formatted, a JSONException exception object will be thrown.
+        // Catch the exception so the app doesn't crash, and print the error message to the logs.
+        try {
+
+            // Create a JSONObject from the JSON response string
+            JSONObject baseJsonResponse = new JSONObject(educationNewsJSON);
+
+            // Extract the JSONObject associated with the key called "response",
+            // which represents the response received from the server with EducationNews.
+            JSONObject responseNewsObject = baseJsonResponse.getJSONObject(RESPONSE);
+
+            // Extract the JSONArray associated with the key called "results",
+            // which represents a list of results with EducationNews.
+            JSONArray resultsNewsArray = responseNewsObject.getJSONArray(RESULTS);
+
+            // For each Education News in the educationNewsArray, create an EducationNews object
+            for (int i = 0; i < resultsNewsArray.length(); i++) {
+
+                // Get a single Education News at position i within the list of Education News
+                JSONObject currentEducationNews = resultsNewsArray.getJSONObject(i);
+
+                String title = NewsStrings.NOT_AVAILABLE;
+                if (currentEducationNews.has(NEWS_TITLE)) {
+                    // Extract the value for the key called "webTitle" - Get the Web Title of the current Education News
+                    title = currentEducationNews.getString(NEWS_TITLE);
+                }
+
+                String section = NewsStrings.NOT_AVAILABLE;
+                if (currentEducationNews.has(SECTION)) {
+                    // Extract the value for the key called "sectionName" - Get the Section Name of the current Education News
+                    section = currentEducationNews.getString(SECTION);
+                }
+
+                long date = NewsDateFormatter.UNKNOWN_DATE;
+                if (currentEducationNews.has(DATE)) {
+                    // Extract the value for the key called "webPublicationDate" - Get the Publication Date of the current Education News
+                    date = NewsDateFormatter.parse(currentEducationNews.getString(DATE));
+                }
+
+                String newsUrl = NewsStrings.NOT_AVAILABLE;
+                if (currentEducationNews.has(NEWS_URL)) {
+                    // Extract the value for the key called "webUrl" - Get the Web URL of the current Education News
+                    newsUrl = currentEducationNews.getString(NEWS_URL);
+                }
+
+                String thumbnailUrl = null;
+                JSONObject fields = currentEducationNews.optJSONObject(FIELDS);
+                if (fields != null && fields.has(THUMBNAIL)) {
+                    // Extract the value for the key called "thumbnail" inside "fields" - Get the thumbnail of the current Education News
+                    thumbnailUrl = fields.getString(THUMBNAIL);
+                }
+
+                // Create a new Education News object with the title, section, date, newsUrl and thumbnail from the JSON response
+                EducationNews newsEducationNews = new EducationNews(title, section, date, newsUrl, thumbnailUrl);
+
+                // Add the new Education News object created to the list of Education News.
+                educationNews.add(newsEducationNews);
+            }
+
+        } catch (JSONException e) {
+            // If an error is thrown when executing any of the above statements in the "try" block,
+            // catch the exception here, so the app doesn't crash. Print a log message
+            // with the message from the exception.
+            NewsLog.e(LOG_TAG, "Problem parsing the Education News JSON results", e);
+        }
+        NewsMetrics.PARSE.recordSince(startTime);
+        NewsMetrics.PARSE_ITEMS.record(educationNews.size());
+
+        // Return the list of Education News
+        return educationNews;
+    }
+}
+
+
+
+
+
+
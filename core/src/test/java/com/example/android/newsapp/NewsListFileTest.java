@@ -0,0 +1,224 @@
+package com.example.android.newsapp;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the binary news list file: round trips, reading single rows and rejecting bad files.
+ */
+public class NewsListFileTest {
+
+    private static final String KEY = "https://content.guardianapis.com/search?q=education";
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("news_list", "");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void roundTrip_keepsEveryField() throws IOException {
+        List<EducationNews> news = Arrays.asList(
+                new EducationNews("Schools reopen", "Education", 1500000000000L,
+                        "https://www.theguardian.com/education/2017/jul/14/schools",
+                        "https://media.guim.co.uk/abc/500.jpg"),
+                new EducationNews("Universities and the caf\u00e9 \u00e9conomie \u2713", "Higher education",
+                        NewsDateFormatter.UNKNOWN_DATE, "https://example.com/other"),
+                new EducationNews(null, null, 0, null));
+        String[] dateLabels = {"Friday 14 July 2017", null, "Thursday 01 January 1970"};
+        NewsListFile.write(file, KEY, news, dateLabels);
+
+        NewsListFile listFile = NewsListFile.open(file);
+        assertEquals(KEY, listFile.getKey());
+        assertEquals(news.size(), listFile.size());
+        for (int i = 0; i < news.size(); i++) {
+            assertSameNews(news.get(i), listFile.get(i));
+            assertEquals(news.get(i).getNewsDate(), listFile.getDate(i));
+            assertEquals(dateLabels[i], listFile.getDateLabel(i));
+        }
+    }
+
+    @Test
+    public void roundTrip_emptyList() throws IOException {
+        NewsListFile.write(file, KEY, Collections.<EducationNews>emptyList(), null);
+
+        NewsListFile listFile = NewsListFile.open(file);
+        assertEquals(KEY, listFile.getKey());
+        assertEquals(0, listFile.size());
+        assertTrue(listFile.getAll().isEmpty());
+    }
+
+    @Test
+    public void singleRow_isReadWithoutTheOthers() throws IOException {
+        List<EducationNews> news = newsList(500);
+        NewsListFile.write(file, KEY, news, null);
+
+        NewsListFile listFile = NewsListFile.open(file);
+        assertSameNews(news.get(321), listFile.get(321));
+        assertEquals(news.get(499).getNewsDate(), listFile.getDate(499));
+        assertNull(listFile.getDateLabel(0));
+    }
+
+    @Test
+    public void repeatedStrings_areStoredOnce() throws IOException {
+        // Every news has the same section and URL prefixes, they are only stored in the string table
+        byte[] content = NewsListFile.toBytes(KEY, newsList(1000), null);
+        int sectionCount = countOccurrences(content, "Education".getBytes(ResponseBodyReader.UTF_8));
+        int prefixCount = countOccurrences(content, "https://www.theguardian.com/".getBytes(ResponseBodyReader.UTF_8));
+
+        assertEquals(1, sectionCount);
+        assertEquals(1, prefixCount);
+    }
+
+    @Test
+    public void file_isSmallerThanTheJson() throws IOException {
+        // The JSON only has the fields the file keeps, the responses of the API have many more
+        List<EducationNews> news = newsList(200);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        StringWriter json = new StringWriter();
+        JsonWriter writer = new JsonWriter(json);
+        writer.beginObject().name("response").beginObject().name("results").beginArray();
+        for (EducationNews item : news) {
+            writer.beginObject()
+                    .name("sectionName").value(item.getNewsSection())
+                    .name("webPublicationDate").value(dateFormat.format(new Date(item.getNewsDate())))
+                    .name("webTitle").value(item.getTitle())
+                    .name("webUrl").value(item.getUrl());
+            if (item.getThumbnailUrl() != null) {
+                writer.name("fields").beginObject().name("thumbnail").value(item.getThumbnailUrl()).endObject();
+            }
+            writer.endObject();
+        }
+        writer.endArray().endObject().endObject().close();
+        int jsonLength = json.toString().getBytes(ResponseBodyReader.UTF_8).length;
+
+        NewsListFile.write(file, KEY, news, null);
+
+        assertTrue(file.length() + " bytes of file, " + jsonLength + " bytes of JSON",
+                file.length() < jsonLength);
+    }
+
+    @Test
+    public void rowsOutOfRange_areRejected() throws IOException {
+        NewsListFile.write(file, KEY, newsList(3), null);
+        NewsListFile listFile = NewsListFile.open(file);
+
+        try {
+            listFile.get(3);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+        try {
+            listFile.getDate(-1);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void truncatedFile_isRejected() throws IOException {
+        byte[] content = NewsListFile.toBytes(KEY, newsList(10), null);
+        for (int length = 0; length < content.length; length += 7) {
+            try {
+                NewsListFile listFile = NewsListFile.read(ByteBuffer.wrap(content, 0, length));
+                // The index is complete, only the end of the last rows can be missing
+                try {
+                    listFile.getAll();
+                    fail("Truncated to " + length + " bytes");
+                } catch (IllegalStateException e) {
+                    // Expected
+                }
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void otherFiles_areRejected() throws IOException {
+        // A snapshot of the previous format, starting with its version number
+        FileOutputStream output = new FileOutputStream(file);
+        output.write(new byte[]{0, 0, 0, 1, 0, 3, 'k', 'e', 'y'});
+        output.close();
+        try {
+            NewsListFile.open(file);
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+
+        // A file of a future version
+        NewsListFile.write(file, KEY, newsList(1), null);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(4);
+        randomAccessFile.writeShort(NewsListFile.FORMAT_VERSION + 1);
+        randomAccessFile.close();
+        try {
+            NewsListFile.open(file);
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    private static List<EducationNews> newsList(int count) {
+        List<EducationNews> news = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            news.add(new EducationNews("News number " + i, "Education", 1500000000000L + i * 60000L,
+                    "https://www.theguardian.com/education/2017/jul/" + i,
+                    i % 2 == 0 ? "https://media.guim.co.uk/" + i + "/500.jpg" : null));
+        }
+        return news;
+    }
+
+    private static void assertSameNews(EducationNews expected, EducationNews actual) {
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getNewsSection(), actual.getNewsSection());
+        assertEquals(expected.getNewsDate(), actual.getNewsDate());
+        assertEquals(expected.getUrl(), actual.getUrl());
+        assertEquals(expected.getThumbnailUrl(), actual.getThumbnailUrl());
+    }
+
+    private static int countOccurrences(byte[] content, byte[] pattern) {
+        int count = 0;
+        for (int i = 0; i <= content.length - pattern.length; i++) {
+            int j = 0;
+            while (j < pattern.length && content[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the local search index: prefix matching, newest first results and eviction.
+ */
+public class NewsSearchIndexTest {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    @Test
+    public void search_returnsTheNewestMatchesFirst() {
+        NewsSearchIndex index = new NewsSearchIndex();
+        index.addAll(Arrays.asList(
+                news("Teachers strike", 1, "a"),
+                news("Teachers pay rise", 3, "b"),
+                news("University fees", 4, "c"),
+                news("Teaching assistants", 2, "d")));
+
+        List<EducationNews> results = index.search("teach", 10);
+        assertEquals(Arrays.asList("b", "d", "a"), urls(results));
+
+        results = index.search("teach", 2);
+        assertEquals(Arrays.asList("b", "d"), urls(results));
+
+        results = index.search("teachers pay", 10);
+        assertEquals(Arrays.asList("b"), urls(results));
+        assertTrue(index.search("nursery", 10).isEmpty());
+    }
+
+    @Test
+    public void addAll_whenFull_evictsTheOldestNews() {
+        NewsSearchIndex index = new NewsSearchIndex();
+        List<EducationNews> news = new ArrayList<>();
+        for (int i = 0; i < NewsSearchIndex.MAX_INDEXED_NEWS; i++) {
+            String title = i == 0 ? "Oldest schools news" : "Schools news";
+            news.add(news(title, i, "url" + i));
+        }
+        index.addAll(news);
+        assertEquals(NewsSearchIndex.MAX_INDEXED_NEWS, index.size());
+
+        index.addAll(Arrays.asList(news("Newest schools news", NewsSearchIndex.MAX_INDEXED_NEWS, "new")));
+        assertEquals(NewsSearchIndex.MAX_INDEXED_NEWS - NewsSearchIndex.EVICTED_NEWS + 1, index.size());
+
+        // The new news is found, the oldest one is gone and the rows kept are still matched
+        assertEquals(Arrays.asList("new"), urls(index.search("newest", 10)));
+        assertTrue(index.search("oldest", 10).isEmpty());
+        List<EducationNews> results = index.search("schools", 3);
+        assertEquals(Arrays.asList("new", "url" + (NewsSearchIndex.MAX_INDEXED_NEWS - 1),
+                "url" + (NewsSearchIndex.MAX_INDEXED_NEWS - 2)), urls(results));
+    }
+
+    private static EducationNews news(String title, int minutes, String url) {
+        return new EducationNews(title, "Education", minutes * MINUTE, url);
+    }
+
+    private static List<String> urls(List<EducationNews> news) {
+        List<String> urls = new ArrayList<>();
+        for (EducationNews item : news) {
+            urls.add(item.getUrl());
+        }
+        return urls;
+    }
+}
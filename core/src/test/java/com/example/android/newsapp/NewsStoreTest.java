@@ -0,0 +1,205 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the shared news store: snapshots, change sets, eviction and concurrent writers.
+ */
+public class NewsStoreTest {
+
+    // Runs the notifications on the thread of the writer
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void batch_isAppliedAtOnce() {
+        NewsStore store = new NewsStore(NewsStore.MAX_FEEDS);
+        NewsStore.Snapshot before = store.getSnapshot();
+
+        NewsStore.ChangeSet changes = store.apply(new NewsStore.Batch()
+                .putFeed("education", Arrays.asList(news("a", "A"), news("b", "B")))
+                .putFeed("schools", Arrays.asList(news("b", "B"), news("c", "C"))));
+
+        NewsStore.Snapshot after = store.getSnapshot();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(after.getVersion(), changes.getVersion());
+        assertEquals(2, after.getFeedCount());
+        assertEquals(3, after.getNewsCount());
+        assertEquals(urls("a", "b", "c"), changes.getAdded());
+        assertEquals(keys("education", "schools"), changes.getFeeds());
+
+        // The snapshot read before the batch is not modified
+        assertEquals(0, before.getFeedCount());
+        assertNull(before.getFeed("education"));
+    }
+
+    @Test
+    public void changeSet_listsUpdatedAndRemovedNews() {
+        NewsStore store = new NewsStore(NewsStore.MAX_FEEDS);
+        store.apply(new NewsStore.Batch()
+                .putFeed("education", Arrays.asList(news("a", "A"), news("b", "B")))
+                .putFeed("schools", Arrays.asList(news("b", "B"), news("c", "C"))));
+
+        NewsStore.ChangeSet changes = store.apply(new NewsStore.Batch()
+                .putFeed("education", Arrays.asList(news("a", "A again"), news("d", "D")))
+                .removeFeed("schools"));
+
+        assertEquals(urls("d"), changes.getAdded());
+        assertEquals(urls("a"), changes.getUpdated());
+        assertEquals(urls("b", "c"), changes.getRemoved());
+        assertEquals(keys("education", "schools"), changes.getFeeds());
+        assertEquals("A again", store.getSnapshot().getNews(url("a")).getTitle());
+        assertNull(store.getSnapshot().getNews(url("b")));
+    }
+
+    @Test
+    public void sameNews_doNotMakeANewVersion() {
+        NewsStore store = new NewsStore(NewsStore.MAX_FEEDS);
+        store.apply(new NewsStore.Batch().putFeed("education", Arrays.asList(news("a", "A"))));
+        NewsStore.Snapshot snapshot = store.getSnapshot();
+        final AtomicInteger notifications = new AtomicInteger();
+        store.addObserver(new NewsStore.Observer() {
+            @Override
+            public void onStoreChanged(NewsStore.Snapshot snapshot, NewsStore.ChangeSet changes) {
+                notifications.incrementAndGet();
+            }
+        }, DIRECT);
+
+        // The same news fetched again are new objects with the same content
+        NewsStore.ChangeSet changes = store.apply(new NewsStore.Batch()
+                .putFeed("education", Arrays.asList(news("a", "A"))));
+
+        assertTrue(changes.isEmpty());
+        assertEquals(snapshot.getVersion(), changes.getVersion());
+        assertSame(snapshot, store.getSnapshot());
+        assertEquals(0, notifications.get());
+    }
+
+    @Test
+    public void observers_receiveTheChangesAndTheNewestSnapshot() {
+        NewsStore store = new NewsStore(NewsStore.MAX_FEEDS);
+        final List<Long> versions = new ArrayList<>();
+        final List<Boolean> affected = new ArrayList<>();
+        NewsStore.Observer observer = new NewsStore.Observer() {
+            @Override
+            public void onStoreChanged(NewsStore.Snapshot snapshot, NewsStore.ChangeSet changes) {
+                versions.add(snapshot.getVersion());
+                affected.add(changes.affectsAnyFeed(Collections.singletonList("education")));
+            }
+        };
+        store.addObserver(observer, DIRECT);
+
+        store.apply(new NewsStore.Batch().putFeed("education", Arrays.asList(news("a", "A"))));
+        store.apply(new NewsStore.Batch().putFeed("schools", Arrays.asList(news("b", "B"))));
+        store.removeObserver(observer);
+        store.apply(new NewsStore.Batch().putFeed("education", Arrays.asList(news("c", "C"))));
+
+        assertEquals(Arrays.asList(1L, 2L), versions);
+        assertEquals(Arrays.asList(true, false), affected);
+    }
+
+    @Test
+    public void oldestFeeds_areDropped() {
+        NewsStore store = new NewsStore(2);
+        store.apply(new NewsStore.Batch().putFeed("first", Arrays.asList(news("a", "A"))));
+        store.apply(new NewsStore.Batch().putFeed("second", Arrays.asList(news("b", "B"))));
+        // Writing the first feed again makes the second one the oldest
+        store.apply(new NewsStore.Batch().putFeed("first", Arrays.asList(news("a", "A2"))));
+
+        NewsStore.ChangeSet changes = store.apply(new NewsStore.Batch()
+                .putFeed("third", Arrays.asList(news("c", "C"))));
+
+        NewsStore.Snapshot snapshot = store.getSnapshot();
+        assertEquals(2, snapshot.getFeedCount());
+        assertNull(snapshot.getFeed("second"));
+        assertNotNull(snapshot.getFeed("first"));
+        assertEquals(urls("b"), changes.getRemoved());
+        assertEquals(keys("second", "third"), changes.getFeeds());
+    }
+
+    @Test
+    public void concurrentWriters_doNotLoseUpdates() throws InterruptedException {
+        final NewsStore store = new NewsStore(NewsStore.MAX_FEEDS);
+        final int writerCount = 8;
+        final int batchCount = 200;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger notifications = new AtomicInteger();
+        store.addObserver(new NewsStore.Observer() {
+            @Override
+            public void onStoreChanged(NewsStore.Snapshot snapshot, NewsStore.ChangeSet changes) {
+                notifications.incrementAndGet();
+            }
+        }, DIRECT);
+
+        Thread[] writers = new Thread[writerCount];
+        for (int w = 0; w < writerCount; w++) {
+            final String feed = "feed" + w;
+            writers[w] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < batchCount; i++) {
+                        store.apply(new NewsStore.Batch().putFeed(feed,
+                                Arrays.asList(news(feed + "/" + i, "News " + i))));
+                    }
+                }
+            });
+            writers[w].start();
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // Every batch changed the store once, and the last news of every writer is in it
+        NewsStore.Snapshot snapshot = store.getSnapshot();
+        assertEquals(writerCount * batchCount, snapshot.getVersion());
+        assertEquals(writerCount * batchCount, notifications.get());
+        assertEquals(writerCount, snapshot.getFeedCount());
+        assertEquals(writerCount, snapshot.getNewsCount());
+        for (int w = 0; w < writerCount; w++) {
+            assertEquals(url("feed" + w + "/" + (batchCount - 1)),
+                    snapshot.getFeed("feed" + w).get(0).getUrl());
+        }
+    }
+
+    private static EducationNews news(String path, String title) {
+        return new EducationNews(title, "Education", 1500000000000L, url(path));
+    }
+
+    private static String url(String path) {
+        return "https://www.theguardian.com/education/" + path;
+    }
+
+    private static Set<String> urls(String... paths) {
+        Set<String> urls = new HashSet<>();
+        for (String path : paths) {
+            urls.add(url(path));
+        }
+        return urls;
+    }
+
+    private static Set<String> keys(String... keys) {
+        return new HashSet<>(Arrays.asList(keys));
+    }
+}